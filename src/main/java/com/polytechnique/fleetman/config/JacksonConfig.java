@@ -2,37 +2,76 @@ package com.polytechnique.fleetman.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.polytechnique.fleetman.custom.CustomUGeojsonDeserializer;
-import com.polytechnique.fleetman.custom.CustomUGeojsonSerializer;
+import com.polytechnique.fleetman.custom.GeojsonStreamingDeserializer;
+import com.polytechnique.fleetman.custom.GeojsonStreamingSerializer;
+import com.polytechnique.fleetman.custom.WkbGeometryDeserializer;
+import com.polytechnique.fleetman.custom.WkbGeometrySerializer;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 
 @Configuration
 public class JacksonConfig {
 
     @Bean
     @Primary  // ← Marquer comme bean principal
-    public ObjectMapper objectMapper() {
+    public ObjectMapper objectMapper(@Value("${fleetman.geojson.coordinate-precision:7}") int coordinatePrecision) {
         ObjectMapper objectMapper = new ObjectMapper();
 
         // Module pour le support Java Time (dates)
         objectMapper.registerModule(new JavaTimeModule());
 
         // Module pour la sérialisation/désérialisation spatiale
+        // (écriture directe des coordonnées, arrondies à coordinatePrecision décimales)
         SimpleModule spatialModule = new SimpleModule();
-        spatialModule.addSerializer(Geometry.class, new CustomUGeojsonSerializer());
-        spatialModule.addDeserializer(Polygon.class, new CustomUGeojsonDeserializer<>());
-        spatialModule.addDeserializer(LineString.class, new CustomUGeojsonDeserializer<>());
-        spatialModule.addDeserializer(Point.class, new CustomUGeojsonDeserializer<>());
+        spatialModule.addSerializer(Geometry.class, new GeojsonStreamingSerializer(coordinatePrecision));
+        // lecture directe des jetons, géométries en SRID 4326
+        spatialModule.addDeserializer(Polygon.class, new GeojsonStreamingDeserializer<>(Polygon.class));
+        spatialModule.addDeserializer(LineString.class, new GeojsonStreamingDeserializer<>(LineString.class));
+        spatialModule.addDeserializer(Point.class, new GeojsonStreamingDeserializer<>(Point.class));
 
         objectMapper.registerModule(spatialModule);
 
         return objectMapper;
     }
-}
\ No newline at end of file
+
+    // Formats binaires, choisis par Accept / Content-Type : application/cbor et application/x-jackson-smile
+    // (géométries en WKB au lieu de tableaux de coordonnées)
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(binaryMapper(new CBORMapper()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(binaryMapper(new SmileMapper()));
+    }
+
+    /**
+     * Configure un mapper binaire comme le mapper JSON, à la géométrie près (WKB)
+     */
+    public static ObjectMapper binaryMapper(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new JavaTimeModule());
+
+        SimpleModule spatialModule = new SimpleModule();
+        spatialModule.addSerializer(Geometry.class, new WkbGeometrySerializer());
+        spatialModule.addDeserializer(Polygon.class, new WkbGeometryDeserializer<>(Polygon.class));
+        spatialModule.addDeserializer(LineString.class, new WkbGeometryDeserializer<>(LineString.class));
+        spatialModule.addDeserializer(Point.class, new WkbGeometryDeserializer<>(Point.class));
+
+        objectMapper.registerModule(spatialModule);
+
+        return objectMapper;
+    }
+}
@@ -0,0 +1,30 @@
+package com.polytechnique.fleetman.config;
+
+import com.polytechnique.fleetman.geometry.compression.CompressionStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramètres de la compression de trajectoire à l'ingestion (préfixe fleetman.position.compression)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "fleetman.position.compression")
+public class PositionCompressionProperties {
+
+    // stratégie des véhicules dont le type n'est pas listé dans vehicle-types
+    private CompressionStrategy defaultStrategy = CompressionStrategy.ALIGNEMENT;
+
+    // stratégie par type de véhicule (clé : VehicleEntity.vehicleType, sans tenir compte de la casse)
+    private Map<String, CompressionStrategy> vehicleTypes = new HashMap<>();
+
+    // erreur maximale tolérée entre une position écartée et la trajectoire enregistrée
+    private double maxErrorMeters = 10.0;
+
+    // nombre maximal de positions écartées consécutives retenues en mémoire par véhicule (OPENING_WINDOW)
+    private int maxWindowSize = 200;
+}
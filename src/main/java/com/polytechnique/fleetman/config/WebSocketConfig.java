@@ -0,0 +1,22 @@
+package com.polytechnique.fleetman.config;
+
+import com.polytechnique.fleetman.controller.PositionWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final PositionWebSocketHandler positionWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(positionWebSocketHandler, "/ws/positions")
+                .setAllowedOriginPatterns("*");
+    }
+}
@@ -0,0 +1,157 @@
+package com.polytechnique.fleetman.controller;
+
+import com.polytechnique.fleetman.dto.geofence.GeofenceCreateDTO;
+import com.polytechnique.fleetman.dto.geofence.GeofenceDTO;
+import com.polytechnique.fleetman.service.GeofenceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/geofences")
+@RequiredArgsConstructor
+@Tag(name = "Zones", description = "API de gestion des zones géographiques (geofences) et de leurs règles d'alerte")
+public class GeofenceController {
+
+    private final GeofenceService geofenceService;
+
+    @PostMapping
+    @Operation(
+            summary = "Créer une nouvelle zone",
+            description = """
+            Crée une zone géographique (polygone) pour un utilisateur, avec ses règles d'alerte.
+            Chaque règle vise un véhicule, un type de véhicule ou tous les véhicules du propriétaire,
+            et signale les entrées, les sorties et/ou les stationnements prolongés.
+            🔔 **Notifications** : chaque transition crée une notification pour le propriétaire de la zone.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Zone créée avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = GeofenceDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Données invalides (polygone invalide, véhicule d'un autre utilisateur)",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Utilisateur ou véhicule non trouvé",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<GeofenceDTO> createGeofence(
+            @Valid @RequestBody
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Informations de la zone à créer",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = GeofenceCreateDTO.class))
+            )
+            GeofenceCreateDTO geofenceCreateDTO) {
+        GeofenceDTO createdGeofence = geofenceService.createGeofence(geofenceCreateDTO);
+        return new ResponseEntity<>(createdGeofence, HttpStatus.CREATED);
+    }
+
+    @GetMapping("/{geofenceId}")
+    @Operation(
+            summary = "Récupérer une zone par son ID",
+            description = "Retourne le polygone et les règles d'alerte d'une zone spécifique"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Zone trouvée",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = GeofenceDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Zone non trouvée",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<GeofenceDTO> getGeofenceById(
+            @Parameter(
+                    description = "ID de la zone",
+                    required = true,
+                    example = "1"
+            )
+            @PathVariable Long geofenceId) {
+        GeofenceDTO geofence = geofenceService.getGeofenceById(geofenceId);
+        return ResponseEntity.ok(geofence);
+    }
+
+    @GetMapping("/user/{userId}")
+    @Operation(
+            summary = "Obtenir les zones d'un utilisateur",
+            description = "Retourne toutes les zones appartenant à un utilisateur spécifique"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Zones de l'utilisateur récupérées avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = GeofenceDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Utilisateur non trouvé",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<List<GeofenceDTO>> getGeofencesByUserId(
+            @Parameter(description = "ID de l'utilisateur", required = true, example = "1")
+            @PathVariable Long userId) {
+        List<GeofenceDTO> geofences = geofenceService.getGeofencesByUserId(userId);
+        return ResponseEntity.ok(geofences);
+    }
+
+    @DeleteMapping("/{geofenceId}")
+    @Operation(
+            summary = "Supprimer une zone",
+            description = "Supprime définitivement une zone et ses règles d'alerte"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Zone supprimée avec succès",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Zone non trouvée",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<Void> deleteGeofence(
+            @Parameter(
+                    description = "ID de la zone à supprimer",
+                    required = true,
+                    example = "1"
+            )
+            @PathVariable Long geofenceId) {
+        geofenceService.deleteGeofence(geofenceId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,7 +1,16 @@
 package com.polytechnique.fleetman.controller;
 
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import com.polytechnique.fleetman.dto.position.PositionBatchCreateDTO;
+import com.polytechnique.fleetman.dto.position.PositionBatchResultDTO;
 import com.polytechnique.fleetman.dto.position.PositionCreateDTO;
 import com.polytechnique.fleetman.dto.position.PositionDTO;
+import com.polytechnique.fleetman.dto.position.PositionExportFormat;
+import com.polytechnique.fleetman.dto.position.PositionImportResultDTO;
+import com.polytechnique.fleetman.dto.position.PositionPageDTO;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.geometry.encoding.LineEncoding;
+import com.polytechnique.fleetman.service.PositionExportService;
 import com.polytechnique.fleetman.service.PositionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,13 +20,26 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/positions")
@@ -25,7 +47,15 @@ import java.util.List;
 @Tag(name = "Positions GPS", description = "API de suivi géolocalisation en temps réel des véhicules")
 public class PositionController {
 
+    private static final int MAX_LATEST_VEHICLES = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 5000;
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final PositionService positionService;
+    private final PositionExportService positionExportService;
 
     @PostMapping
     @Operation(
@@ -35,6 +65,8 @@ public class PositionController {
             **Géolocalisation** : Les coordonnées GPS sont obligatoires.
             **Horodatage** : La date et heure sont automatiquement enregistrées.
             **Véhicule** : Chaque position doit être associée à un véhicule.
+            **Écriture différée** : si elle est activée (file mémoire ou journal durable),
+            la position est acquittée (202) avant son insertion en base.
             """
     )
     @ApiResponses(value = {
@@ -46,6 +78,19 @@ public class PositionController {
                             schema = @Schema(implementation = PositionDTO.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "202",
+                    description = "Position acceptée en écriture différée (ID non encore attribué)",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PositionDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "File d'écriture différée pleine, réessayer plus tard",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "400",
                     description = "Données invalides - coordonnées ou véhicule manquant",
@@ -66,7 +111,77 @@ public class PositionController {
             )
             PositionCreateDTO positionCreateDTO) {
         PositionDTO createdPosition = positionService.savePositionIfNotAligned(positionCreateDTO);
-        return new ResponseEntity<>(createdPosition, HttpStatus.CREATED);
+        // sans ID, la position est en attente dans la file d'écriture différée
+        HttpStatus status = createdPosition.getPositionId() == null ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+        return new ResponseEntity<>(createdPosition, status);
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Enregistrer un lot de positions GPS",
+            description = """
+            Enregistre en une seule requête les positions mises en tampon par un ou plusieurs traceurs.
+            **Filtrage** : le filtre d'alignement est appliqué véhicule par véhicule, dans l'ordre du lot.
+            **Transaction** : une transaction par véhicule ; l'échec d'un véhicule n'annule pas les autres,
+            ses positions sont retournées REJECTED avec la cause.
+            **Résultat** : un statut (ACCEPTED, SKIPPED, REJECTED) est retourné pour chaque position.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Lot traité",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PositionBatchResultDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Données invalides - lot vide, trop grand ou position invalide",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<PositionBatchResultDTO> createPositions(
+            @Valid @RequestBody
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Lot de positions GPS à enregistrer",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = PositionBatchCreateDTO.class))
+            )
+            PositionBatchCreateDTO positionBatchCreateDTO) {
+        PositionBatchResultDTO result = positionService.savePositionsIfNotAligned(positionBatchCreateDTO.getPositions());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @Operation(
+            summary = "Importer massivement des positions GPS",
+            description = """
+            Importe un fichier CSV de positions horodatées (reprise d'historique, envoi massif).
+            **Format** : `vehicle_id,longitude,latitude,position_date_time` (date ISO), en-tête optionnel.
+            **Écriture** : flux COPY binaire PostgreSQL, repli sur des INSERT par lots si COPY est indisponible.
+            **Filtrage** : aucun, les positions sont importées telles quelles dans une seule transaction.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Positions importées",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PositionImportResultDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Ligne CSV invalide",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<PositionImportResultDTO> importPositions(HttpServletRequest request) throws IOException {
+        PositionImportResultDTO result = positionService.importPositionsCsv(request.getInputStream());
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
     }
 
     @GetMapping("/{positionId}")
@@ -102,57 +217,272 @@ public class PositionController {
 
     @GetMapping
     @Operation(
-            summary = "Lister toutes les positions enregistrées",
-            description = "Retourne l'historique complet de toutes les positions GPS enregistrées dans le système"
+            summary = "Lister les positions enregistrées sur une période",
+            description = """
+            Retourne, page par page et dans l'ordre chronologique, les positions GPS de tous les véhicules
+            sur l'intervalle [from, to[ (tout l'historique si absents).
+            **Pagination** : passer le `nextCursor` de la réponse dans `after` pour obtenir la page suivante ;
+            il est absent sur la dernière page. Le coût d'une page ne dépend pas de sa position dans l'historique.
+            """
     )
-    @ApiResponse(
-            responseCode = "200",
-            description = "Liste des positions récupérée avec succès",
-            content = @Content(
-                    mediaType = "application/json",
-                    array = @ArraySchema(schema = @Schema(implementation = PositionDTO.class))
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Page de positions récupérée avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = PositionPageDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Période, taille de page ou curseur invalide",
+                    content = @Content
             )
-    )
-    public ResponseEntity<List<PositionDTO>> getAllPositions() {
-        List<PositionDTO> positions = positionService.getAllPositions();
-        return ResponseEntity.ok(positions);
+    })
+    public ResponseEntity<PositionPageDTO> getPositions(
+            @Parameter(
+                    description = "Début de la période (inclus), format ISO 8601",
+                    example = "2025-01-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(
+                    description = "Fin de la période (exclue), format ISO 8601",
+                    example = "2025-02-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Nombre maximal de positions par page (au plus " + MAX_PAGE_SIZE + ")", example = "500")
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @Parameter(description = "Curseur de la page précédente (nextCursor)")
+            @RequestParam(required = false) String after) {
+        checkPageSize(limit);
+        return ResponseEntity.ok(positionService.getPositionsPage(from, to, limit, after));
     }
 
     @GetMapping("/vehicle/{vehicleId}")
     @Operation(
             summary = "Obtenir l'historique des positions d'un véhicule",
-            description = "Retourne l'historique complet des positions GPS pour un véhicule spécifique"
+            description = """
+            Retourne, page par page et dans l'ordre chronologique, l'historique des positions GPS d'un véhicule
+            sur l'intervalle [from, to[ (tout l'historique si absents).
+            **Période** : seules les partitions mensuelles concernées sont lues.
+            **Pagination** : passer le `nextCursor` de la réponse dans `after` pour obtenir la page suivante ;
+            il est absent sur la dernière page.
+            """
     )
     @ApiResponses(value = {
             @ApiResponse(
                     responseCode = "200",
-                    description = "Historique des positions récupéré avec succès",
+                    description = "Page de l'historique récupérée avec succès",
                     content = @Content(
                             mediaType = "application/json",
-                            array = @ArraySchema(schema = @Schema(implementation = PositionDTO.class))
+                            schema = @Schema(implementation = PositionPageDTO.class)
                     )
             ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Période, taille de page ou curseur invalide",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Véhicule non trouvé",
                     content = @Content
             )
     })
-    public ResponseEntity<List<PositionDTO>> getPositionsByVehicleId(
+    public ResponseEntity<PositionPageDTO> getPositionsByVehicleId(
             @Parameter(
                     description = "ID du véhicule",
                     required = true,
                     example = "1"
             )
-            @PathVariable Long vehicleId) {
-        List<PositionDTO> positions = positionService.getPositionsByVehicleId(vehicleId);
-        return ResponseEntity.ok(positions);
+            @PathVariable Long vehicleId,
+            @Parameter(
+                    description = "Début de la période (inclus), format ISO 8601",
+                    example = "2025-01-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(
+                    description = "Fin de la période (exclue), format ISO 8601",
+                    example = "2025-02-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Nombre maximal de positions par page (au plus " + MAX_PAGE_SIZE + ")", example = "500")
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @Parameter(description = "Curseur de la page précédente (nextCursor)")
+            @RequestParam(required = false) String after) {
+        checkPageSize(limit);
+        return ResponseEntity.ok(positionService.getPositionsPageByVehicleId(vehicleId, from, to, limit, after));
+    }
+
+    @GetMapping("/vehicle/{vehicleId}/export")
+    @Operation(
+            summary = "Exporter la trace complète d'un véhicule",
+            description = """
+            Exporte, dans l'ordre chronologique, toutes les positions d'un véhicule sur l'intervalle [from, to[
+            (tout l'historique si absents), sans limite de taille.
+            **Formats** : `NDJSON` (une position JSON par ligne), `GEOJSON` (FeatureCollection de points horodatés),
+            `POLYLINE` (polyligne encodée, sans horodatage) ou `DELTA` (longitude, latitude et secondes epoch
+            en écarts varint zig-zag, base64) ; `precision` fixe le nombre de décimales des deux derniers.
+            **Flux** : les positions sont lues par paquets et écrites au fil de l'eau ; la réponse est compressée
+            en gzip si le client l'accepte (`Accept-Encoding: gzip`, ou `*`, avec un poids `q` non nul).
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Export en cours d'envoi",
+                    content = {
+                            @Content(mediaType = "application/x-ndjson"),
+                            @Content(mediaType = "application/geo+json"),
+                            @Content(mediaType = "text/plain")
+                    }
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Période ou format invalide",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "Véhicule non trouvé",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<StreamingResponseBody> exportPositionsByVehicleId(
+            @Parameter(
+                    description = "ID du véhicule",
+                    required = true,
+                    example = "1"
+            )
+            @PathVariable Long vehicleId,
+            @Parameter(
+                    description = "Début de la période (inclus), format ISO 8601",
+                    example = "2025-01-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(
+                    description = "Fin de la période (exclue), format ISO 8601",
+                    example = "2025-07-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Format de l'export", example = "NDJSON")
+            @RequestParam(defaultValue = "NDJSON") String format,
+            @Parameter(description = "Nombre de décimales des formats POLYLINE et DELTA (0 à 7)", example = "5")
+            @RequestParam(defaultValue = "" + LineEncoding.DEFAULT_PRECISION) int precision,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        PositionExportFormat exportFormat = exportFormat(format);
+        if (precision < LineEncoding.MIN_PRECISION || precision > LineEncoding.MAX_PRECISION) {
+            throw new BadRequestException("La précision doit être comprise entre " + LineEncoding.MIN_PRECISION
+                    + " et " + LineEncoding.MAX_PRECISION);
+        }
+        positionExportService.checkExport(vehicleId, from, to);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE) : out;
+            positionExportService.exportTrack(vehicleId, from, to, exportFormat, precision, target);
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("vehicle-" + vehicleId + "." + exportFormat.getExtension())
+                        .build()
+                        .toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Suivre les positions en direct (Server-Sent Events)",
+            description = """
+            Diffuse les positions acceptées au fil de l'eau, sous forme d'événements `position`.
+            **Filtres** : véhicules (`vehicleIds`), propriétaire (`userId`) et/ou emprise (`bbox`), combinables.
+            **Client lent** : seule la position la plus récente de chaque véhicule est conservée en attendant
+            qu'il consomme ; un commentaire de maintien est envoyé toutes les 15 secondes.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Flux ouvert",
+                    content = @Content(
+                            mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = LatestPositionDTO.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Emprise invalide",
+                    content = @Content
+            )
+    })
+    public Flux<ServerSentEvent<LatestPositionDTO>> streamPositions(
+            @Parameter(description = "IDs des véhicules à suivre", example = "1,2,3")
+            @RequestParam(required = false) List<Long> vehicleIds,
+            @Parameter(description = "ID de l'utilisateur propriétaire des véhicules à suivre", example = "1")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "Emprise minLongitude,minLatitude,maxLongitude,maxLatitude", example = "11.4,3.8,11.6,3.95")
+            @RequestParam(required = false) List<Double> bbox) {
+        Flux<ServerSentEvent<LatestPositionDTO>> positions = positionService.streamPositions(vehicleIds, userId, bbox)
+                .map(position -> ServerSentEvent.builder(position).event("position").build());
+        // client lent : un battement non consommé est abandonné (Flux.interval échouerait faute de demande)
+        Flux<ServerSentEvent<LatestPositionDTO>> heartbeat = Flux.interval(HEARTBEAT_INTERVAL)
+                .onBackpressureDrop()
+                .map(tick -> ServerSentEvent.<LatestPositionDTO>builder().comment("keep-alive").build());
+        // prefetch de 1 : les positions restent conflatées dans le hub tant que le client n'a pas consommé
+        return Flux.merge(1, positions, heartbeat);
+    }
+
+    @GetMapping("/latest")
+    @Operation(
+            summary = "Obtenir l'état courant de plusieurs véhicules",
+            description = """
+            Retourne, pour chaque véhicule demandé, sa dernière position, sa vitesse et son cap estimés.
+            **Performance** : les réponses sont servies depuis l'état courant de la flotte en mémoire,
+            sans requête par véhicule. Les véhicules inconnus ou sans position sont absents du résultat.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "État courant récupéré avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = LatestPositionDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Liste de véhicules vide ou trop longue",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<List<LatestPositionDTO>> getLatestPositions(
+            @Parameter(
+                    description = "IDs des véhicules (au plus " + MAX_LATEST_VEHICLES + ")",
+                    required = true,
+                    example = "1,2,3"
+            )
+            @RequestParam List<Long> vehicleIds) {
+        if (vehicleIds.isEmpty() || vehicleIds.size() > MAX_LATEST_VEHICLES) {
+            throw new BadRequestException("Entre 1 et " + MAX_LATEST_VEHICLES + " véhicules peuvent être demandés");
+        }
+        return ResponseEntity.ok(positionService.getLatestPositions(vehicleIds));
     }
 
     @GetMapping("/vehicle/{vehicleId}/latest")
     @Operation(
             summary = "Obtenir la dernière position d'un véhicule",
-            description = "Retourne la position GPS la plus récente enregistrée pour un véhicule spécifique"
+            description = "Retourne la position GPS la plus récente enregistrée pour un véhicule spécifique, depuis l'état courant de la flotte en mémoire"
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -207,4 +537,54 @@ public class PositionController {
         positionService.deletePosition(positionId);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    private static void checkPageSize(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BadRequestException("La taille de page doit être comprise entre 1 et " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static PositionExportFormat exportFormat(String format) {
+        for (PositionExportFormat candidate : PositionExportFormat.values()) {
+            if (candidate.name().equalsIgnoreCase(format)) {
+                return candidate;
+            }
+        }
+        throw new BadRequestException("Format d'export inconnu : " + format);
+    }
+
+    // gzip accepté s'il est cité avec un poids non nul, ou à défaut si * l'est (RFC 9110, 12.5.3) ;
+    // un poids illisible vaut refus : la réponse non compressée est toujours acceptable
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].strip();
+            boolean accepted = weight(parts) > 0;
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double weight(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].strip();
+            if (parameter.length() > 2 && parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).strip());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
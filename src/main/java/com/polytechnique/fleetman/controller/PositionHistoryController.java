@@ -1,55 +1,84 @@
 package com.polytechnique.fleetman.controller;
 
 import com.polytechnique.fleetman.dto.positionhistory.PositionHistoryDTO;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.geometry.encoding.LineEncoding;
+import com.polytechnique.fleetman.repository.PositionHistoryLodReader;
 import com.polytechnique.fleetman.service.PositionHistoryService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.locationtech.jts.geom.Coordinate;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/position-histories")
 @RequiredArgsConstructor
 public class PositionHistoryController {
 
+    private static final int MAX_ZOOM = 22;
+
     private final PositionHistoryService positionHistoryService;
 
-    @PostMapping("/vehicle/{vehicleId}")
+    // corps {"coordinates": [[longitude, latitude], ...]} lu en flux par le service (envois de 100 000 sommets et plus)
+    @PostMapping(value = "/vehicle/{vehicleId}", consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<PositionHistoryDTO> createPositionHistory(
             @PathVariable Long vehicleId,
-            @RequestBody Map<String, List<List<Double>>> request) {
-
-        List<List<Double>> coordinatesList = request.get("coordinates");
-        if (coordinatesList == null) {
-            throw new RuntimeException("La liste des coordonnées est obligatoire");
-        }
-
-        List<Coordinate> coordinates = coordinatesList.stream()
-                .map(coord -> new Coordinate(coord.get(0), coord.get(1))) // [longitude, latitude]
-                .toList();
-
-        PositionHistoryDTO createdHistory = positionHistoryService.createPositionHistory(vehicleId, coordinates);
+            HttpServletRequest request) throws IOException {
+        PositionHistoryDTO createdHistory = positionHistoryService.createPositionHistory(vehicleId, request.getInputStream());
         return new ResponseEntity<>(createdHistory, HttpStatus.CREATED);
     }
 
     @GetMapping("/{positionHistoryId}")
-    public ResponseEntity<PositionHistoryDTO> getPositionHistoryById(@PathVariable Long positionHistoryId) {
+    public ResponseEntity<?> getPositionHistoryById(
+            @PathVariable Long positionHistoryId,
+            @RequestParam(defaultValue = "GEOJSON") String format,
+            @RequestParam(defaultValue = "" + LineEncoding.DEFAULT_PRECISION) int precision) {
+        LineEncoding encoding = encoding(format, precision);
+        if (encoding != LineEncoding.GEOJSON) {
+            return ResponseEntity.ok(positionHistoryService.getEncodedPositionHistoryById(positionHistoryId, encoding, precision));
+        }
         PositionHistoryDTO positionHistory = positionHistoryService.getPositionHistoryById(positionHistoryId);
         return ResponseEntity.ok(positionHistory);
     }
 
     @GetMapping
-    public ResponseEntity<List<PositionHistoryDTO>> getAllPositionHistories() {
+    public ResponseEntity<?> getAllPositionHistories(
+            @RequestParam(defaultValue = "GEOJSON") String format,
+            @RequestParam(defaultValue = "" + LineEncoding.DEFAULT_PRECISION) int precision) {
+        LineEncoding encoding = encoding(format, precision);
+        if (encoding != LineEncoding.GEOJSON) {
+            return ResponseEntity.ok(positionHistoryService.getAllEncodedPositionHistories(encoding, precision));
+        }
         List<PositionHistoryDTO> positionHistories = positionHistoryService.getAllPositionHistories();
         return ResponseEntity.ok(positionHistories);
     }
 
+    // zoom (niveau de tuile web) ou tolerance (m) : ligne simplifiée au niveau de détail précalculé correspondant ;
+    // bbox (minLongitude,minLatitude,maxLongitude,maxLatitude) : lignes découpées à l'emprise affichée
     @GetMapping("/vehicle/{vehicleId}")
-    public ResponseEntity<List<PositionHistoryDTO>> getPositionHistoriesByVehicleId(@PathVariable Long vehicleId) {
+    public ResponseEntity<?> getPositionHistoriesByVehicleId(
+            @PathVariable Long vehicleId,
+            @RequestParam(defaultValue = "GEOJSON") String format,
+            @RequestParam(defaultValue = "" + LineEncoding.DEFAULT_PRECISION) int precision,
+            @RequestParam(required = false) Integer zoom,
+            @RequestParam(required = false) Double tolerance,
+            @RequestParam(required = false) List<Double> bbox) {
+        LineEncoding encoding = encoding(format, precision);
+        if (zoom != null || tolerance != null || bbox != null) {
+            if (encoding != LineEncoding.GEOJSON) {
+                throw new BadRequestException("zoom, tolerance et bbox ne sont disponibles qu'au format GeoJSON");
+            }
+            return ResponseEntity.ok(positionHistoryService.getPositionHistoriesByVehicleIdAtTolerance(
+                    vehicleId, tolerance(zoom, tolerance), bbox));
+        }
+        if (encoding != LineEncoding.GEOJSON) {
+            return ResponseEntity.ok(positionHistoryService.getEncodedPositionHistoriesByVehicleId(vehicleId, encoding, precision));
+        }
         List<PositionHistoryDTO> positionHistories = positionHistoryService.getPositionHistoriesByVehicleId(vehicleId);
         return ResponseEntity.ok(positionHistories);
     }
@@ -59,4 +88,38 @@ public class PositionHistoryController {
         positionHistoryService.deletePositionHistory(positionHistoryId);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    private static double tolerance(Integer zoom, Double tolerance) {
+        if (zoom != null && tolerance != null) {
+            throw new BadRequestException("zoom et tolerance ne peuvent pas être combinés");
+        }
+        if (zoom != null) {
+            if (zoom < 0 || zoom > MAX_ZOOM) {
+                throw new BadRequestException("Le zoom doit être compris entre 0 et " + MAX_ZOOM);
+            }
+            return PositionHistoryLodReader.toleranceForZoom(zoom);
+        }
+        if (tolerance != null && !(tolerance >= 0)) {
+            throw new BadRequestException("La tolérance doit être positive");
+        }
+        return tolerance != null ? tolerance : 0.0;
+    }
+
+    // format=geojson (par défaut), polyline ou delta ; precision = nombre de décimales des formats encodés
+    private static LineEncoding encoding(String format, int precision) {
+        LineEncoding encoding = null;
+        for (LineEncoding candidate : LineEncoding.values()) {
+            if (candidate.name().equalsIgnoreCase(format)) {
+                encoding = candidate;
+            }
+        }
+        if (encoding == null) {
+            throw new BadRequestException("Format inconnu : " + format);
+        }
+        if (precision < LineEncoding.MIN_PRECISION || precision > LineEncoding.MAX_PRECISION) {
+            throw new BadRequestException("La précision doit être comprise entre " + LineEncoding.MIN_PRECISION
+                    + " et " + LineEncoding.MAX_PRECISION);
+        }
+        return encoding;
+    }
+}
@@ -0,0 +1,96 @@
+package com.polytechnique.fleetman.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.service.PositionService;
+import com.polytechnique.fleetman.service.PositionTickHub;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Suivi en direct par WebSocket (/ws/positions).
+ * Le client envoie son abonnement, qu'il peut remplacer à tout moment (déplacement de la carte) :
+ * {"vehicleIds":[1,2,3]}, {"userId":4} et/ou {"bbox":[minLongitude,minLatitude,maxLongitude,maxLatitude]}.
+ * Il reçoit un instantané des véhicules concernés, puis au plus une trame delta par top (voir {@link PositionTickHub}).
+ */
+@Slf4j
+@Component
+public class PositionWebSocketHandler extends TextWebSocketHandler {
+
+    @Data
+    @NoArgsConstructor
+    static class SubscriptionMessage {
+        private List<Long> vehicleIds;
+        private Long userId;
+        private List<Double> bbox;
+    }
+
+    private final PositionService positionService;
+    private final PositionTickHub positionTickHub;
+    private final ObjectMapper objectMapper;
+    private final int sendTimeLimitMs;
+    private final int bufferSizeLimit;
+
+    // sessions décorées : les envois du hub et les réponses d'erreur ne s'entremêlent pas
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    public PositionWebSocketHandler(PositionService positionService,
+                                    PositionTickHub positionTickHub,
+                                    ObjectMapper objectMapper,
+                                    @Value("${fleetman.position.websocket.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                                    @Value("${fleetman.position.websocket.buffer-size-limit:1048576}") int bufferSizeLimit) {
+        this.positionService = positionService;
+        this.positionTickHub = positionTickHub;
+        this.objectMapper = objectMapper;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, bufferSizeLimit);
+        sessions.put(session.getId(), decorated);
+        positionTickHub.register(decorated);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        WebSocketSession decorated = sessions.get(session.getId());
+        if (decorated == null) {
+            return;
+        }
+        try {
+            SubscriptionMessage subscription = objectMapper.readValue(message.getPayload(), SubscriptionMessage.class);
+            positionTickHub.subscribe(decorated, positionService.streamFilter(
+                    subscription.getVehicleIds(), subscription.getUserId(), subscription.getBbox()));
+        } catch (BadRequestException | IOException e) {
+            decorated.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of("error", e.getMessage()))));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        WebSocketSession decorated = sessions.remove(session.getId());
+        if (decorated != null) {
+            positionTickHub.unregister(decorated);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Erreur de transport sur la session WebSocket {} : {}", session.getId(), exception.getMessage());
+    }
+}
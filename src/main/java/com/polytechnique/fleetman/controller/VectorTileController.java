@@ -0,0 +1,104 @@
+package com.polytechnique.fleetman.controller;
+
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import com.polytechnique.fleetman.geometry.tile.Tiles;
+import com.polytechnique.fleetman.service.VectorTileService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/tiles")
+@RequiredArgsConstructor
+@Tag(name = "Tuiles", description = "API de tuiles vectorielles (Mapbox Vector Tile) pour l'affichage cartographique")
+public class VectorTileController {
+
+    private static final String MVT_MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+
+    private final VectorTileService vectorTileService;
+
+    @GetMapping(value = "/{layer}/{z}/{x}/{y}.mvt", produces = MVT_MEDIA_TYPE)
+    @Operation(
+            summary = "Obtenir une tuile vectorielle",
+            description = """
+            Retourne la tuile z/x/y (schéma XYZ, Web Mercator) d'une couche : `positions`, `histories`,
+            `recharges` ou `maintenances`. La couche MVT porte le même nom que la couche demandée.
+            **Filtres** : période (`from`, `to`) et propriétaire des véhicules (`userId`).
+            **Historiques** : servis au niveau de détail adapté au zoom.
+            **Positions** : servies à partir d'un zoom minimal (tuile vide en deçà).
+            Les tuiles sont mises en cache et invalidées dès que des données arrivent dans leur emprise et leur période.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Tuile trouvée",
+                    content = @Content(mediaType = MVT_MEDIA_TYPE)
+            ),
+            @ApiResponse(
+                    responseCode = "204",
+                    description = "Tuile vide",
+                    content = @Content
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Couche, tuile ou période invalide",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<byte[]> getTile(
+            @Parameter(description = "Couche", required = true, example = "positions")
+            @PathVariable String layer,
+            @Parameter(description = "Niveau de zoom (0 à " + Tiles.MAX_ZOOM + ")", required = true, example = "12")
+            @PathVariable int z,
+            @Parameter(description = "Colonne de la tuile", required = true, example = "2175")
+            @PathVariable int x,
+            @Parameter(description = "Ligne de la tuile", required = true, example = "1923")
+            @PathVariable int y,
+            @Parameter(
+                    description = "Début de la période (inclus), format ISO 8601",
+                    example = "2025-01-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(
+                    description = "Fin de la période (exclue), format ISO 8601",
+                    example = "2025-07-01T00:00:00"
+            )
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Ne garder que les véhicules de cet utilisateur", example = "1")
+            @RequestParam(required = false) Long userId) {
+        TileLayer tileLayer = TileLayer.fromName(layer);
+        if (tileLayer == null) {
+            throw new BadRequestException("Couche inconnue : " + layer);
+        }
+        if (!Tiles.isValid(z, x, y)) {
+            throw new BadRequestException("Tuile invalide : " + z + "/" + x + "/" + y);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("La date de début doit précéder la date de fin");
+        }
+
+        byte[] tile = vectorTileService.getTile(tileLayer, z, x, y, from, to, userId);
+        if (tile.length == 0) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MVT_MEDIA_TYPE))
+                .body(tile);
+    }
+}
@@ -1,8 +1,11 @@
 package com.polytechnique.fleetman.controller;
 
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import com.polytechnique.fleetman.dto.vehicle.NearbyVehicleDTO;
 import com.polytechnique.fleetman.dto.vehicle.VehicleCreateDTO;
 import com.polytechnique.fleetman.dto.vehicle.VehicleDTO;
 import com.polytechnique.fleetman.dto.vehicle.VehicleUpdateDTO;
+import com.polytechnique.fleetman.exception.BadRequestException;
 import com.polytechnique.fleetman.service.VehicleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -18,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -26,6 +30,10 @@ import java.util.List;
 @Tag(name = "Véhicules", description = "API de gestion des véhicules de la flotte")
 public class VehicleController {
 
+    private static final double MAX_NEAR_RADIUS_METERS = 100_000;
+    private static final int MAX_NEAR_RESULTS = 1000;
+    private static final int MAX_NEAREST_AVAILABLE = 100;
+
     private final VehicleService vehicleService;
 
     @PostMapping
@@ -187,6 +195,134 @@ public class VehicleController {
         return ResponseEntity.ok(vehicles);
     }
 
+    @GetMapping("/near")
+    @Operation(
+            summary = "Rechercher les véhicules proches d'un point",
+            description = """
+            Retourne les véhicules dont la dernière position est à moins de `radius` mètres du point,
+            du plus proche au plus éloigné.
+            **Performance** : servi par l'index spatial en mémoire des positions courantes, sans requête en base.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Véhicules proches récupérés avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = NearbyVehicleDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Coordonnées, rayon ou nombre de résultats invalides",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<List<NearbyVehicleDTO>> getVehiclesNear(
+            @Parameter(description = "Longitude du point", required = true, example = "11.5021")
+            @RequestParam double lon,
+            @Parameter(description = "Latitude du point", required = true, example = "3.8480")
+            @RequestParam double lat,
+            @Parameter(description = "Rayon de recherche en mètres (au plus " + (int) MAX_NEAR_RADIUS_METERS + ")", required = true, example = "2000")
+            @RequestParam double radius,
+            @Parameter(description = "Nombre maximal de véhicules retournés (au plus " + MAX_NEAR_RESULTS + ")", example = "100")
+            @RequestParam(defaultValue = "100") int limit) {
+        if (!(lon >= -180 && lon <= 180) || !(lat >= -90 && lat <= 90)) {
+            throw new BadRequestException("Coordonnées hors limites");
+        }
+        if (!(radius > 0 && radius <= MAX_NEAR_RADIUS_METERS)) {
+            throw new BadRequestException("Le rayon doit être compris entre 0 et " + (int) MAX_NEAR_RADIUS_METERS + " mètres");
+        }
+        if (limit < 1 || limit > MAX_NEAR_RESULTS) {
+            throw new BadRequestException("Entre 1 et " + MAX_NEAR_RESULTS + " véhicules peuvent être demandés");
+        }
+        return ResponseEntity.ok(vehicleService.getVehiclesNear(lon, lat, radius, limit));
+    }
+
+    @GetMapping("/nearest-available")
+    @Operation(
+            summary = "Rechercher les véhicules disponibles les plus proches d'un point",
+            description = """
+            Retourne les `count` véhicules les plus proches du point de prise en charge qui n'ont aucun trajet
+            en cours et, si `minFuel` est fourni, dont le niveau de carburant est au moins `minFuel`,
+            du plus proche au plus éloigné, dans la limite de `maxRadius` mètres.
+            **Performance** : les candidats viennent de l'index spatial en mémoire, par cercles de rayon croissant ;
+            la disponibilité n'est vérifiée en base que pour ces candidats.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Véhicules disponibles récupérés avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = NearbyVehicleDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Coordonnées, nombre de véhicules ou rayon invalides",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<List<NearbyVehicleDTO>> getNearestAvailableVehicles(
+            @Parameter(description = "Longitude du point de prise en charge", required = true, example = "11.5021")
+            @RequestParam double lon,
+            @Parameter(description = "Latitude du point de prise en charge", required = true, example = "3.8480")
+            @RequestParam double lat,
+            @Parameter(description = "Nombre de véhicules demandés (au plus " + MAX_NEAREST_AVAILABLE + ")", example = "5")
+            @RequestParam(defaultValue = "5") int count,
+            @Parameter(description = "Niveau de carburant minimal", example = "25.00")
+            @RequestParam(required = false) BigDecimal minFuel,
+            @Parameter(description = "Rayon maximal de recherche en mètres (au plus " + (int) MAX_NEAR_RADIUS_METERS + ")", example = "20000")
+            @RequestParam(defaultValue = "20000") double maxRadius) {
+        if (!(lon >= -180 && lon <= 180) || !(lat >= -90 && lat <= 90)) {
+            throw new BadRequestException("Coordonnées hors limites");
+        }
+        if (count < 1 || count > MAX_NEAREST_AVAILABLE) {
+            throw new BadRequestException("Entre 1 et " + MAX_NEAREST_AVAILABLE + " véhicules peuvent être demandés");
+        }
+        if (!(maxRadius > 0 && maxRadius <= MAX_NEAR_RADIUS_METERS)) {
+            throw new BadRequestException("Le rayon doit être compris entre 0 et " + (int) MAX_NEAR_RADIUS_METERS + " mètres");
+        }
+        return ResponseEntity.ok(vehicleService.getNearestAvailableVehicles(lon, lat, count, minFuel, maxRadius));
+    }
+
+    @GetMapping("/within")
+    @Operation(
+            summary = "Rechercher les véhicules dans une emprise",
+            description = """
+            Retourne l'état courant (dernière position, vitesse, cap) des véhicules situés dans l'emprise,
+            typiquement la vue affichée d'une carte.
+            **Performance** : servi par l'index spatial en mémoire des positions courantes, sans requête en base.
+            """
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Véhicules de l'emprise récupérés avec succès",
+                    content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = LatestPositionDTO.class))
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Emprise invalide",
+                    content = @Content
+            )
+    })
+    public ResponseEntity<List<LatestPositionDTO>> getVehiclesWithin(
+            @Parameter(
+                    description = "Emprise minLongitude,minLatitude,maxLongitude,maxLatitude",
+                    required = true,
+                    example = "11.45,3.80,11.60,3.92"
+            )
+            @RequestParam List<Double> bbox) {
+        return ResponseEntity.ok(vehicleService.getVehiclesWithin(bbox));
+    }
+
     @PutMapping("/{vehicleId}")
     @Operation(
             summary = "Mettre à jour un véhicule",
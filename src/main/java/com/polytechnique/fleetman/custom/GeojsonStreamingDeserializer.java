@@ -0,0 +1,213 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.LinearRing;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Désérialisation GeoJSON construite directement à partir des jetons du parseur : ni arbre JsonNode,
+ * ni chaîne intermédiaire, ni seconde analyse. Les géométries produites sont en WGS 84 (SRID 4326).
+ * Une entrée invalide (type inconnu ou inattendu, coordonnée manquante, hors bornes ou non numérique,
+ * anneau non fermé) est rejetée dès le jeton fautif.
+ */
+public class GeojsonStreamingDeserializer<T extends Geometry> extends JsonDeserializer<T> {
+
+    public static final int SRID = 4326;
+
+    // sans état : partagée par tous les désérialiseurs
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), SRID);
+
+    private final Class<T> type;
+
+    public GeojsonStreamingDeserializer(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Class<?> handledType() {
+        return type;
+    }
+
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartObjectToken()) {
+            throw JsonMappingException.from(p, "Géométrie GeoJSON attendue (objet)");
+        }
+        String geometryType = null;
+        Object coordinates = null;
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "type" -> {
+                    if (token != JsonToken.VALUE_STRING) {
+                        throw JsonMappingException.from(p, "Le champ type doit être une chaîne");
+                    }
+                    geometryType = p.getText();
+                    checkType(p, geometryType);
+                }
+                case "coordinates" -> {
+                    if (token != JsonToken.START_ARRAY) {
+                        throw JsonMappingException.from(p, "Le champ coordinates doit être un tableau");
+                    }
+                    coordinates = readCoordinates(p);
+                }
+                // crs, bbox, propriétés étrangères : ignorés
+                default -> p.skipChildren();
+            }
+        }
+        if (geometryType == null) {
+            throw JsonMappingException.from(p, "Champ type manquant");
+        }
+        if (coordinates == null) {
+            throw JsonMappingException.from(p, "Champ coordinates manquant");
+        }
+        try {
+            return type.cast(build(p, geometryType, coordinates));
+        } catch (IllegalArgumentException e) {
+            // anneau non fermé ou trop court, refusé par JTS
+            throw JsonMappingException.from(p, "Géométrie invalide : " + e.getMessage(), e);
+        }
+    }
+
+    private void checkType(JsonParser p, String geometryType) throws JsonMappingException {
+        Class<? extends Geometry> expected = switch (geometryType) {
+            case "Point" -> Point.class;
+            case "LineString" -> LineString.class;
+            case "Polygon" -> Polygon.class;
+            case "MultiPoint" -> MultiPoint.class;
+            case "MultiLineString" -> MultiLineString.class;
+            case "MultiPolygon" -> MultiPolygon.class;
+            default -> throw JsonMappingException.from(p, "Type de géométrie non supporté : " + geometryType);
+        };
+        if (!type.isAssignableFrom(expected)) {
+            throw JsonMappingException.from(p, "Géométrie de type " + type.getSimpleName() + " attendue, " + geometryType + " reçue");
+        }
+    }
+
+    /**
+     * Lit un tableau de coordonnées de profondeur quelconque (le type peut suivre les coordonnées) :
+     * une position donne une Coordinate, un tableau de tableaux une liste
+     */
+    private static Object readCoordinates(JsonParser p) throws IOException {
+        JsonToken token = p.nextToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return readPosition(p);
+        }
+        List<Object> items = new ArrayList<>();
+        for (; token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (token != JsonToken.START_ARRAY) {
+                throw JsonMappingException.from(p, "Tableau de coordonnées attendu");
+            }
+            items.add(readCoordinates(p));
+        }
+        return items;
+    }
+
+    // parseur positionné sur la longitude ; [longitude, latitude] ou [longitude, latitude, altitude]
+    private static Coordinate readPosition(JsonParser p) throws IOException {
+        double x = p.getDoubleValue();
+        double y = nextNumber(p);
+        double z = Double.NaN;
+        JsonToken token = p.nextToken();
+        if (token != JsonToken.END_ARRAY) {
+            z = number(p, token);
+            if (p.nextToken() != JsonToken.END_ARRAY) {
+                throw JsonMappingException.from(p, "Une position a au plus 3 coordonnées");
+            }
+        }
+        if (!(x >= -180 && x <= 180) || !(y >= -90 && y <= 90)) {
+            throw JsonMappingException.from(p, "Position hors bornes WGS 84 : [" + x + ", " + y + "]");
+        }
+        return Double.isNaN(z) ? new Coordinate(x, y) : new Coordinate(x, y, z);
+    }
+
+    private static double nextNumber(JsonParser p) throws IOException {
+        return number(p, p.nextToken());
+    }
+
+    private static double number(JsonParser p, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw JsonMappingException.from(p, "Coordonnée numérique attendue");
+        }
+        return p.getDoubleValue();
+    }
+
+    private static Geometry build(JsonParser p, String geometryType, Object coordinates) throws JsonMappingException {
+        return switch (geometryType) {
+            case "Point" -> GEOMETRY_FACTORY.createPoint(position(p, coordinates));
+            case "LineString" -> GEOMETRY_FACTORY.createLineString(line(p, coordinates));
+            case "Polygon" -> polygon(p, coordinates);
+            case "MultiPoint" -> GEOMETRY_FACTORY.createMultiPointFromCoords(line(p, coordinates));
+            case "MultiLineString" -> {
+                List<?> lines = list(p, coordinates);
+                LineString[] lineStrings = new LineString[lines.size()];
+                for (int i = 0; i < lineStrings.length; i++) {
+                    lineStrings[i] = GEOMETRY_FACTORY.createLineString(line(p, lines.get(i)));
+                }
+                yield GEOMETRY_FACTORY.createMultiLineString(lineStrings);
+            }
+            case "MultiPolygon" -> {
+                List<?> polygons = list(p, coordinates);
+                Polygon[] result = new Polygon[polygons.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = polygon(p, polygons.get(i));
+                }
+                yield GEOMETRY_FACTORY.createMultiPolygon(result);
+            }
+            default -> throw JsonMappingException.from(p, "Type de géométrie non supporté : " + geometryType);
+        };
+    }
+
+    private static Polygon polygon(JsonParser p, Object coordinates) throws JsonMappingException {
+        List<?> rings = list(p, coordinates);
+        if (rings.isEmpty()) {
+            return GEOMETRY_FACTORY.createPolygon();
+        }
+        LinearRing shell = GEOMETRY_FACTORY.createLinearRing(line(p, rings.get(0)));
+        LinearRing[] holes = new LinearRing[rings.size() - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = GEOMETRY_FACTORY.createLinearRing(line(p, rings.get(i + 1)));
+        }
+        return GEOMETRY_FACTORY.createPolygon(shell, holes);
+    }
+
+    private static Coordinate[] line(JsonParser p, Object coordinates) throws JsonMappingException {
+        List<?> positions = list(p, coordinates);
+        Coordinate[] line = new Coordinate[positions.size()];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = position(p, positions.get(i));
+        }
+        return line;
+    }
+
+    private static Coordinate position(JsonParser p, Object coordinates) throws JsonMappingException {
+        if (coordinates instanceof Coordinate coordinate) {
+            return coordinate;
+        }
+        throw JsonMappingException.from(p, "Position attendue");
+    }
+
+    private static List<?> list(JsonParser p, Object coordinates) throws JsonMappingException {
+        if (coordinates instanceof List<?> list) {
+            return list;
+        }
+        throw JsonMappingException.from(p, "Tableau de positions attendu");
+    }
+}
@@ -0,0 +1,123 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.IOException;
+
+/**
+ * Sérialisation GeoJSON d'une géométrie JTS écrite directement dans le JsonGenerator :
+ * les coordonnées sont lues dans les CoordinateSequence, sans objet intermédiaire ni chaîne complète.
+ * Les coordonnées sont arrondies à `precision` décimales (7 ≈ 1 cm) ; une précision négative les écrit telles quelles.
+ */
+public class GeojsonStreamingSerializer extends JsonSerializer<Geometry> {
+
+    public static final int DEFAULT_PRECISION = 7;
+
+    private final double scale;
+
+    public GeojsonStreamingSerializer() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public GeojsonStreamingSerializer(int precision) {
+        this.scale = precision < 0 ? 0 : Math.pow(10, precision);
+    }
+
+    @Override
+    public Class<Geometry> handledType() {
+        return Geometry.class;
+    }
+
+    @Override
+    public void serialize(Geometry geometry, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        writeGeometry(geometry, gen);
+    }
+
+    private void writeGeometry(Geometry geometry, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", geometry.getGeometryType());
+        if (geometry instanceof GeometryCollection collection
+                && !(geometry instanceof MultiPoint || geometry instanceof MultiLineString || geometry instanceof MultiPolygon)) {
+            gen.writeArrayFieldStart("geometries");
+            for (int i = 0; i < collection.getNumGeometries(); i++) {
+                writeGeometry(collection.getGeometryN(i), gen);
+            }
+            gen.writeEndArray();
+        } else {
+            gen.writeFieldName("coordinates");
+            writeCoordinates(geometry, gen);
+        }
+        gen.writeEndObject();
+    }
+
+    private void writeCoordinates(Geometry geometry, JsonGenerator gen) throws IOException {
+        if (geometry instanceof Point point) {
+            if (point.isEmpty()) {
+                gen.writeStartArray();
+                gen.writeEndArray();
+            } else {
+                writePosition(point.getCoordinateSequence(), 0, gen);
+            }
+        } else if (geometry instanceof LineString lineString) {
+            writeSequence(lineString.getCoordinateSequence(), gen);
+        } else if (geometry instanceof Polygon polygon) {
+            writePolygon(polygon, gen);
+        } else if (geometry instanceof MultiPoint || geometry instanceof MultiLineString || geometry instanceof MultiPolygon) {
+            gen.writeStartArray();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                writeCoordinates(geometry.getGeometryN(i), gen);
+            }
+            gen.writeEndArray();
+        } else {
+            throw new IllegalArgumentException("Type de géométrie non supporté : " + geometry.getGeometryType());
+        }
+    }
+
+    private void writePolygon(Polygon polygon, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        if (!polygon.isEmpty()) {
+            writeSequence(polygon.getExteriorRing().getCoordinateSequence(), gen);
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                writeSequence(polygon.getInteriorRingN(i).getCoordinateSequence(), gen);
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    private void writeSequence(CoordinateSequence sequence, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        for (int i = 0; i < sequence.size(); i++) {
+            writePosition(sequence, i, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    // [longitude, latitude] ou [longitude, latitude, altitude] si la séquence porte une altitude renseignée
+    private void writePosition(CoordinateSequence sequence, int index, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        gen.writeNumber(round(sequence.getX(index)));
+        gen.writeNumber(round(sequence.getY(index)));
+        if (sequence.hasZ()) {
+            double z = sequence.getZ(index);
+            if (!Double.isNaN(z)) {
+                gen.writeNumber(round(z));
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    private double round(double value) {
+        return scale == 0 ? value : Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,92 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Lecture en flux d'un corps {"coordinates": [[longitude, latitude], ...]} directement dans un tableau
+ * double[] compact (x0, y0, x1, y1, ...), sans Double ni liste par position.
+ * Chaque position est vérifiée à la lecture (2 ou 3 nombres, altitude ignorée ; bornes WGS 84),
+ * et le nombre de sommets est plafonné : la mémoire utilisée est bornée par maxVertices.
+ */
+public final class PackedCoordinateReader {
+
+    private static final int INITIAL_VERTICES = 1024;
+
+    private PackedCoordinateReader() {
+    }
+
+    public static CoordinateSequence readCoordinates(JsonParser p, int maxVertices) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new BadRequestException("Objet JSON attendu");
+        }
+        CoordinateSequence coordinates = null;
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            JsonToken token = p.nextToken();
+            if ("coordinates".equals(field)) {
+                if (token != JsonToken.START_ARRAY) {
+                    throw new BadRequestException("Le champ coordinates doit être un tableau");
+                }
+                coordinates = readArray(p, maxVertices);
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (coordinates == null) {
+            throw new BadRequestException("La liste des coordonnées est obligatoire");
+        }
+        return coordinates;
+    }
+
+    private static CoordinateSequence readArray(JsonParser p, int maxVertices) throws IOException {
+        double[] packed = new double[2 * Math.min(INITIAL_VERTICES, maxVertices)];
+        int vertices = 0;
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Position " + vertices + " : tableau [longitude, latitude] attendu");
+            }
+            if (vertices == maxVertices) {
+                throw new BadRequestException("Au plus " + maxVertices + " coordonnées sont acceptées");
+            }
+            double x = number(p, vertices);
+            double y = number(p, vertices);
+            token = p.nextToken();
+            if (token != JsonToken.END_ARRAY) {
+                // altitude éventuelle, ignorée
+                number(p, token, vertices);
+                if (p.nextToken() != JsonToken.END_ARRAY) {
+                    throw new BadRequestException("Position " + vertices + " : au plus 3 nombres attendus");
+                }
+            }
+            if (!(x >= -180 && x <= 180) || !(y >= -90 && y <= 90)) {
+                throw new BadRequestException("Position " + vertices + " hors bornes : [" + x + ", " + y + "]");
+            }
+            if (2 * vertices == packed.length) {
+                packed = Arrays.copyOf(packed, Math.min(2 * packed.length, 2 * maxVertices));
+            }
+            packed[2 * vertices] = x;
+            packed[2 * vertices + 1] = y;
+            vertices++;
+        }
+        // tableau ajusté : la séquence prend sa longueur pour nombre de sommets
+        return new PackedCoordinateSequence.Double(
+                packed.length == 2 * vertices ? packed : Arrays.copyOf(packed, 2 * vertices), 2, 0);
+    }
+
+    private static double number(JsonParser p, int vertex) throws IOException {
+        return number(p, p.nextToken(), vertex);
+    }
+
+    private static double number(JsonParser p, JsonToken token, int vertex) throws IOException {
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw new BadRequestException("Position " + vertex + " : coordonnée numérique attendue");
+        }
+        return p.getDoubleValue();
+    }
+}
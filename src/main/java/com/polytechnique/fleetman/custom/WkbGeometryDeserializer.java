@@ -0,0 +1,62 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+
+import java.io.IOException;
+
+/**
+ * Désérialisation binaire (CBOR, Smile) d'une géométrie reçue en WKB ; la géométrie produite est en SRID 4326.
+ * Comme pour le GeoJSON, toute entrée invalide (WKB mal formé ou tronqué, type inattendu, coordonnée hors bornes
+ * WGS 84) est rejetée en erreur de mapping.
+ */
+public class WkbGeometryDeserializer<T extends Geometry> extends JsonDeserializer<T> {
+
+    private static final GeometryFactory GEOMETRY_FACTORY =
+            new GeometryFactory(new PrecisionModel(), GeojsonStreamingDeserializer.SRID);
+
+    private final Class<T> type;
+
+    public WkbGeometryDeserializer(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public Class<?> handledType() {
+        return type;
+    }
+
+    @Override
+    public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() != JsonToken.VALUE_EMBEDDED_OBJECT && p.currentToken() != JsonToken.VALUE_STRING) {
+            throw JsonMappingException.from(p, "Géométrie WKB attendue (octets)");
+        }
+        Geometry geometry;
+        try {
+            // WKBReader garde un état de lecture : une instance par valeur
+            geometry = new WKBReader(GEOMETRY_FACTORY).read(p.getBinaryValue());
+        } catch (ParseException | RuntimeException e) {
+            // WKBReader peut aussi échouer hors ParseException (tableau tronqué, anneau non fermé, etc.)
+            throw JsonMappingException.from(p, "Géométrie WKB invalide : " + e.getMessage(), e);
+        }
+        if (!type.isInstance(geometry)) {
+            throw JsonMappingException.from(p, "Géométrie de type " + type.getSimpleName() + " attendue, "
+                    + geometry.getGeometryType() + " reçue");
+        }
+        for (Coordinate coordinate : geometry.getCoordinates()) {
+            if (!(coordinate.x >= -180 && coordinate.x <= 180) || !(coordinate.y >= -90 && coordinate.y <= 90)) {
+                throw JsonMappingException.from(p, "Position hors bornes WGS 84 : [" + coordinate.x + ", " + coordinate.y + "]");
+            }
+        }
+        return type.cast(geometry);
+    }
+}
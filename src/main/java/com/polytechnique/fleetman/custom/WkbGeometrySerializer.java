@@ -0,0 +1,28 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ByteOrderValues;
+import org.locationtech.jts.io.WKBWriter;
+
+import java.io.IOException;
+
+/**
+ * Sérialisation binaire (CBOR, Smile) d'une géométrie : WKB 2D petit-boutiste écrit comme une chaîne d'octets,
+ * au lieu de tableaux de coordonnées imbriqués. Le SRID n'est pas transmis : il vaut toujours 4326.
+ */
+public class WkbGeometrySerializer extends JsonSerializer<Geometry> {
+
+    @Override
+    public Class<Geometry> handledType() {
+        return Geometry.class;
+    }
+
+    @Override
+    public void serialize(Geometry geometry, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        // WKBWriter garde un tampon interne : une instance par valeur
+        gen.writeBinary(new WKBWriter(2, ByteOrderValues.LITTLE_ENDIAN).write(geometry));
+    }
+}
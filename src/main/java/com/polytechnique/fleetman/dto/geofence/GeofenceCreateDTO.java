@@ -0,0 +1,52 @@
+package com.polytechnique.fleetman.dto.geofence;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.locationtech.jts.geom.Polygon;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO pour la création d'une zone géographique et de ses règles d'alerte")
+public class GeofenceCreateDTO {
+
+    @NotBlank(message = "Le nom de la zone est obligatoire")
+    @Size(max = 100)
+    @Schema(
+            description = "Nom de la zone",
+            example = "Dépôt central",
+            requiredMode = Schema.RequiredMode.REQUIRED,
+            maxLength = 100
+    )
+    private String geofenceName;
+
+    @NotNull(message = "Le polygone de la zone est obligatoire")
+    @Schema(
+            description = "Polygone de la zone (WGS 84)",
+            example = "{\"type\": \"Polygon\", \"coordinates\": [[[11.50, 3.84], [11.52, 3.84], [11.52, 3.86], [11.50, 3.86], [11.50, 3.84]]]}",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    private Polygon geofenceArea;
+
+    @NotNull(message = "L'ID utilisateur est obligatoire")
+    @Schema(
+            description = "ID de l'utilisateur propriétaire de la zone, destinataire des notifications",
+            example = "1",
+            requiredMode = Schema.RequiredMode.REQUIRED
+    )
+    private Long userId;
+
+    @Valid
+    @NotEmpty(message = "Au moins une règle est obligatoire")
+    @Schema(description = "Règles d'alerte de la zone", requiredMode = Schema.RequiredMode.REQUIRED)
+    private List<GeofenceRuleDTO> rules;
+}
@@ -0,0 +1,41 @@
+package com.polytechnique.fleetman.dto.geofence;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.locationtech.jts.geom.Polygon;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO représentant une zone géographique et ses règles d'alerte")
+public class GeofenceDTO {
+
+    @Schema(description = "ID unique de la zone", example = "1")
+    private Long geofenceId;
+
+    @Schema(description = "Nom de la zone", example = "Dépôt central")
+    private String geofenceName;
+
+    @Schema(
+            description = "Polygone de la zone",
+            example = "{\"type\": \"Polygon\", \"coordinates\": [[[11.50, 3.84], [11.52, 3.84], [11.52, 3.86], [11.50, 3.86], [11.50, 3.84]]]}"
+    )
+    private Polygon geofenceArea;
+
+    @Schema(description = "ID de l'utilisateur propriétaire", example = "1")
+    private Long userId;
+
+    @Schema(description = "Règles d'alerte de la zone")
+    private List<GeofenceRuleDTO> rules;
+
+    @Schema(description = "Date de création", example = "2024-01-15T10:30:00")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "Date de dernière mise à jour", example = "2024-01-15T10:30:00")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,48 @@
+package com.polytechnique.fleetman.dto.geofence;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Règle d'alerte d'une zone : véhicules concernés et transitions signalées")
+public class GeofenceRuleDTO {
+
+    @Schema(description = "ID unique de la règle (ignoré à la création)", example = "1", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long geofenceRuleId;
+
+    @Schema(
+            description = "ID du véhicule concerné ; absent avec vehicleType : tous les véhicules du propriétaire de la zone",
+            example = "1",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    private Long vehicleId;
+
+    @Size(max = 50)
+    @Schema(
+            description = "Type de véhicule concerné (ignoré si vehicleId est fourni)",
+            example = "Camion",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED,
+            maxLength = 50
+    )
+    private String vehicleType;
+
+    @Schema(description = "Signaler l'entrée dans la zone", example = "true", defaultValue = "true")
+    private Boolean onEnter = true;
+
+    @Schema(description = "Signaler la sortie de la zone", example = "true", defaultValue = "true")
+    private Boolean onExit = true;
+
+    @Min(value = 1, message = "La durée de stationnement doit être >= 1 minute")
+    @Schema(
+            description = "Durée de présence dans la zone, en minutes, au-delà de laquelle un stationnement est signalé",
+            example = "30",
+            requiredMode = Schema.RequiredMode.NOT_REQUIRED
+    )
+    private Integer dwellMinutes;
+}
@@ -0,0 +1,40 @@
+package com.polytechnique.fleetman.dto.position;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.locationtech.jts.geom.Point;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO représentant l'état courant d'un véhicule : dernière position, vitesse et cap")
+public class LatestPositionDTO {
+
+    @Schema(description = "ID du véhicule", example = "1")
+    private Long vehicleId;
+
+    @Schema(description = "Nom du véhicule", example = "Renault Trafic")
+    private String vehicleName;
+
+    @Schema(description = "ID de l'enregistrement de position (absent tant que l'écriture différée n'a pas eu lieu)", example = "1")
+    private Long positionId;
+
+    @Schema(
+            description = "Coordonnées GPS de la dernière position",
+            example = "{\"type\": \"Point\", \"coordinates\": [2.3522, 48.8566]}"
+    )
+    private Point coordinate;
+
+    @Schema(description = "Date et heure de la dernière position", example = "2024-01-15T14:30:00")
+    private LocalDateTime positionDateTime;
+
+    @Schema(description = "Vitesse estimée entre les deux dernières positions, en km/h (absente avec une seule position)", example = "42.5")
+    private Double speedKmh;
+
+    @Schema(description = "Cap estimé entre les deux dernières positions, en degrés depuis le nord (0 à 360)", example = "87.3")
+    private Double heading;
+}
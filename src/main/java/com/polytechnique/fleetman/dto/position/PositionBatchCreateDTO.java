@@ -0,0 +1,28 @@
+package com.polytechnique.fleetman.dto.position;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO pour l'enregistrement groupé de positions GPS (rafale d'un ou plusieurs traceurs)")
+public class PositionBatchCreateDTO {
+
+    @NotEmpty(message = "La liste des positions est obligatoire")
+    @Size(max = 1000, message = "Un lot ne doit pas dépasser 1000 positions")
+    @ArraySchema(
+            arraySchema = @Schema(description = "Positions à enregistrer, dans l'ordre de réception par véhicule"),
+            schema = @Schema(implementation = PositionCreateDTO.class),
+            maxItems = 1000
+    )
+    private List<@Valid PositionCreateDTO> positions;
+}
@@ -0,0 +1,31 @@
+package com.polytechnique.fleetman.dto.position;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Résultat du traitement d'une position d'un lot")
+public class PositionBatchItemDTO {
+
+    @Schema(description = "Rang de la position dans le lot reçu", example = "0")
+    private int index;
+
+    @Schema(description = "ID du véhicule", example = "1")
+    private Long vehicleId;
+
+    @Schema(description = "Statut de la position", example = "ACCEPTED")
+    private PositionBatchStatus status;
+
+    @Schema(
+            description = "ID de la position enregistrée, ou de la dernière position retenue si la position a été écartée",
+            example = "42"
+    )
+    private Long positionId;
+
+    @Schema(description = "Motif du refus", example = "Véhicule non trouvé")
+    private String message;
+}
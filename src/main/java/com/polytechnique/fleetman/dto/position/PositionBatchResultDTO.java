@@ -0,0 +1,27 @@
+package com.polytechnique.fleetman.dto.position;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Résultat de l'enregistrement groupé de positions GPS")
+public class PositionBatchResultDTO {
+
+    @Schema(description = "Nombre de positions enregistrées", example = "120")
+    private int accepted;
+
+    @Schema(description = "Nombre de positions écartées par le filtre d'alignement", example = "370")
+    private int skipped;
+
+    @Schema(description = "Nombre de positions refusées", example = "0")
+    private int rejected;
+
+    @Schema(description = "Statut de chaque position, dans l'ordre du lot")
+    private List<PositionBatchItemDTO> items;
+}
@@ -0,0 +1,10 @@
+package com.polytechnique.fleetman.dto.position;
+
+public enum PositionBatchStatus {
+    // position enregistrée
+    ACCEPTED,
+    // position écartée par le filtre (trop proche ou alignée avec les deux dernières)
+    SKIPPED,
+    // position refusée (véhicule inconnu)
+    REJECTED
+}
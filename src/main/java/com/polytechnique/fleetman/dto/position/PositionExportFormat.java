@@ -0,0 +1,28 @@
+package com.polytechnique.fleetman.dto.position;
+
+public enum PositionExportFormat {
+    // une position JSON par ligne (application/x-ndjson)
+    NDJSON("application/x-ndjson", "ndjson"),
+    // FeatureCollection GeoJSON de points horodatés (application/geo+json)
+    GEOJSON("application/geo+json", "geojson"),
+    // polyligne encodée (algorithme Google) de la trace, sans horodatage (text/plain)
+    POLYLINE("text/plain", "polyline"),
+    // triplets (longitude, latitude, secondes epoch) en varint zig-zag des écarts successifs, en base64 (text/plain)
+    DELTA("text/plain", "delta");
+
+    private final String mediaType;
+    private final String extension;
+
+    PositionExportFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,25 @@
+package com.polytechnique.fleetman.dto.position;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Bilan d'un import massif de positions GPS")
+public class PositionImportResultDTO {
+
+    @Schema(description = "Nombre de positions importées", example = "250000")
+    private long rows;
+
+    @Schema(description = "Durée de l'écriture en millisecondes", example = "1800")
+    private long elapsedMillis;
+
+    @Schema(description = "Débit d'écriture en lignes par seconde", example = "138888.9")
+    private double rowsPerSecond;
+
+    @Schema(description = "Méthode d'écriture utilisée (COPY, ou INSERT en repli)", example = "COPY")
+    private String method;
+}
@@ -0,0 +1,24 @@
+package com.polytechnique.fleetman.dto.position;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO représentant une page de positions, dans l'ordre chronologique")
+public class PositionPageDTO {
+
+    @Schema(description = "Positions de la page")
+    private List<PositionDTO> positions;
+
+    @Schema(
+            description = "Curseur de la page suivante, à passer dans le paramètre after ; absent sur la dernière page",
+            example = "MjAyNS0wMS0xNVQxNDozMDowMF80Mg"
+    )
+    private String nextCursor;
+}
@@ -0,0 +1,22 @@
+package com.polytechnique.fleetman.dto.positionhistory;
+
+import com.polytechnique.fleetman.geometry.encoding.LineEncoding;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EncodedPositionHistoryDTO {
+    private Long positionHistoryId;
+    // ligne encodée (POLYLINE ou DELTA) à `precision` décimales
+    private String summaryCoordinate;
+    private LineEncoding encoding;
+    private Integer precision;
+    private LocalDateTime positionDateTime;
+    private Long vehicleId;
+    private String vehicleName;
+}
@@ -0,0 +1,23 @@
+package com.polytechnique.fleetman.dto.positionhistory;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.locationtech.jts.geom.Geometry;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PositionHistoryLodDTO {
+    private Long positionHistoryId;
+    // ligne simplifiée, multi-ligne si le découpage à l'emprise la coupe en plusieurs morceaux
+    private Geometry summaryCoordinate;
+    // niveau de détail servi (0 : ligne d'origine) et tolérance de simplification correspondante
+    private Integer level;
+    private Double toleranceMeters;
+    private LocalDateTime positionDateTime;
+    private Long vehicleId;
+    private String vehicleName;
+}
@@ -0,0 +1,34 @@
+package com.polytechnique.fleetman.dto.vehicle;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.locationtech.jts.geom.Point;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "DTO représentant un véhicule trouvé par une recherche de proximité")
+public class NearbyVehicleDTO {
+
+    @Schema(description = "ID du véhicule", example = "1")
+    private Long vehicleId;
+
+    @Schema(description = "Nom du véhicule", example = "Renault Trafic")
+    private String vehicleName;
+
+    @Schema(
+            description = "Coordonnées GPS de la dernière position",
+            example = "{\"type\": \"Point\", \"coordinates\": [2.3522, 48.8566]}"
+    )
+    private Point coordinate;
+
+    @Schema(description = "Date et heure de la dernière position", example = "2024-01-15T14:30:00")
+    private LocalDateTime positionDateTime;
+
+    @Schema(description = "Distance au point de recherche, en mètres", example = "850.4")
+    private Double distanceMeters;
+}
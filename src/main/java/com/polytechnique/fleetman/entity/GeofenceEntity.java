@@ -0,0 +1,47 @@
+package com.polytechnique.fleetman.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.locationtech.jts.geom.Polygon;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "geofence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeofenceEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long geofenceId;
+
+    @Column(nullable = false, length = 100)
+    private String geofenceName;
+
+    @Column(nullable = false)
+    private Polygon geofenceArea;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private UserEntity user;
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Relations
+    @OneToMany(mappedBy = "geofence", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<GeofenceRuleEntity> rules = new ArrayList<>();
+}
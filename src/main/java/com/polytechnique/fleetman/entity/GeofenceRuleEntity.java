@@ -0,0 +1,43 @@
+package com.polytechnique.fleetman.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Entity
+@Table(name = "geofence_rule")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeofenceRuleEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long geofenceRuleId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "geofence_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private GeofenceEntity geofence;
+
+    // véhicule concerné ; absent : règle par type de véhicule, ou pour tous les véhicules du propriétaire
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehicle_id")
+    private VehicleEntity vehicle;
+
+    @Column(length = 50)
+    private String vehicleType;
+
+    @Column(nullable = false)
+    private Boolean onEnter = true;
+
+    @Column(nullable = false)
+    private Boolean onExit = true;
+
+    @Column
+    private Integer dwellMinutes;
+}
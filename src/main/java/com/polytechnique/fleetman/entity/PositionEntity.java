@@ -15,8 +15,10 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class PositionEntity {
 
+    // Séquence avec pré-allocation (et non IDENTITY) pour permettre le regroupement des INSERT par Hibernate
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "position_seq")
+    @SequenceGenerator(name = "position_seq", sequenceName = "position_position_id_seq", allocationSize = 50)
     private Long positionId;
 
     @Column(nullable = false)
@@ -0,0 +1,7 @@
+package com.polytechnique.fleetman.exception;
+
+public class IngestQueueFullException extends RuntimeException {
+    public IngestQueueFullException(String message) {
+        super(message);
+    }
+}
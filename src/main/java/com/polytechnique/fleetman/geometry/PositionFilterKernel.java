@@ -0,0 +1,57 @@
+package com.polytechnique.fleetman.geometry;
+
+/**
+ * Version primitive (sans allocation) des tests géométriques du filtre de positions.
+ * Les coordonnées sont en degrés WGS84 (x = longitude, y = latitude), comme les seuils.
+ *
+ * Elle rend les mêmes décisions que l'implémentation JTS de {@code PositionService} :
+ * l'enveloppe convexe de deux disques de rayon INCERTITUDE centrés sur A et B intersecte
+ * le disque centré sur C si et seulement si C est à moins de 2 * INCERTITUDE du segment [AB].
+ */
+public final class PositionFilterKernel {
+
+    public static final double DISTANCE_THRESHOLD = 0.00009; // 10 mètres
+    public static final double INCERTITUDE = 0.00009; // ±10 mètres
+
+    private static final double DISTANCE_THRESHOLD_CARRE = DISTANCE_THRESHOLD * DISTANCE_THRESHOLD;
+    private static final double LARGEUR_COULOIR_CARRE = (2.0 * INCERTITUDE) * (2.0 * INCERTITUDE);
+
+    private PositionFilterKernel() {
+    }
+
+    // vrai si les points (ax, ay) et (bx, by) sont distants de moins de DISTANCE_THRESHOLD
+    public static boolean sontProches(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        return dx * dx + dy * dy <= DISTANCE_THRESHOLD_CARRE;
+    }
+
+    // vrai si C se trouve dans le couloir d'incertitude du segment [AB] (A, B et C presque alignés)
+    public static boolean existeDroite(double ax, double ay, double bx, double by, double cx, double cy) {
+        return distanceSegmentCarre(ax, ay, bx, by, cx, cy) <= LARGEUR_COULOIR_CARRE;
+    }
+
+    // carré de la distance entre le point C et le segment [AB]
+    public static double distanceSegmentCarre(double ax, double ay, double bx, double by, double cx, double cy) {
+        double abx = bx - ax;
+        double aby = by - ay;
+        double acx = cx - ax;
+        double acy = cy - ay;
+
+        double longueurCarre = abx * abx + aby * aby;
+        double t = 0.0;
+        if (longueurCarre > 0.0) {
+            // projection de C sur la droite (AB), bornée au segment
+            t = (acx * abx + acy * aby) / longueurCarre;
+            if (t < 0.0) {
+                t = 0.0;
+            } else if (t > 1.0) {
+                t = 1.0;
+            }
+        }
+
+        double dx = acx - t * abx;
+        double dy = acy - t * aby;
+        return dx * dx + dy * dy;
+    }
+}
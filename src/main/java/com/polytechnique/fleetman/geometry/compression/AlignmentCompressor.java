@@ -0,0 +1,31 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import com.polytechnique.fleetman.geometry.PositionFilterKernel;
+
+import java.util.List;
+
+/**
+ * Filtre historique d'alignement : la position est écartée si elle est trop proche de la dernière
+ * enregistrée, ou dans le couloir d'incertitude du segment formé par les deux dernières
+ */
+public final class AlignmentCompressor implements TrajectoryCompressor {
+
+    @Override
+    public CompressionDecision decide(TrackPoint[] stored, List<TrackPoint> skipped, TrackPoint current) {
+        // Si moins de 2 positions, enregistrer directement
+        if (stored.length < 2) {
+            return CompressionDecision.KEEP;
+        }
+
+        TrackPoint b = stored[0]; // Dernière
+        if (PositionFilterKernel.sontProches(b.x(), b.y(), current.x(), current.y())) {
+            return CompressionDecision.SKIP;
+        }
+
+        TrackPoint a = stored[1]; // Avant-dernière
+        if (PositionFilterKernel.existeDroite(a.x(), a.y(), b.x(), b.y(), current.x(), current.y())) {
+            return CompressionDecision.SKIP;
+        }
+        return CompressionDecision.KEEP;
+    }
+}
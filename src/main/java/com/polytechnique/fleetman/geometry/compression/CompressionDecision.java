@@ -0,0 +1,13 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+/**
+ * Sort d'une nouvelle position proposée au compresseur
+ */
+public enum CompressionDecision {
+    // la position est écartée : elle est reconstruite à moins de l'erreur tolérée
+    SKIP,
+    // la position est enregistrée
+    KEEP,
+    // la dernière position écartée est enregistrée, puis la position courante
+    KEEP_WITH_PREVIOUS
+}
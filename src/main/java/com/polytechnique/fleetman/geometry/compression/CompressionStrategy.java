@@ -0,0 +1,13 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+/**
+ * Stratégies de compression de trajectoire disponibles à l'ingestion
+ */
+public enum CompressionStrategy {
+    // test historique : position trop proche de la dernière ou alignée avec les deux dernières
+    ALIGNEMENT,
+    // fenêtre glissante (opening window) : toutes les positions écartées restent à moins de l'erreur tolérée du segment enregistré
+    OPENING_WINDOW,
+    // estime la position par extrapolation de la vitesse entre les deux dernières positions enregistrées
+    DEAD_RECKONING
+}
@@ -0,0 +1,44 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Estime (dead reckoning) : la position attendue est extrapolée à partir de la vitesse entre
+ * les deux dernières positions enregistrées ; la nouvelle position est écartée si elle en est
+ * à moins de maxErrorMeters.
+ */
+public final class DeadReckoningCompressor implements TrajectoryCompressor {
+
+    private final double maxErrorMeters;
+
+    public DeadReckoningCompressor(double maxErrorMeters) {
+        this.maxErrorMeters = maxErrorMeters;
+    }
+
+    @Override
+    public CompressionDecision decide(TrackPoint[] stored, List<TrackPoint> skipped, TrackPoint current) {
+        if (stored.length == 0) {
+            return CompressionDecision.KEEP;
+        }
+
+        TrackPoint b = stored[0];
+        double predictedX = b.x();
+        double predictedY = b.y();
+        if (stored.length > 1) {
+            TrackPoint a = stored[1];
+            long intervalle = Duration.between(a.time(), b.time()).toMillis();
+            if (intervalle > 0) {
+                double facteur = (double) Duration.between(b.time(), current.time()).toMillis() / intervalle;
+                predictedX += (b.x() - a.x()) * facteur;
+                predictedY += (b.y() - a.y()) * facteur;
+            }
+        }
+
+        double erreurCarre = Meters.distanceCarre(
+                predictedX, predictedY, current.x(), current.y());
+        return erreurCarre <= maxErrorMeters * maxErrorMeters
+                ? CompressionDecision.SKIP
+                : CompressionDecision.KEEP;
+    }
+}
@@ -0,0 +1,30 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import com.polytechnique.fleetman.geometry.PositionFilterKernel;
+
+/**
+ * Distances en mètres par projection équirectangulaire locale (suffisante à l'échelle de quelques kilomètres)
+ */
+final class Meters {
+
+    static final double METRES_PAR_DEGRE = 111_320.0;
+
+    private Meters() {
+    }
+
+    // carré de la distance en mètres entre le point C et le segment [AB]
+    static double distanceSegmentCarre(double ax, double ay, double bx, double by, double cx, double cy) {
+        double kx = METRES_PAR_DEGRE * Math.cos(Math.toRadians(ay));
+        return PositionFilterKernel.distanceSegmentCarre(
+                ax * kx, ay * METRES_PAR_DEGRE,
+                bx * kx, by * METRES_PAR_DEGRE,
+                cx * kx, cy * METRES_PAR_DEGRE);
+    }
+
+    // carré de la distance en mètres entre A et B
+    static double distanceCarre(double ax, double ay, double bx, double by) {
+        double dx = (bx - ax) * METRES_PAR_DEGRE * Math.cos(Math.toRadians(ay));
+        double dy = (by - ay) * METRES_PAR_DEGRE;
+        return dx * dx + dy * dy;
+    }
+}
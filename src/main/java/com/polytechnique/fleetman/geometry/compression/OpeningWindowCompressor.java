@@ -0,0 +1,49 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import java.util.List;
+
+/**
+ * Douglas-Peucker à fenêtre glissante (opening window).
+ * La fenêtre s'ouvre sur la dernière position enregistrée (l'ancre) : une nouvelle position est écartée
+ * tant que toutes les positions écartées depuis l'ancre restent à moins de maxErrorMeters du segment
+ * [ancre, position]. Quand ce n'est plus le cas, la dernière position écartée (qui respectait encore
+ * la tolérance) est enregistrée, puis la position courante, afin que la donnée la plus récente soit en base.
+ */
+public final class OpeningWindowCompressor implements TrajectoryCompressor {
+
+    private final double maxErrorMeters;
+    private final int maxWindowSize;
+
+    public OpeningWindowCompressor(double maxErrorMeters, int maxWindowSize) {
+        this.maxErrorMeters = maxErrorMeters;
+        this.maxWindowSize = Math.max(1, maxWindowSize);
+    }
+
+    @Override
+    public CompressionDecision decide(TrackPoint[] stored, List<TrackPoint> skipped, TrackPoint current) {
+        if (stored.length == 0) {
+            return CompressionDecision.KEEP;
+        }
+
+        TrackPoint anchor = stored[0];
+        double maxErrorCarre = maxErrorMeters * maxErrorMeters;
+        for (TrackPoint point : skipped) {
+            double erreurCarre = Meters.distanceSegmentCarre(
+                    anchor.x(), anchor.y(), current.x(), current.y(), point.x(), point.y());
+            if (erreurCarre > maxErrorCarre) {
+                return CompressionDecision.KEEP_WITH_PREVIOUS;
+            }
+        }
+
+        // fenêtre pleine : le segment [ancre, position] respecte la tolérance, on le ferme ici
+        if (skipped.size() >= maxWindowSize) {
+            return CompressionDecision.KEEP;
+        }
+        return CompressionDecision.SKIP;
+    }
+
+    @Override
+    public int windowSize() {
+        return maxWindowSize;
+    }
+}
@@ -0,0 +1,9 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import java.time.LocalDateTime;
+
+/**
+ * Point d'une trajectoire : coordonnées WGS84 en degrés (x = longitude, y = latitude) et horodatage
+ */
+public record TrackPoint(double x, double y, LocalDateTime time) {
+}
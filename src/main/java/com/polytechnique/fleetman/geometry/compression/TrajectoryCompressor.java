@@ -0,0 +1,24 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import java.util.List;
+
+/**
+ * Compresseur de trajectoire en flux : décide, position par position, lesquelles enregistrer.
+ * Les implémentations sont sans état ; l'état de chaque véhicule leur est fourni à chaque appel.
+ */
+public interface TrajectoryCompressor {
+
+    /**
+     * @param stored  dernières positions enregistrées, la plus récente en premier (au plus deux)
+     * @param skipped positions écartées depuis la dernière enregistrée, dans l'ordre d'arrivée
+     * @param current nouvelle position
+     */
+    CompressionDecision decide(TrackPoint[] stored, List<TrackPoint> skipped, TrackPoint current);
+
+    /**
+     * Nombre maximal de positions écartées à conserver pour ce compresseur (0 s'il ne les consulte pas)
+     */
+    default int windowSize() {
+        return 0;
+    }
+}
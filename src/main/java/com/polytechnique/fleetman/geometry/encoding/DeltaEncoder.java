@@ -0,0 +1,72 @@
+package com.polytechnique.fleetman.geometry.encoding;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * Encodage par écarts : chaque composante (longitude, latitude, puis éventuellement un entier comme l'horodatage)
+ * est écrite comme l'écart à sa valeur précédente, en varint zig-zag (7 bits par octet).
+ * Les coordonnées sont arrondies à `precision` décimales ; le premier point est écrit en écart à zéro.
+ */
+public final class DeltaEncoder {
+
+    private final double scale;
+    private final long[] previous;
+
+    /**
+     * @param components nombre de composantes par point : 2 (x, y) ou plus (valeurs entières supplémentaires)
+     */
+    public DeltaEncoder(int precision, int components) {
+        this.scale = Math.pow(10, precision);
+        this.previous = new long[components];
+    }
+
+    /**
+     * Encode toute la séquence de coordonnées (x, y) en base64
+     */
+    public static String encode(CoordinateSequence sequence, int precision) {
+        DeltaEncoder encoder = new DeltaEncoder(precision, 2);
+        // ~ 2 à 3 octets par composante pour des points rapprochés
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16, sequence.size() * 6));
+        try {
+            for (int i = 0; i < sequence.size(); i++) {
+                encoder.add(sequence.getX(i), sequence.getY(i), out);
+            }
+        } catch (IOException e) {
+            // impossible en mémoire
+            throw new IllegalStateException(e);
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Ajoute un point (longitude x, latitude y)
+     */
+    public void add(double x, double y, OutputStream out) throws IOException {
+        write(0, Math.round(x * scale), out);
+        write(1, Math.round(y * scale), out);
+    }
+
+    /**
+     * Ajoute un point (longitude x, latitude y) suivi d'une troisième composante entière (ex. secondes epoch)
+     */
+    public void add(double x, double y, long value, OutputStream out) throws IOException {
+        add(x, y, out);
+        write(2, value, out);
+    }
+
+    private void write(int component, long current, OutputStream out) throws IOException {
+        long delta = current - previous[component];
+        previous[component] = current;
+        long value = (delta << 1) ^ (delta >> 63);
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,18 @@
+package com.polytechnique.fleetman.geometry.encoding;
+
+/**
+ * Représentation d'une ligne (LineString) dans une réponse
+ */
+public enum LineEncoding {
+    // tableau de coordonnées GeoJSON
+    GEOJSON,
+    // polyligne encodée (algorithme Google), latitude puis longitude
+    POLYLINE,
+    // entiers varint zig-zag des écarts successifs, en base64
+    DELTA;
+
+    // précision du format polyline de Google
+    public static final int DEFAULT_PRECISION = 5;
+    public static final int MIN_PRECISION = 0;
+    public static final int MAX_PRECISION = 7;
+}
@@ -0,0 +1,63 @@
+package com.polytechnique.fleetman.geometry.encoding;
+
+import org.locationtech.jts.geom.CoordinateSequence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodage en polyligne (algorithme Google) : pour chaque point, écarts de latitude puis de longitude au point
+ * précédent, arrondis à `precision` décimales (5 pour le format Google standard), en zig-zag par groupes de 5 bits.
+ * Les caractères produits (63 à 126) sont écrits comme des octets ASCII au fil des points, sans liste intermédiaire.
+ */
+public final class PolylineEncoder {
+
+    private final double scale;
+    private long previousX;
+    private long previousY;
+
+    public PolylineEncoder(int precision) {
+        this.scale = Math.pow(10, precision);
+    }
+
+    /**
+     * Encode toute la séquence de coordonnées
+     */
+    public static String encode(CoordinateSequence sequence, int precision) {
+        PolylineEncoder encoder = new PolylineEncoder(precision);
+        // ~ 4 à 8 caractères par point pour des points rapprochés
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(16, sequence.size() * 8));
+        try {
+            for (int i = 0; i < sequence.size(); i++) {
+                encoder.add(sequence.getX(i), sequence.getY(i), out);
+            }
+        } catch (IOException e) {
+            // impossible en mémoire
+            throw new IllegalStateException(e);
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Ajoute un point (longitude x, latitude y) à la suite de la polyligne
+     */
+    public void add(double x, double y, OutputStream out) throws IOException {
+        long currentX = Math.round(x * scale);
+        long currentY = Math.round(y * scale);
+        write(currentY - previousY, out);
+        write(currentX - previousX, out);
+        previousX = currentX;
+        previousY = currentY;
+    }
+
+    private static void write(long delta, OutputStream out) throws IOException {
+        long value = delta < 0 ? ~(delta << 1) : delta << 1;
+        while (value >= 0x20) {
+            out.write((int) ((0x20 | (value & 0x1f)) + 63));
+            value >>>= 5;
+        }
+        out.write((int) (value + 63));
+    }
+}
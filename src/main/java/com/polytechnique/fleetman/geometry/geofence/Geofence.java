@@ -0,0 +1,47 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.util.List;
+
+/**
+ * Zone prête pour l'évaluation : polygone préparé (test d'appartenance indexé) et règles
+ */
+public final class Geofence {
+
+    private final long geofenceId;
+    private final String name;
+    private final long userId;
+    private final PreparedGeometry area;
+    private final GeofenceRule[] rules;
+
+    public Geofence(long geofenceId, String name, long userId, Geometry area, List<GeofenceRule> rules) {
+        this.geofenceId = geofenceId;
+        this.name = name;
+        this.userId = userId;
+        this.area = PreparedGeometryFactory.prepare(area);
+        this.rules = rules.toArray(new GeofenceRule[0]);
+    }
+
+    public long getGeofenceId() {
+        return geofenceId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    PreparedGeometry getArea() {
+        return area;
+    }
+
+    GeofenceRule[] getRules() {
+        return rules;
+    }
+}
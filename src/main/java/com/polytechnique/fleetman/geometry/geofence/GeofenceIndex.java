@@ -0,0 +1,46 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ensemble immuable de zones, indexées par leur emprise dans un STRtree :
+ * une position n'est testée que contre les zones dont l'emprise la contient.
+ * Reconstruit en entier à chaque modification des zones (les modifications sont rares devant les positions).
+ */
+public final class GeofenceIndex {
+
+    public static final GeofenceIndex EMPTY = new GeofenceIndex(List.of());
+
+    private final STRtree tree = new STRtree();
+    private final Map<Long, Geofence> byId = new HashMap<>();
+
+    public GeofenceIndex(Collection<Geofence> geofences) {
+        for (Geofence geofence : geofences) {
+            tree.insert(geofence.getArea().getGeometry().getEnvelopeInternal(), geofence);
+            byId.put(geofence.getGeofenceId(), geofence);
+        }
+        // construction immédiate : les lectures concurrentes ne déclenchent pas la construction paresseuse
+        tree.build();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    Geofence get(long geofenceId) {
+        return byId.get(geofenceId);
+    }
+
+    void query(Envelope probe, ItemVisitor visitor) {
+        if (!byId.isEmpty()) {
+            tree.query(probe, visitor);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+/**
+ * Règle d'une zone : véhicules concernés (un véhicule, un type de véhicule, ou tous les véhicules
+ * du propriétaire de la zone si les deux sont absents) et transitions à signaler.
+ * dwellSeconds = 0 : pas d'alerte de stationnement.
+ */
+public record GeofenceRule(Long vehicleId, String vehicleType, boolean onEnter, boolean onExit, long dwellSeconds) {
+
+    public boolean appliesTo(long vehicleId, String vehicleType) {
+        if (this.vehicleId != null) {
+            return this.vehicleId == vehicleId;
+        }
+        return this.vehicleType == null || this.vehicleType.equalsIgnoreCase(vehicleType);
+    }
+}
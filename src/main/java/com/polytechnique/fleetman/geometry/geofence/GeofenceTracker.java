@@ -0,0 +1,294 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.index.ItemVisitor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Présence de chaque véhicule dans les zones, et détection des entrées, sorties et stationnements.
+ * L'évaluation d'une position n'alloue rien hors transition : l'emprise de recherche, le point testé
+ * et la liste des zones touchées sont réutilisés d'une position à l'autre pour un même véhicule.
+ * La première position d'un véhicule initialise sa présence sans rien signaler (état inconnu avant).
+ * Dans une transaction, l'évaluation porte sur un brouillon de la présence, installé par {@link #commit(Draft)}
+ * une fois la transaction validée : une annulation ne fait ni perdre ni inventer d'entrée ou de sortie.
+ * Chaque véhicule garde un brouillon réutilisable : remis à la présence validée au début de la transaction,
+ * puis échangé avec elle au commit ; seule une seconde transaction simultanée du même véhicule en alloue un.
+ */
+public final class GeofenceTracker {
+
+    /**
+     * Reçoit les transitions, sous le verrou du véhicule ; le contexte est celui passé à l'évaluation
+     * (un listener unique sert ainsi tous les véhicules, sans lambda capturante par position)
+     */
+    @FunctionalInterface
+    public interface Listener<C> {
+        void onTransition(Geofence geofence, GeofenceTransition transition, C context, LocalDateTime dateTime);
+    }
+
+    private static final class Presence {
+        private long geofenceId;
+        private LocalDateTime since;
+        private boolean dwellSignaled;
+
+        private Presence() {
+        }
+
+        private Presence(long geofenceId, LocalDateTime since) {
+            this.geofenceId = geofenceId;
+            this.since = since;
+        }
+
+        private void copyFrom(Presence other) {
+            geofenceId = other.geofenceId;
+            since = other.since;
+            dwellSignaled = other.dwellSignaled;
+        }
+    }
+
+    /**
+     * Copie de la présence d'un véhicule, modifiée par les évaluations d'une transaction
+     * et installée à sa validation ; à rendre par {@link #commit(Draft)} ou {@link #discard(Draft)}
+     */
+    public static final class Draft {
+        private final Vehicle vehicle;
+        private VehicleState state;
+
+        private Draft(Vehicle vehicle, VehicleState state) {
+            this.vehicle = vehicle;
+            this.state = state;
+        }
+    }
+
+    private static final class Vehicle {
+        private final long vehicleId;
+        private final Draft draft;
+        private VehicleState committed;
+        private boolean drafting;
+
+        private Vehicle(long vehicleId, GeometryFactory geometryFactory) {
+            this.vehicleId = vehicleId;
+            this.committed = new VehicleState(geometryFactory);
+            this.draft = new Draft(this, new VehicleState(geometryFactory));
+        }
+    }
+
+    private static final class VehicleState implements ItemVisitor {
+        private final Envelope probe = new Envelope();
+        private final Point point;
+        private final List<Presence> inside = new ArrayList<>(4);
+        private final List<Geofence> hits = new ArrayList<>(4);
+        // présences de ce brouillon, réécrites à chaque remise à la présence validée
+        private final List<Presence> copies = new ArrayList<>(4);
+        private long userId;
+        private boolean initialized;
+
+        private VehicleState(GeometryFactory geometryFactory) {
+            this.point = geometryFactory.createPoint(new Coordinate());
+        }
+
+        void reset(VehicleState committed) {
+            initialized = committed.initialized;
+            inside.clear();
+            for (int i = 0; i < committed.inside.size(); i++) {
+                if (i == copies.size()) {
+                    copies.add(new Presence());
+                }
+                Presence copy = copies.get(i);
+                copy.copyFrom(committed.inside.get(i));
+                inside.add(copy);
+            }
+        }
+
+        void locate(GeofenceIndex index, long userId, double x, double y) {
+            this.userId = userId;
+            CoordinateSequence sequence = point.getCoordinateSequence();
+            sequence.setOrdinate(0, CoordinateSequence.X, x);
+            sequence.setOrdinate(0, CoordinateSequence.Y, y);
+            point.geometryChanged();
+            probe.init(x, x, y, y);
+            hits.clear();
+            index.query(probe, this);
+        }
+
+        // candidats du STRtree : seules les zones du propriétaire du véhicule sont testées
+        @Override
+        public void visitItem(Object item) {
+            Geofence geofence = (Geofence) item;
+            if (geofence.getUserId() == userId && geofence.getArea().contains(point)) {
+                hits.add(geofence);
+            }
+        }
+
+        Presence presence(long geofenceId) {
+            for (int i = 0; i < inside.size(); i++) {
+                if (inside.get(i).geofenceId == geofenceId) {
+                    return inside.get(i);
+                }
+            }
+            return null;
+        }
+
+        boolean hit(long geofenceId) {
+            for (int i = 0; i < hits.size(); i++) {
+                if (hits.get(i).getGeofenceId() == geofenceId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    private final Map<Long, Vehicle> vehicles = new ConcurrentHashMap<>();
+
+    /**
+     * Évalue une position du véhicule et signale au listener les transitions couvertes par une règle
+     */
+    public <C> void evaluate(GeofenceIndex index, long vehicleId, long userId, String vehicleType,
+                             double x, double y, LocalDateTime dateTime, C context, Listener<C> listener) {
+        Vehicle vehicle = vehicle(vehicleId);
+        synchronized (vehicle) {
+            evaluate(index, vehicle.committed, vehicleId, userId, vehicleType, x, y, dateTime, context, listener);
+        }
+    }
+
+    /**
+     * Brouillon de la présence validée du véhicule, à passer aux évaluations d'une même transaction
+     */
+    public Draft draft(long vehicleId) {
+        Vehicle vehicle = vehicle(vehicleId);
+        synchronized (vehicle) {
+            // le brouillon du véhicule sert déjà une autre transaction : brouillon à usage unique
+            Draft draft = vehicle.drafting ? new Draft(vehicle, new VehicleState(geometryFactory)) : vehicle.draft;
+            vehicle.drafting = true;
+            draft.state.reset(vehicle.committed);
+            return draft;
+        }
+    }
+
+    /**
+     * Évalue une position sur le brouillon, sans toucher à la présence validée du véhicule
+     */
+    public <C> void evaluate(GeofenceIndex index, Draft draft, long userId, String vehicleType,
+                             double x, double y, LocalDateTime dateTime, C context, Listener<C> listener) {
+        synchronized (draft) {
+            evaluate(index, draft.state, draft.vehicle.vehicleId, userId, vehicleType, x, y, dateTime, context, listener);
+        }
+    }
+
+    /**
+     * Installe le brouillon comme présence validée du véhicule (transaction validée) ;
+     * l'ancienne présence validée devient le prochain brouillon
+     */
+    public void commit(Draft draft) {
+        Vehicle vehicle = draft.vehicle;
+        synchronized (vehicle) {
+            VehicleState previous = vehicle.committed;
+            vehicle.committed = draft.state;
+            draft.state = previous;
+            release(vehicle, draft);
+        }
+    }
+
+    /**
+     * Abandonne le brouillon (transaction annulée)
+     */
+    public void discard(Draft draft) {
+        Vehicle vehicle = draft.vehicle;
+        synchronized (vehicle) {
+            release(vehicle, draft);
+        }
+    }
+
+    private static void release(Vehicle vehicle, Draft draft) {
+        if (draft == vehicle.draft) {
+            vehicle.drafting = false;
+        }
+    }
+
+    private Vehicle vehicle(long vehicleId) {
+        return vehicles.computeIfAbsent(vehicleId, id -> new Vehicle(id, geometryFactory));
+    }
+
+    private <C> void evaluate(GeofenceIndex index, VehicleState state, long vehicleId, long userId, String vehicleType,
+                              double x, double y, LocalDateTime dateTime, C context, Listener<C> listener) {
+        state.locate(index, userId, x, y);
+        boolean signal = state.initialized;
+        state.initialized = true;
+
+        for (int i = state.inside.size() - 1; i >= 0; i--) {
+            Presence presence = state.inside.get(i);
+            if (state.hit(presence.geofenceId)) {
+                continue;
+            }
+            state.inside.remove(i);
+            // une zone supprimée entre-temps est oubliée sans signaler de sortie
+            Geofence geofence = index.get(presence.geofenceId);
+            if (signal && geofence != null && matches(geofence, GeofenceTransition.EXIT, vehicleId, vehicleType)) {
+                listener.onTransition(geofence, GeofenceTransition.EXIT, context, dateTime);
+            }
+        }
+
+        for (int i = 0; i < state.hits.size(); i++) {
+            Geofence geofence = state.hits.get(i);
+            Presence presence = state.presence(geofence.getGeofenceId());
+            if (presence == null) {
+                state.inside.add(new Presence(geofence.getGeofenceId(), dateTime));
+                if (signal && matches(geofence, GeofenceTransition.ENTER, vehicleId, vehicleType)) {
+                    listener.onTransition(geofence, GeofenceTransition.ENTER, context, dateTime);
+                }
+                continue;
+            }
+            long dwellSeconds = dwellSeconds(geofence, vehicleId, vehicleType);
+            if (!presence.dwellSignaled && dwellSeconds > 0
+                    && ChronoUnit.SECONDS.between(presence.since, dateTime) >= dwellSeconds) {
+                presence.dwellSignaled = true;
+                listener.onTransition(geofence, GeofenceTransition.DWELL, context, dateTime);
+            }
+        }
+    }
+
+    /**
+     * Oublie la présence du véhicule (véhicule supprimé)
+     */
+    public void forget(long vehicleId) {
+        vehicles.remove(vehicleId);
+    }
+
+    public int trackedVehicles() {
+        return vehicles.size();
+    }
+
+    private static boolean matches(Geofence geofence, GeofenceTransition transition, long vehicleId, String vehicleType) {
+        for (GeofenceRule rule : geofence.getRules()) {
+            if (rule.appliesTo(vehicleId, vehicleType)
+                    && (transition == GeofenceTransition.ENTER ? rule.onEnter() : rule.onExit())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // plus courte durée de stationnement des règles applicables au véhicule, 0 si aucune
+    private static long dwellSeconds(Geofence geofence, long vehicleId, String vehicleType) {
+        long dwellSeconds = 0;
+        for (GeofenceRule rule : geofence.getRules()) {
+            if (rule.dwellSeconds() > 0 && rule.appliesTo(vehicleId, vehicleType)
+                    && (dwellSeconds == 0 || rule.dwellSeconds() < dwellSeconds)) {
+                dwellSeconds = rule.dwellSeconds();
+            }
+        }
+        return dwellSeconds;
+    }
+}
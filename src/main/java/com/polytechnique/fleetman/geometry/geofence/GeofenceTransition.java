@@ -0,0 +1,13 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+/**
+ * Changement d'état d'un véhicule par rapport à une zone
+ */
+public enum GeofenceTransition {
+    // le véhicule est entré dans la zone
+    ENTER,
+    // le véhicule est sorti de la zone
+    EXIT,
+    // le véhicule est resté dans la zone au-delà de la durée de stationnement de la règle
+    DWELL
+}
@@ -0,0 +1,34 @@
+package com.polytechnique.fleetman.geometry.tile;
+
+/**
+ * Couches servies en tuiles vectorielles (nom dans l'URL et dans la tuile MVT)
+ */
+public enum TileLayer {
+    // positions brutes (table position)
+    POSITIONS("positions"),
+    // historiques de position, au niveau de détail adapté au zoom
+    HISTORIES("histories"),
+    // points de recharge de carburant
+    RECHARGES("recharges"),
+    // points de maintenance
+    MAINTENANCES("maintenances");
+
+    private final String layerName;
+
+    TileLayer(String layerName) {
+        this.layerName = layerName;
+    }
+
+    public String getLayerName() {
+        return layerName;
+    }
+
+    public static TileLayer fromName(String name) {
+        for (TileLayer layer : values()) {
+            if (layer.layerName.equals(name)) {
+                return layer;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.polytechnique.fleetman.geometry.tile;
+
+import org.locationtech.jts.geom.Envelope;
+
+/**
+ * Calculs de tuiles web (Web Mercator, schéma XYZ) : tuile contenant une position, clé compacte d'une tuile.
+ * Une clé tient dans un long : zoom sur 5 bits, x et y sur 29 bits chacun.
+ */
+public final class Tiles {
+
+    public static final int MAX_ZOOM = 24;
+    // latitude limite de la projection Web Mercator
+    private static final double MAX_LATITUDE = 85.05112878;
+
+    private Tiles() {
+    }
+
+    public static long key(int z, int x, int y) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+
+    public static boolean isValid(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) {
+            return false;
+        }
+        long size = 1L << z;
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    public static int tileX(double longitude, int z) {
+        int n = 1 << z;
+        int x = (int) Math.floor((longitude + 180.0) / 360.0 * n);
+        return Math.max(0, Math.min(n - 1, x));
+    }
+
+    public static int tileY(double latitude, int z) {
+        int n = 1 << z;
+        double lat = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude)));
+        int y = (int) Math.floor((1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0 * n);
+        return Math.max(0, Math.min(n - 1, y));
+    }
+
+    /**
+     * Zoom le plus fin (au plus maxZoom) auquel l'emprise tient dans au plus 2 × 2 tuiles
+     */
+    public static int coveringZoom(Envelope envelope, int maxZoom) {
+        for (int z = maxZoom; z > 0; z--) {
+            if (tileX(envelope.getMaxX(), z) - tileX(envelope.getMinX(), z) <= 1
+                    && tileY(envelope.getMinY(), z) - tileY(envelope.getMaxY(), z) <= 1) {
+                return z;
+            }
+        }
+        return 0;
+    }
+}
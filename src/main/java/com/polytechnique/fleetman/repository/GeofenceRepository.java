@@ -0,0 +1,18 @@
+package com.polytechnique.fleetman.repository;
+
+import com.polytechnique.fleetman.entity.GeofenceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GeofenceRepository extends JpaRepository<GeofenceEntity, Long> {
+
+    List<GeofenceEntity> findByUser_UserId(Long userId);
+
+    // zones et règles en une requête, pour la construction de l'index en mémoire
+    @Query("SELECT DISTINCT g FROM GeofenceEntity g LEFT JOIN FETCH g.rules r LEFT JOIN FETCH r.vehicle")
+    List<GeofenceEntity> findAllWithRules();
+}
@@ -0,0 +1,212 @@
+package com.polytechnique.fleetman.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Écriture massive de lignes dans la table position.
+ * Utilise COPY ... FROM STDIN en format binaire via le CopyManager de PgJDBC (coordonnées en EWKB),
+ * et se replie sur des INSERT par lots lorsque COPY n'est pas disponible.
+ */
+@Slf4j
+@Repository
+public class PositionBulkWriter {
+
+    private static final String COPY_SQL =
+            "COPY position (vehicle_id, coordinate, position_date_time) FROM STDIN (FORMAT binary)";
+    private static final String INSERT_SQL =
+            "INSERT INTO position (vehicle_id, coordinate, position_date_time) VALUES (?, ST_GeomFromEWKB(?), ?)";
+
+    // en-tête du format binaire de COPY : signature, flags, longueur de l'extension d'en-tête
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    // les timestamps binaires PostgreSQL sont en microsecondes depuis le 01/01/2000
+    private static final long PG_EPOCH_SECONDS = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    // EWKB d'un point 2D : ordre des octets + type (avec drapeau SRID) + SRID + x + y
+    private static final int EWKB_POINT_LENGTH = 1 + 4 + 4 + 8 + 8;
+    private static final int EWKB_SRID_FLAG = 0x20000000;
+    private static final int SRID = 4326;
+
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean copyEnabled;
+    private final int insertBatchSize;
+
+    public PositionBulkWriter(DataSource dataSource,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${fleetman.position.bulk.copy-enabled:true}") boolean copyEnabled,
+                              @Value("${fleetman.position.bulk.insert-batch-size:500}") int insertBatchSize) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.copyEnabled = copyEnabled;
+        this.insertBatchSize = Math.max(1, insertBatchSize);
+    }
+
+    /**
+     * Ligne à écrire dans la table position (coordonnées WGS84 en degrés)
+     */
+    public record PositionRow(long vehicleId, double longitude, double latitude, LocalDateTime positionDateTime) {
+    }
+
+    /**
+     * Bilan d'une écriture massive
+     */
+    public record BulkWriteReport(long rows, long elapsedMillis, double rowsPerSecond, String method) {
+    }
+
+    /**
+     * Écrit toutes les lignes fournies par l'itérateur, qui est consommé au fil de l'eau.
+     * Participe à la transaction Spring courante s'il y en a une.
+     */
+    public BulkWriteReport write(Iterator<PositionRow> rows) {
+        long start = System.nanoTime();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            PGConnection pgConnection = copyEnabled ? unwrapPgConnection(connection) : null;
+            long count;
+            String method;
+            if (pgConnection != null) {
+                count = copy(pgConnection, rows);
+                method = "COPY";
+            } else {
+                count = insertBatches(rows);
+                method = "INSERT";
+            }
+
+            long elapsedNanos = Math.max(1, System.nanoTime() - start);
+            BulkWriteReport report = new BulkWriteReport(
+                    count,
+                    elapsedNanos / 1_000_000,
+                    count * 1_000_000_000.0 / elapsedNanos,
+                    method
+            );
+            log.debug("Écriture massive de {} positions via {} en {} ms ({} lignes/s)",
+                    report.rows(), report.method(), report.elapsedMillis(), Math.round(report.rowsPerSecond()));
+            return report;
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("Écriture massive des positions", COPY_SQL, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private PGConnection unwrapPgConnection(Connection connection) {
+        try {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                return connection.unwrap(PGConnection.class);
+            }
+        } catch (SQLException e) {
+            log.warn("COPY indisponible, repli sur les INSERT par lots : {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private long copy(PGConnection connection, Iterator<PositionRow> rows) throws SQLException {
+        CopyIn copyIn = connection.getCopyAPI().copyIn(COPY_SQL);
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(COPY_CHUNK_BYTES + 64);
+            DataOutputStream out = new DataOutputStream(buffer);
+
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // longueur de l'extension d'en-tête
+
+            long count = 0;
+            while (rows.hasNext()) {
+                PositionRow row = rows.next();
+                out.writeShort(3);
+                out.writeInt(8);
+                out.writeLong(row.vehicleId());
+                out.writeInt(EWKB_POINT_LENGTH);
+                writeEwkbPoint(out, row.longitude(), row.latitude());
+                out.writeInt(8);
+                out.writeLong(toPgMicros(row.positionDateTime()));
+                count++;
+
+                if (buffer.size() >= COPY_CHUNK_BYTES) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                    buffer.reset();
+                }
+            }
+
+            out.writeShort(-1); // fin des données
+            copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            copyIn.endCopy();
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private long insertBatches(Iterator<PositionRow> rows) {
+        long count = 0;
+        List<Object[]> batch = new ArrayList<>(insertBatchSize);
+        while (rows.hasNext()) {
+            PositionRow row = rows.next();
+            batch.add(new Object[]{
+                    row.vehicleId(),
+                    ewkbPoint(row.longitude(), row.latitude()),
+                    Timestamp.valueOf(row.positionDateTime())
+            });
+            if (batch.size() == insertBatchSize) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+                count += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+            count += batch.size();
+        }
+        return count;
+    }
+
+    // EWKB big-endian (XDR) d'un point avec SRID 4326, écrit directement dans le flux
+    private static void writeEwkbPoint(DataOutputStream out, double x, double y) throws IOException {
+        out.writeByte(0);
+        out.writeInt(1 | EWKB_SRID_FLAG);
+        out.writeInt(SRID);
+        out.writeDouble(x);
+        out.writeDouble(y);
+    }
+
+    private static byte[] ewkbPoint(double x, double y) {
+        return ByteBuffer.allocate(EWKB_POINT_LENGTH)
+                .put((byte) 0)
+                .putInt(1 | EWKB_SRID_FLAG)
+                .putInt(SRID)
+                .putDouble(x)
+                .putDouble(y)
+                .array();
+    }
+
+    private static long toPgMicros(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC) - PG_EPOCH_SECONDS;
+        return seconds * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+}
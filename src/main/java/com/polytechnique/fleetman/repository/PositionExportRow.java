@@ -0,0 +1,12 @@
+package com.polytechnique.fleetman.repository;
+
+import org.locationtech.jts.geom.Point;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ligne d'export de trace : projection non gérée par le contexte de persistance,
+ * donc libérée dès qu'elle est écrite
+ */
+public record PositionExportRow(Long positionId, Point coordinate, LocalDateTime positionDateTime) {
+}
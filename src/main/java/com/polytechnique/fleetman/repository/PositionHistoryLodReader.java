@@ -0,0 +1,115 @@
+package com.polytechnique.fleetman.repository;
+
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture des historiques de position à un niveau de détail donné.
+ * Les niveaux 1 à MAX_LEVEL (table position_history_lod) sont des simplifications de Visvalingam-Whyatt
+ * calculées par un trigger à chaque écriture d'historique (migration V10) ; le niveau 0 est la ligne d'origine.
+ * Le découpage à une emprise est fait par PostGIS. Un niveau simplifié ne garde que des sommets de la ligne
+ * d'origine et reste donc dans son emprise : le test && sur h.summary_coordinate, servi par l'index GiST,
+ * écarte les historiques hors emprise avant le test exact sur la géométrie du niveau.
+ */
+@Repository
+public class PositionHistoryLodReader {
+
+    // doit rester aligné sur la migration V10 : tolérance du niveau n = 2 * 4^(n-1) mètres
+    public static final int MAX_LEVEL = 7;
+    private static final double FINEST_TOLERANCE_METERS = 2.0;
+    private static final double LEVEL_FACTOR = 4.0;
+    // mètres par pixel d'une tuile web 256 px au niveau de zoom 0, à l'équateur
+    private static final double METERS_PER_PIXEL_ZOOM_0 = 156_543.033_92;
+    private static final int SRID = 4326;
+
+    // niveau absent (ligne trop courte pour être simplifiée) : repli sur la ligne d'origine
+    private static final String GEOMETRY = "COALESCE(l.summary_coordinate, h.summary_coordinate)";
+    private static final String SELECT_SQL =
+            "SELECT h.position_history_id, h.position_date_time, v.vehicle_id, v.vehicle_name, ST_AsBinary(%s) " +
+            "FROM position_history h " +
+            "JOIN vehicle v ON v.vehicle_id = h.vehicle_id " +
+            "LEFT JOIN position_history_lod l ON l.position_history_id = h.position_history_id AND l.lod_level = ? " +
+            "WHERE h.vehicle_id = ? %s" +
+            "ORDER BY h.position_date_time, h.position_history_id";
+    private static final String BY_VEHICLE_SQL = SELECT_SQL.formatted(GEOMETRY, "");
+    private static final String BY_VEHICLE_CLIPPED_SQL = SELECT_SQL.formatted(
+            "ST_Intersection(" + GEOMETRY + ", ST_MakeEnvelope(?, ?, ?, ?, " + SRID + "))",
+            "AND h.summary_coordinate && ST_MakeEnvelope(?, ?, ?, ?, " + SRID + ") " +
+            "AND ST_Intersects(" + GEOMETRY + ", ST_MakeEnvelope(?, ?, ?, ?, " + SRID + ")) ");
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), SRID);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PositionHistoryLodReader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record LodRow(Long positionHistoryId, LocalDateTime positionDateTime,
+                         Long vehicleId, String vehicleName, Geometry summaryCoordinate) {
+    }
+
+    /**
+     * Niveau le plus simplifié dont la tolérance ne dépasse pas toleranceMeters (0 : ligne d'origine)
+     */
+    public static int levelForTolerance(double toleranceMeters) {
+        int level = 0;
+        while (level < MAX_LEVEL && toleranceForLevel(level + 1) <= toleranceMeters) {
+            level++;
+        }
+        return level;
+    }
+
+    public static double toleranceForLevel(int level) {
+        return level == 0 ? 0.0 : FINEST_TOLERANCE_METERS * Math.pow(LEVEL_FACTOR, level - 1);
+    }
+
+    /**
+     * Taille d'un pixel (m) au niveau de zoom des tuiles web : un écart plus petit est invisible
+     */
+    public static double toleranceForZoom(int zoom) {
+        return METERS_PER_PIXEL_ZOOM_0 / (1L << zoom);
+    }
+
+    /**
+     * Historiques du véhicule au niveau demandé, découpés à l'emprise si elle est donnée
+     * (ligne ou multi-ligne ; les historiques hors emprise sont absents)
+     */
+    public List<LodRow> findByVehicleId(Long vehicleId, int level, Envelope bbox) {
+        WKBReader wkbReader = new WKBReader(GEOMETRY_FACTORY);
+        List<LodRow> rows = new ArrayList<>();
+        RowCallbackHandler handler = rs -> {
+            try {
+                rows.add(new LodRow(
+                        rs.getLong(1),
+                        rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getLong(3),
+                        rs.getString(4),
+                        wkbReader.read(rs.getBytes(5))));
+            } catch (ParseException e) {
+                throw new IllegalStateException("Géométrie d'historique illisible", e);
+            }
+        };
+        if (bbox == null) {
+            jdbcTemplate.query(BY_VEHICLE_SQL, handler, level, vehicleId);
+        } else {
+            jdbcTemplate.query(BY_VEHICLE_CLIPPED_SQL, handler,
+                    bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(), bbox.getMaxY(),
+                    level, vehicleId,
+                    bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(), bbox.getMaxY(),
+                    bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(), bbox.getMaxY());
+        }
+        return rows;
+    }
+}
@@ -1,21 +1,72 @@
 package com.polytechnique.fleetman.repository;
 
 import com.polytechnique.fleetman.entity.PositionEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PositionRepository extends JpaRepository<PositionEntity, Long> {
 
-    List<PositionEntity> findByVehicle_VehicleId(Long vehicleId);
+    int EXPORT_FETCH_SIZE = 1000;
 
-    List<PositionEntity> findByPositionDateTimeBetween(LocalDateTime start, LocalDateTime end);
+    /**
+     * Page de positions d'un véhicule sur [start, end[, strictement après la clé (afterTime, afterId),
+     * dans l'ordre (position_date_time, position_id) : parcours de l'index (vehicle_id, position_date_time, position_id)
+     * à partir de la clé, limité aux partitions de la période
+     */
+    @Query("SELECT p FROM PositionEntity p WHERE p.vehicle.vehicleId = :vehicleId " +
+            "AND p.positionDateTime >= :start AND p.positionDateTime < :end " +
+            "AND p.positionDateTime >= :afterTime " +
+            "AND (p.positionDateTime > :afterTime OR p.positionId > :afterId) " +
+            "ORDER BY p.positionDateTime, p.positionId")
+    List<PositionEntity> findPageByVehicleIdAndPeriod(@Param("vehicleId") Long vehicleId,
+                                                      @Param("start") LocalDateTime start,
+                                                      @Param("end") LocalDateTime end,
+                                                      @Param("afterTime") LocalDateTime afterTime,
+                                                      @Param("afterId") long afterId,
+                                                      Limit limit);
+
+    /**
+     * Page de positions de tous les véhicules sur [start, end[, strictement après la clé (afterTime, afterId) ;
+     * le véhicule est chargé dans la même requête
+     */
+    @Query("SELECT p FROM PositionEntity p JOIN FETCH p.vehicle " +
+            "WHERE p.positionDateTime >= :start AND p.positionDateTime < :end " +
+            "AND p.positionDateTime >= :afterTime " +
+            "AND (p.positionDateTime > :afterTime OR p.positionId > :afterId) " +
+            "ORDER BY p.positionDateTime, p.positionId")
+    List<PositionEntity> findPageByPeriod(@Param("start") LocalDateTime start,
+                                          @Param("end") LocalDateTime end,
+                                          @Param("afterTime") LocalDateTime afterTime,
+                                          @Param("afterId") long afterId,
+                                          Limit limit);
+
+    /**
+     * Trace d'un véhicule sur [start, end[ dans l'ordre chronologique, lue par paquets de EXPORT_FETCH_SIZE lignes
+     * (curseur serveur : à consommer dans une transaction, puis fermer)
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.polytechnique.fleetman.repository.PositionExportRow(p.positionId, p.coordinate, p.positionDateTime) " +
+            "FROM PositionEntity p WHERE p.vehicle.vehicleId = :vehicleId " +
+            "AND p.positionDateTime >= :start AND p.positionDateTime < :end " +
+            "ORDER BY p.positionDateTime, p.positionId")
+    Stream<PositionExportRow> streamByVehicleIdAndPeriod(@Param("vehicleId") Long vehicleId,
+                                                        @Param("start") LocalDateTime start,
+                                                        @Param("end") LocalDateTime end);
 
     /**
      * Récupère les 2 dernières positions d'un véhicule
@@ -24,6 +75,17 @@ public interface PositionRepository extends JpaRepository<PositionEntity, Long>
             "ORDER BY position_date_time DESC LIMIT 2",
             nativeQuery = true)
     List<PositionEntity> findLastTwoPositions(@Param("vehicleId") Long vehicleId);
+
+    /**
+     * Récupère les {@code limit} dernières positions d'un véhicule (la plus récente en premier).
+     * Sur la table partitionnée, l'index (vehicle_id, position_date_time DESC) permet un parcours
+     * ordonné des partitions qui s'arrête dès que la limite est atteinte.
+     */
+    @Query(value = "SELECT * FROM position WHERE vehicle_id = :vehicleId " +
+            "ORDER BY position_date_time DESC LIMIT :limit",
+            nativeQuery = true)
+    List<PositionEntity> findLastPositions(@Param("vehicleId") Long vehicleId, @Param("limit") int limit);
+
     @Query("SELECT p FROM PositionEntity p WHERE p.vehicle.vehicleId = :vehicleId ORDER BY p.positionDateTime DESC LIMIT 1")
     Optional<PositionEntity> findLatestPositionByVehicle(@Param("vehicleId") Long vehicleId);
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.polytechnique.fleetman.repository;
+
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Génération des tuiles vectorielles (Mapbox Vector Tile) par PostGIS : ST_AsMVTGeom projette et découpe
+ * les géométries dans la tuile, ST_AsMVT encode la couche. L'index GiST de chaque table écarte les lignes
+ * hors tuile (emprise de la tuile élargie de la marge, reprojetée en 4326).
+ */
+@Repository
+public class VectorTileReader {
+
+    // résolution interne de la tuile et marge autour (en unités de tuile), valeurs usuelles de ST_AsMVT
+    public static final int EXTENT = 4096;
+    public static final int BUFFER = 64;
+
+    // période ouverte : bornes larges plutôt que des conditions nulles, pour garder un plan unique
+    private static final LocalDateTime MIN_DATE_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE_TIME = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    private static final String TILE_SQL =
+            "WITH bounds AS (SELECT ST_TileEnvelope(?, ?, ?) AS tile, " +
+            "ST_Transform(ST_TileEnvelope(?, ?, ?, margin => " + ((double) BUFFER / EXTENT) + "), 4326) AS search), " +
+            "features AS (" +
+            "SELECT ST_AsMVTGeom(ST_Transform(%1$s, 3857), bounds.tile, " + EXTENT + ", " + BUFFER + ", true) AS geom, %2$s " +
+            "FROM %3$s " +
+            "JOIN vehicle v ON v.vehicle_id = t.vehicle_id " +
+            "CROSS JOIN bounds " +
+            "WHERE %6$s && bounds.search " +
+            "AND t.%4$s >= ? AND t.%4$s < ? " +
+            "AND (CAST(? AS BIGINT) IS NULL OR v.user_id = ?)) " +
+            "SELECT ST_AsMVT(features.*, '%5$s', " + EXTENT + ", 'geom') FROM features WHERE geom IS NOT NULL";
+
+    private static final Map<TileLayer, String> SQL = new EnumMap<>(TileLayer.class);
+
+    static {
+        SQL.put(TileLayer.POSITIONS, TILE_SQL.formatted(
+                "t.coordinate",
+                "t.position_id AS id, t.vehicle_id, v.vehicle_name, t.position_date_time::text AS date_time",
+                "position t",
+                "position_date_time",
+                TileLayer.POSITIONS.getLayerName(),
+                "t.coordinate"));
+        // niveau de détail lié en premier paramètre ; niveau absent : repli sur la ligne d'origine.
+        // Le niveau simplifié reste dans l'emprise de la ligne d'origine : le filtre && porte sur celle-ci (index GiST)
+        SQL.put(TileLayer.HISTORIES, TILE_SQL.formatted(
+                "COALESCE(l.summary_coordinate, t.summary_coordinate)",
+                "t.position_history_id AS id, t.vehicle_id, v.vehicle_name, t.position_date_time::text AS date_time",
+                "position_history t LEFT JOIN position_history_lod l " +
+                        "ON l.position_history_id = t.position_history_id AND l.lod_level = ?",
+                "position_date_time",
+                TileLayer.HISTORIES.getLayerName(),
+                "t.summary_coordinate"));
+        SQL.put(TileLayer.RECHARGES, TILE_SQL.formatted(
+                "t.recharge_point",
+                "t.recharge_id AS id, t.vehicle_id, v.vehicle_name, t.recharge_date_time::text AS date_time, " +
+                        "t.recharge_quantity::float8 AS quantity, t.recharge_price::float8 AS price",
+                "fuel_recharge t",
+                "recharge_date_time",
+                TileLayer.RECHARGES.getLayerName(),
+                "t.recharge_point"));
+        SQL.put(TileLayer.MAINTENANCES, TILE_SQL.formatted(
+                "t.maintenance_point",
+                "t.maintenance_id AS id, t.vehicle_id, v.vehicle_name, t.maintenance_date_time::text AS date_time, " +
+                        "t.maintenance_subject AS subject, t.maintenance_cost::float8 AS cost",
+                "maintenance t",
+                "maintenance_date_time",
+                TileLayer.MAINTENANCES.getLayerName(),
+                "t.maintenance_point"));
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VectorTileReader(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Tuile MVT de la couche, filtrée sur [from, to[ (bornes nulles : période ouverte) et sur le propriétaire
+     * des véhicules (null : tous) ; tableau vide si aucune entité ne tombe dans la tuile
+     */
+    public byte[] readTile(TileLayer layer, int z, int x, int y,
+                           LocalDateTime from, LocalDateTime to, Long userId) {
+        Timestamp start = Timestamp.valueOf(from != null ? from : MIN_DATE_TIME);
+        Timestamp end = Timestamp.valueOf(to != null ? to : MAX_DATE_TIME);
+        byte[] tile;
+        if (layer == TileLayer.HISTORIES) {
+            int level = PositionHistoryLodReader.levelForTolerance(PositionHistoryLodReader.toleranceForZoom(z));
+            tile = jdbcTemplate.queryForObject(SQL.get(layer), byte[].class,
+                    z, x, y, z, x, y, level, start, end, userId, userId);
+        } else {
+            tile = jdbcTemplate.queryForObject(SQL.get(layer), byte[].class,
+                    z, x, y, z, x, y, start, end, userId, userId);
+        }
+        return tile != null ? tile : new byte[0];
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +23,11 @@ public interface VehicleRepository extends JpaRepository<VehicleEntity, Long> {
 
     @Query("SELECT v FROM VehicleEntity v WHERE v.vehicleFuelLevel < :threshold")
     List<VehicleEntity> findVehiclesWithLowFuel(@Param("threshold") java.math.BigDecimal threshold);
+
+    // véhicules sans trajet en cours et, si minFuel est fourni, avec au moins ce niveau de carburant
+    @Query("SELECT v.vehicleId FROM VehicleEntity v WHERE v.vehicleId IN :vehicleIds " +
+            "AND (:minFuel IS NULL OR v.vehicleFuelLevel >= :minFuel) " +
+            "AND NOT EXISTS (SELECT t FROM TripEntity t WHERE t.vehicle = v AND t.arrivalDateTime IS NULL)")
+    List<Long> findAvailableVehicleIds(@Param("vehicleIds") Collection<Long> vehicleIds,
+                                       @Param("minFuel") java.math.BigDecimal minFuel);
 }
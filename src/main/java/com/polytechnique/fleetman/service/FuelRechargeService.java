@@ -5,6 +5,7 @@ import com.polytechnique.fleetman.dto.fuelrecharge.FuelRechargeDTO;
 import com.polytechnique.fleetman.entity.FuelRechargeEntity;
 import com.polytechnique.fleetman.entity.VehicleEntity;
 import com.polytechnique.fleetman.exception.ResourceNotFoundException;
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
 import com.polytechnique.fleetman.repository.FuelRechargeRepository;
 import com.polytechnique.fleetman.repository.VehicleRepository;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,7 @@ public class FuelRechargeService {
 
     private final FuelRechargeRepository fuelRechargeRepository;
     private final VehicleRepository vehicleRepository;
+    private final VectorTileCache vectorTileCache;
 
     @Transactional
     public FuelRechargeDTO createFuelRecharge(FuelRechargeCreateDTO fuelRechargeCreateDTO) {
@@ -38,6 +40,7 @@ public class FuelRechargeService {
         }
 
         FuelRechargeEntity saved = fuelRechargeRepository.save(fuelRecharge);
+        pointChanged(saved);
         return convertToDTO(saved);
     }
 
@@ -68,10 +71,18 @@ public class FuelRechargeService {
 
     @Transactional
     public void deleteFuelRecharge(Long rechargeId) {
-        if (!fuelRechargeRepository.existsById(rechargeId)) {
-            throw new ResourceNotFoundException("Recharge non trouvée");
+        FuelRechargeEntity fuelRecharge = fuelRechargeRepository.findById(rechargeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Recharge non trouvée"));
+        fuelRechargeRepository.delete(fuelRecharge);
+        pointChanged(fuelRecharge);
+    }
+
+    // les tuiles qui contiennent le point à sa date ne sont plus à jour
+    private void pointChanged(FuelRechargeEntity fuelRecharge) {
+        if (fuelRecharge.getRechargePoint() != null) {
+            vectorTileCache.dataChanged(TileLayer.RECHARGES, fuelRecharge.getRechargePoint().getEnvelopeInternal(),
+                    fuelRecharge.getRechargeDateTime(), fuelRecharge.getRechargeDateTime());
         }
-        fuelRechargeRepository.deleteById(rechargeId);
     }
 
     private FuelRechargeDTO convertToDTO(FuelRechargeEntity fuelRecharge) {
@@ -0,0 +1,220 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.notification.NotificationCreateDTO;
+import com.polytechnique.fleetman.entity.GeofenceEntity;
+import com.polytechnique.fleetman.entity.GeofenceRuleEntity;
+import com.polytechnique.fleetman.geometry.geofence.Geofence;
+import com.polytechnique.fleetman.geometry.geofence.GeofenceIndex;
+import com.polytechnique.fleetman.geometry.geofence.GeofenceRule;
+import com.polytechnique.fleetman.geometry.geofence.GeofenceTracker;
+import com.polytechnique.fleetman.geometry.geofence.GeofenceTransition;
+import com.polytechnique.fleetman.repository.GeofenceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Évaluation des zones (geofences) sur chaque position reçue par l'ingestion.
+ * Les zones et leurs règles sont tenues en mémoire dans un STRtree de polygones préparés, reconstruit
+ * à chaque modification ; une position n'est testée que contre les zones dont l'emprise la contient.
+ * Chaque entrée, sortie ou stationnement couvert par une règle crée une notification pour le propriétaire
+ * de la zone, dans la transaction d'enregistrement de la position ; la présence des véhicules
+ * n'est mise à jour qu'à la validation de cette transaction.
+ */
+@Slf4j
+@Component
+public class GeofenceEngine {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private final GeofenceRepository geofenceRepository;
+    private final NotificationService notificationService;
+    private final GeofenceTracker tracker = new GeofenceTracker();
+    private final GeofenceTracker.Listener<PositionTailCache.VehicleTail> notifier = this::notifyTransition;
+    private final Map<Long, DraftSynchronization> synchronizations = new ConcurrentHashMap<>();
+    private volatile GeofenceIndex index = GeofenceIndex.EMPTY;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final Map<GeofenceTransition, Counter> transitions = new EnumMap<>(GeofenceTransition.class);
+
+    public GeofenceEngine(GeofenceRepository geofenceRepository,
+                          NotificationService notificationService,
+                          MeterRegistry meterRegistry) {
+        this.geofenceRepository = geofenceRepository;
+        this.notificationService = notificationService;
+
+        FunctionCounter.builder("fleetman.geofence.evaluations", evaluations, LongAdder::sum)
+                .description("Positions évaluées contre les zones")
+                .register(meterRegistry);
+        Gauge.builder("fleetman.geofence.fences", this, engine -> engine.index.size())
+                .description("Zones chargées dans l'index en mémoire")
+                .register(meterRegistry);
+        for (GeofenceTransition transition : GeofenceTransition.values()) {
+            transitions.put(transition, Counter.builder("fleetman.geofence.transitions")
+                    .description("Transitions signalées par les zones")
+                    .tag("type", transition.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Recharge toutes les zones depuis la base et remplace l'index (les évaluations en cours finissent sur l'ancien) ;
+     * dans sa propre transaction, car appelé après le commit d'une modification de zone
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public void reload() {
+        List<Geofence> geofences = geofenceRepository.findAllWithRules().stream()
+                .filter(geofence -> !geofence.getRules().isEmpty())
+                .map(GeofenceEngine::toGeofence)
+                .toList();
+        index = new GeofenceIndex(geofences);
+        log.info("Zones chargées : {}", geofences.size());
+    }
+
+    /**
+     * Évalue une position du véhicule ; les transitions créent les notifications dans la transaction courante,
+     * et la nouvelle présence du véhicule n'est retenue qu'après son commit
+     */
+    public void evaluate(PositionTailCache.VehicleTail tail, double x, double y, LocalDateTime dateTime) {
+        evaluations.increment();
+        GeofenceIndex current = index;
+        if (current.size() == 0 || tail.getUserId() == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tracker.evaluate(current, tail.getVehicleId(), tail.getUserId(), tail.getVehicleType(),
+                    x, y, dateTime, tail, notifier);
+            return;
+        }
+        GeofenceTracker.Draft draft = synchronizations
+                .computeIfAbsent(tail.getVehicleId(), DraftSynchronization::new)
+                .transactionDraft();
+        tracker.evaluate(current, draft, tail.getUserId(), tail.getVehicleType(), x, y, dateTime, tail, notifier);
+    }
+
+    /**
+     * Oublie la présence du véhicule dans les zones (véhicule supprimé)
+     */
+    public void forget(Long vehicleId) {
+        synchronizations.remove(vehicleId);
+        tracker.forget(vehicleId);
+    }
+
+    /**
+     * Brouillon de présence d'un véhicule dans la transaction courante, installé après son commit et abandonné sinon.
+     * Une instance par véhicule, réutilisée d'une transaction à l'autre et liée à la transaction sous sa propre clé ;
+     * une seconde transaction simultanée du même véhicule prend une instance à usage unique, liée sous la même clé.
+     */
+    private final class DraftSynchronization implements TransactionSynchronization {
+        private final long vehicleId;
+        private final DraftSynchronization key;
+        private final AtomicBoolean active = new AtomicBoolean();
+        private GeofenceTracker.Draft draft;
+
+        private DraftSynchronization(Long vehicleId) {
+            this.vehicleId = vehicleId;
+            this.key = this;
+        }
+
+        private DraftSynchronization(DraftSynchronization key) {
+            this.vehicleId = key.vehicleId;
+            this.key = key;
+        }
+
+        GeofenceTracker.Draft transactionDraft() {
+            DraftSynchronization bound = (DraftSynchronization) TransactionSynchronizationManager.getResource(this);
+            if (bound != null) {
+                return bound.draft;
+            }
+            bound = active.compareAndSet(false, true) ? this : new DraftSynchronization(this);
+            bound.draft = tracker.draft(vehicleId);
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(bound);
+            return bound.draft;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(key);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(key, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == STATUS_COMMITTED) {
+                tracker.commit(draft);
+            } else {
+                tracker.discard(draft);
+            }
+            draft = null;
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            if (key == this) {
+                active.set(false);
+            }
+        }
+    }
+
+    private void notifyTransition(Geofence geofence, GeofenceTransition transition,
+                                  PositionTailCache.VehicleTail tail, LocalDateTime dateTime) {
+        transitions.get(transition).increment();
+        String action = switch (transition) {
+            case ENTER -> "est entré dans";
+            case EXIT -> "est sorti de";
+            case DWELL -> "stationne dans";
+        };
+        String subject = switch (transition) {
+            case ENTER -> "Entrée dans la zone ";
+            case EXIT -> "Sortie de la zone ";
+            case DWELL -> "Stationnement prolongé dans la zone ";
+        };
+        notificationService.createNotification(new NotificationCreateDTO(
+                truncate(subject + geofence.getName()),
+                "Le véhicule " + tail.getVehicleName() + " " + action + " la zone " + geofence.getName()
+                        + " le " + dateTime.format(FORMAT),
+                geofence.getUserId()));
+    }
+
+    private static String truncate(String subject) {
+        return subject.length() <= 200 ? subject : subject.substring(0, 200);
+    }
+
+    private static Geofence toGeofence(GeofenceEntity entity) {
+        List<GeofenceRule> rules = entity.getRules().stream()
+                .map(GeofenceEngine::toRule)
+                .toList();
+        return new Geofence(entity.getGeofenceId(), entity.getGeofenceName(), entity.getUser().getUserId(),
+                entity.getGeofenceArea(), rules);
+    }
+
+    private static GeofenceRule toRule(GeofenceRuleEntity rule) {
+        return new GeofenceRule(
+                rule.getVehicle() != null ? rule.getVehicle().getVehicleId() : null,
+                rule.getVehicleType(),
+                Boolean.TRUE.equals(rule.getOnEnter()),
+                Boolean.TRUE.equals(rule.getOnExit()),
+                rule.getDwellMinutes() != null ? rule.getDwellMinutes() * 60L : 0L);
+    }
+}
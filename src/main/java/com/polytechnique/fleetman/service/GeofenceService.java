@@ -0,0 +1,128 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.geofence.GeofenceCreateDTO;
+import com.polytechnique.fleetman.dto.geofence.GeofenceDTO;
+import com.polytechnique.fleetman.dto.geofence.GeofenceRuleDTO;
+import com.polytechnique.fleetman.entity.GeofenceEntity;
+import com.polytechnique.fleetman.entity.GeofenceRuleEntity;
+import com.polytechnique.fleetman.entity.UserEntity;
+import com.polytechnique.fleetman.entity.VehicleEntity;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.exception.ResourceNotFoundException;
+import com.polytechnique.fleetman.repository.GeofenceRepository;
+import com.polytechnique.fleetman.repository.UserRepository;
+import com.polytechnique.fleetman.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class GeofenceService {
+
+    private final GeofenceRepository geofenceRepository;
+    private final UserRepository userRepository;
+    private final VehicleRepository vehicleRepository;
+    private final GeofenceEngine geofenceEngine;
+
+    @Transactional
+    public GeofenceDTO createGeofence(GeofenceCreateDTO geofenceCreateDTO) {
+        UserEntity user = userRepository.findById(geofenceCreateDTO.getUserId())
+                .orElseThrow(() -> new ResourceNotFoundException("Utilisateur non trouvé"));
+        if (!geofenceCreateDTO.getGeofenceArea().isValid()) {
+            throw new BadRequestException("Le polygone de la zone est invalide");
+        }
+
+        GeofenceEntity geofence = new GeofenceEntity();
+        geofence.setGeofenceName(geofenceCreateDTO.getGeofenceName());
+        geofence.setGeofenceArea(geofenceCreateDTO.getGeofenceArea());
+        geofence.setUser(user);
+
+        for (GeofenceRuleDTO ruleDTO : geofenceCreateDTO.getRules()) {
+            GeofenceRuleEntity rule = new GeofenceRuleEntity();
+            if (ruleDTO.getVehicleId() != null) {
+                VehicleEntity vehicle = vehicleRepository.findById(ruleDTO.getVehicleId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Véhicule non trouvé"));
+                // une zone ne surveille que les véhicules de son propriétaire
+                if (!vehicle.getUser().getUserId().equals(user.getUserId())) {
+                    throw new BadRequestException("Le véhicule n'appartient pas au propriétaire de la zone");
+                }
+                rule.setVehicle(vehicle);
+            } else {
+                rule.setVehicleType(ruleDTO.getVehicleType());
+            }
+            rule.setOnEnter(ruleDTO.getOnEnter() == null || ruleDTO.getOnEnter());
+            rule.setOnExit(ruleDTO.getOnExit() == null || ruleDTO.getOnExit());
+            rule.setDwellMinutes(ruleDTO.getDwellMinutes());
+            rule.setGeofence(geofence);
+            geofence.getRules().add(rule);
+        }
+
+        GeofenceEntity savedGeofence = geofenceRepository.save(geofence);
+        reloadAfterCommit();
+        return convertToDTO(savedGeofence);
+    }
+
+    @Transactional(readOnly = true)
+    public GeofenceDTO getGeofenceById(Long geofenceId) {
+        GeofenceEntity geofence = geofenceRepository.findById(geofenceId)
+                .orElseThrow(() -> new ResourceNotFoundException("Zone non trouvée"));
+        return convertToDTO(geofence);
+    }
+
+    @Transactional(readOnly = true)
+    public List<GeofenceDTO> getGeofencesByUserId(Long userId) {
+
+        UserEntity user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Utilisateur non trouvé"));
+
+        return geofenceRepository.findByUser_UserId(userId).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void deleteGeofence(Long geofenceId) {
+        if (!geofenceRepository.existsById(geofenceId)) {
+            throw new ResourceNotFoundException("Zone non trouvée");
+        }
+        geofenceRepository.deleteById(geofenceId);
+        reloadAfterCommit();
+    }
+
+    // l'index en mémoire n'est reconstruit qu'une fois la modification visible en base
+    private void reloadAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                geofenceEngine.reload();
+            }
+        });
+    }
+
+    private GeofenceDTO convertToDTO(GeofenceEntity geofence) {
+        List<GeofenceRuleDTO> rules = geofence.getRules().stream()
+                .map(rule -> new GeofenceRuleDTO(
+                        rule.getGeofenceRuleId(),
+                        rule.getVehicle() != null ? rule.getVehicle().getVehicleId() : null,
+                        rule.getVehicleType(),
+                        rule.getOnEnter(),
+                        rule.getOnExit(),
+                        rule.getDwellMinutes()))
+                .collect(Collectors.toList());
+        return new GeofenceDTO(
+                geofence.getGeofenceId(),
+                geofence.getGeofenceName(),
+                geofence.getGeofenceArea(),
+                geofence.getUser().getUserId(),
+                rules,
+                geofence.getCreatedAt(),
+                geofence.getUpdatedAt()
+        );
+    }
+}
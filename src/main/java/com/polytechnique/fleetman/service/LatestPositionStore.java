@@ -0,0 +1,297 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import com.polytechnique.fleetman.dto.position.PositionDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * État courant de la flotte en mémoire : dernière position enregistrée de chaque véhicule,
+ * avec vitesse et cap déduits des deux dernières positions.
+ * Tenu à jour par l'ingestion, chargé depuis la base au démarrage, puis à la demande pour les véhicules absents.
+ * Chaque changement est reporté dans l'index spatial des véhicules ({@link VehicleSpatialIndex}).
+ */
+@Slf4j
+@Component
+public class LatestPositionStore {
+
+    // deux dernières positions de chaque véhicule (de la plus ancienne à la plus récente) ;
+    // le parcours de l'index (vehicle_id, position_date_time DESC) s'arrête à deux lignes par véhicule
+    private static final String LAST_TWO_SQL = """
+            SELECT v.vehicle_id, v.vehicle_name, p.position_id,
+                   ST_X(p.coordinate) AS x, ST_Y(p.coordinate) AS y, p.position_date_time
+            FROM vehicle v
+            %s JOIN LATERAL (
+                SELECT position_id, coordinate, position_date_time
+                FROM position
+                WHERE position.vehicle_id = v.vehicle_id
+                ORDER BY position_date_time DESC
+                LIMIT 2
+            ) p ON true
+            """;
+    private static final String WARM_SQL = LAST_TWO_SQL.formatted("INNER");
+    // chargement à la demande : un véhicule existant sans position ressort avec des colonnes de position nulles,
+    // un identifiant inconnu ne ressort pas (et n'est pas mémorisé)
+    private static final String LOAD_SQL = LAST_TWO_SQL.formatted("LEFT") + " WHERE v.vehicle_id = ANY(?)";
+    private static final String ORDER_BY = " ORDER BY v.vehicle_id, p.position_date_time";
+
+    private static final double RAYON_TERRE_METRES = 6_371_008.8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PositionStreamHub positionStreamHub;
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final boolean warmOnStartup;
+    private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+
+    // Optional.empty() : véhicule existant sans position (évite de réinterroger la base à chaque appel) ;
+    // un identifiant inconnu n'est jamais mémorisé, la taille reste bornée par le nombre de véhicules
+    private final Map<Long, Optional<LatestPositionDTO>> latest = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LatestPositionStore(JdbcTemplate jdbcTemplate,
+                               PositionStreamHub positionStreamHub,
+                               VehicleSpatialIndex vehicleSpatialIndex,
+                               MeterRegistry meterRegistry,
+                               @Value("${fleetman.position.latest.warm-on-startup:true}") boolean warmOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.positionStreamHub = positionStreamHub;
+        this.vehicleSpatialIndex = vehicleSpatialIndex;
+        this.warmOnStartup = warmOnStartup;
+
+        FunctionCounter.builder("fleetman.position.latest.hits", hits, LongAdder::sum)
+                .description("Dernières positions servies depuis la mémoire")
+                .register(meterRegistry);
+        FunctionCounter.builder("fleetman.position.latest.misses", misses, LongAdder::sum)
+                .description("Dernières positions chargées depuis la base")
+                .register(meterRegistry);
+        Gauge.builder("fleetman.position.latest.size", latest, Map::size)
+                .description("Nombre de véhicules présents dans l'état courant")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (!warmOnStartup) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<LatestPositionDTO> loaded = query(WARM_SQL + ORDER_BY);
+        log.info("État courant de la flotte chargé : {} véhicules en {} ms",
+                loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Dernière position du véhicule, vide s'il n'en a aucune (ou s'il n'existe pas)
+     */
+    public Optional<LatestPositionDTO> getLatest(Long vehicleId) {
+        Optional<LatestPositionDTO> cached = latest.get(vehicleId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        load(List.of(vehicleId));
+        return latest.getOrDefault(vehicleId, Optional.empty());
+    }
+
+    /**
+     * Dernières positions des véhicules demandés, dans l'ordre de la demande ;
+     * les véhicules absents de la mémoire sont chargés en une seule requête
+     */
+    public List<LatestPositionDTO> getLatest(Collection<Long> vehicleIds) {
+        Set<Long> ids = new LinkedHashSet<>(vehicleIds);
+        List<Long> absents = ids.stream().filter(id -> !latest.containsKey(id)).toList();
+        hits.add(ids.size() - absents.size());
+        if (!absents.isEmpty()) {
+            misses.add(absents.size());
+            load(absents);
+        }
+
+        List<LatestPositionDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            latest.getOrDefault(id, Optional.empty()).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Dernières positions actuellement en mémoire (tous véhicules)
+     */
+    public List<LatestPositionDTO> snapshot() {
+        return latest.values().stream()
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    /**
+     * Met à jour l'état du véhicule avec une position enregistrée et la diffuse aux abonnés du flux en direct.
+     * Dans une transaction, la mise à jour n'a lieu qu'après le commit.
+     */
+    public void record(PositionDTO position) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recordNow(position);
+                }
+            });
+        } else {
+            recordNow(position);
+        }
+    }
+
+    /**
+     * Oublie l'état du véhicule puis le recharge depuis la base, pour que l'index spatial reste complet ;
+     * dans une transaction, le rechargement a lieu après le commit
+     */
+    public void invalidate(Long vehicleId) {
+        forget(vehicleId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget(vehicleId);
+                    load(List.of(vehicleId));
+                }
+            });
+        } else {
+            load(List.of(vehicleId));
+        }
+    }
+
+    private void forget(Long vehicleId) {
+        latest.computeIfPresent(vehicleId, (id, current) -> {
+            vehicleSpatialIndex.remove(id);
+            return null;
+        });
+    }
+
+    private void recordNow(PositionDTO position) {
+        LatestPositionDTO updated = apply(position.getVehicleId(), position.getVehicleName(), position.getPositionId(),
+                position.getCoordinate().getX(), position.getCoordinate().getY(), position.getPositionDateTime());
+        // une position plus ancienne que l'état courant n'est pas diffusée
+        if (updated != null && updated.getPositionDateTime().equals(position.getPositionDateTime())) {
+            positionStreamHub.publish(updated);
+        }
+    }
+
+    private void load(List<Long> vehicleIds) {
+        query(LOAD_SQL + ORDER_BY, (Object) vehicleIds.toArray(new Long[0]));
+    }
+
+    private List<LatestPositionDTO> query(String sql, Object... args) {
+        // lignes triées par véhicule puis par date : la seconde ligne d'un véhicule fournit vitesse et cap
+        Set<Long> vehicleIds = new LinkedHashSet<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            long vehicleId = rs.getLong("vehicle_id");
+            if (rs.getObject("position_id") == null) {
+                // véhicule existant sans position : mémorisé comme tel
+                latest.putIfAbsent(vehicleId, Optional.empty());
+            } else {
+                applyRow(rs);
+            }
+            vehicleIds.add(vehicleId);
+        }, args);
+        return vehicleIds.stream()
+                .map(id -> latest.getOrDefault(id, Optional.empty()))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    private LatestPositionDTO applyRow(ResultSet rs) throws SQLException {
+        return apply(
+                rs.getLong("vehicle_id"),
+                rs.getString("vehicle_name"),
+                rs.getLong("position_id"),
+                rs.getDouble("x"),
+                rs.getDouble("y"),
+                rs.getTimestamp("position_date_time").toLocalDateTime());
+    }
+
+    private LatestPositionDTO apply(Long vehicleId, String vehicleName, Long positionId,
+                                    double x, double y, LocalDateTime dateTime) {
+        return latest.compute(vehicleId, (id, current) -> {
+            LatestPositionDTO previous = current != null ? current.orElse(null) : null;
+            // une position plus ancienne que l'état courant (import d'historique, rechargement) ne le remplace pas
+            if (previous != null && dateTime.isBefore(previous.getPositionDateTime())) {
+                return current;
+            }
+
+            Double speedKmh = null;
+            Double heading = null;
+            if (previous != null) {
+                double lon1 = previous.getCoordinate().getX();
+                double lat1 = previous.getCoordinate().getY();
+                long millis = Duration.between(previous.getPositionDateTime(), dateTime).toMillis();
+                if (millis > 0) {
+                    speedKmh = distanceMetres(lon1, lat1, x, y) / millis * 3_600.0;
+                    heading = cap(lon1, lat1, x, y);
+                } else {
+                    speedKmh = previous.getSpeedKmh();
+                    heading = previous.getHeading();
+                }
+            }
+
+            LatestPositionDTO updated = new LatestPositionDTO(
+                    vehicleId,
+                    vehicleName,
+                    positionId,
+                    geometryFactory.createPoint(new Coordinate(x, y)),
+                    dateTime,
+                    speedKmh,
+                    heading);
+            // sous le verrou du véhicule : l'index ne peut pas recevoir deux positions dans le désordre
+            vehicleSpatialIndex.update(updated);
+            return Optional.of(updated);
+        }).orElse(null);
+    }
+
+    // distance orthodromique (formule de haversine)
+    static double distanceMetres(double lon1, double lat1, double lon2, double lat2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dPhi = phi2 - phi1;
+        double dLambda = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dPhi / 2) * Math.sin(dPhi / 2)
+                + Math.cos(phi1) * Math.cos(phi2) * Math.sin(dLambda / 2) * Math.sin(dLambda / 2);
+        return 2 * RAYON_TERRE_METRES * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    // cap initial de la route orthodromique, en degrés depuis le nord
+    private static double cap(double lon1, double lat1, double lon2, double lat2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double dLambda = Math.toRadians(lon2 - lon1);
+        double y = Math.sin(dLambda) * Math.cos(phi2);
+        double x = Math.cos(phi1) * Math.sin(phi2) - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLambda);
+        return (Math.toDegrees(Math.atan2(y, x)) + 360.0) % 360.0;
+    }
+}
@@ -5,6 +5,7 @@ import com.polytechnique.fleetman.dto.maintenance.MaintenanceDTO;
 import com.polytechnique.fleetman.entity.MaintenanceEntity;
 import com.polytechnique.fleetman.entity.VehicleEntity;
 import com.polytechnique.fleetman.exception.ResourceNotFoundException;
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
 import com.polytechnique.fleetman.repository.MaintenanceRepository;
 import com.polytechnique.fleetman.repository.VehicleRepository;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,7 @@ public class MaintenanceService {
 
     private final MaintenanceRepository maintenanceRepository;
     private final VehicleRepository vehicleRepository;
+    private final VectorTileCache vectorTileCache;
 
     @Transactional
     public MaintenanceDTO createMaintenance(MaintenanceCreateDTO maintenanceCreateDTO) {
@@ -38,6 +40,7 @@ public class MaintenanceService {
         }
 
         MaintenanceEntity saved = maintenanceRepository.save(maintenance);
+        pointChanged(saved);
         return convertToDTO(saved);
     }
 
@@ -68,10 +71,18 @@ public class MaintenanceService {
 
     @Transactional
     public void deleteMaintenance(Long maintenanceId) {
-        if (!maintenanceRepository.existsById(maintenanceId)) {
-            throw new ResourceNotFoundException("Maintenance non trouvée");
+        MaintenanceEntity maintenance = maintenanceRepository.findById(maintenanceId)
+                .orElseThrow(() -> new ResourceNotFoundException("Maintenance non trouvée"));
+        maintenanceRepository.delete(maintenance);
+        pointChanged(maintenance);
+    }
+
+    // les tuiles qui contiennent le point à sa date ne sont plus à jour
+    private void pointChanged(MaintenanceEntity maintenance) {
+        if (maintenance.getMaintenancePoint() != null) {
+            vectorTileCache.dataChanged(TileLayer.MAINTENANCES, maintenance.getMaintenancePoint().getEnvelopeInternal(),
+                    maintenance.getMaintenanceDateTime(), maintenance.getMaintenanceDateTime());
         }
-        maintenanceRepository.deleteById(maintenanceId);
     }
 
     private MaintenanceDTO convertToDTO(MaintenanceEntity maintenance) {
@@ -0,0 +1,84 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.repository.PositionBulkWriter.PositionRow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lecture paresseuse d'un fichier CSV de positions, ligne par ligne :
+ * vehicle_id,longitude,latitude,position_date_time (date au format ISO, ex. 2024-01-15T14:30:00).
+ * Une ligne d'en-tête optionnelle est ignorée.
+ */
+class PositionCsvReader implements Iterator<PositionRow> {
+
+    private final BufferedReader reader;
+    private PositionRow next;
+    private long lineNumber;
+
+    PositionCsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public PositionRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PositionRow row = next;
+        next = null;
+        return row;
+    }
+
+    private PositionRow readNext() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || (lineNumber == 1 && line.startsWith("vehicle_id"))) {
+                    continue;
+                }
+                return parse(line);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PositionRow parse(String line) {
+        String[] fields = line.split(",");
+        if (fields.length != 4) {
+            throw new BadRequestException("Ligne " + lineNumber + " : 4 champs attendus (vehicle_id,longitude,latitude,position_date_time)");
+        }
+        try {
+            long vehicleId = Long.parseLong(fields[0].strip());
+            double longitude = Double.parseDouble(fields[1].strip());
+            double latitude = Double.parseDouble(fields[2].strip());
+            LocalDateTime positionDateTime = LocalDateTime.parse(fields[3].strip());
+
+            // écrit ainsi pour refuser aussi NaN, que Double.parseDouble accepte
+            if (!(longitude >= -180 && longitude <= 180) || !(latitude >= -90 && latitude <= 90)) {
+                throw new BadRequestException("Ligne " + lineNumber + " : coordonnées hors des bornes WGS84");
+            }
+            return new PositionRow(vehicleId, longitude, latitude, positionDateTime);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new BadRequestException("Ligne " + lineNumber + " : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Curseur opaque de pagination des positions : clé (date, ID) de la dernière position d'une page.
+ * La page suivante reprend strictement après cette clé, quel que soit le nombre de pages déjà lues.
+ */
+public record PositionCursor(LocalDateTime positionDateTime, long positionId) {
+
+    public String encode() {
+        String key = positionDateTime + "_" + positionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PositionCursor decode(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf('_');
+            return new PositionCursor(
+                    LocalDateTime.parse(key.substring(0, separator)),
+                    Long.parseLong(key.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Curseur de pagination invalide");
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.polytechnique.fleetman.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytechnique.fleetman.dto.position.PositionExportFormat;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.exception.ResourceNotFoundException;
+import com.polytechnique.fleetman.geometry.encoding.DeltaEncoder;
+import com.polytechnique.fleetman.geometry.encoding.PolylineEncoder;
+import com.polytechnique.fleetman.repository.PositionExportRow;
+import com.polytechnique.fleetman.repository.PositionRepository;
+import com.polytechnique.fleetman.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import org.locationtech.jts.geom.Point;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export de la trace complète d'un véhicule (plusieurs mois, millions de positions).
+ * Les lignes sont lues par un curseur serveur (PositionRepository.EXPORT_FETCH_SIZE lignes par aller-retour)
+ * et écrites une à une dans la réponse : la mémoire utilisée ne dépend pas de la taille de l'export.
+ */
+@Service
+@RequiredArgsConstructor
+public class PositionExportService {
+
+    private static final LocalDateTime DEBUT_HISTORIQUE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_HISTORIQUE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int EXPORT_BUFFER_SIZE = 16 * 1024;
+
+    private final PositionRepository positionRepository;
+    private final VehicleRepository vehicleRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Vérifie la demande avant l'envoi des en-têtes : une fois l'écriture commencée, le statut ne peut plus changer
+     */
+    @Transactional(readOnly = true)
+    public void checkExport(Long vehicleId, LocalDateTime from, LocalDateTime to) {
+        if (!vehicleRepository.existsById(vehicleId)) {
+            throw new ResourceNotFoundException("Véhicule non trouvé");
+        }
+        if (!start(from).isBefore(end(to))) {
+            throw new BadRequestException("La date de début doit précéder la date de fin");
+        }
+    }
+
+    /**
+     * Écrit la trace du véhicule sur [from, to[ dans l'ordre chronologique ; le curseur reste ouvert
+     * (dans une transaction en lecture seule) le temps de l'écriture. precision ne concerne que POLYLINE et DELTA.
+     */
+    @Transactional(readOnly = true)
+    public long exportTrack(Long vehicleId, LocalDateTime from, LocalDateTime to,
+                            PositionExportFormat format, int precision, OutputStream out) throws IOException {
+        try (Stream<PositionExportRow> rows = positionRepository.streamByVehicleIdAndPeriod(vehicleId, start(from), end(to))) {
+            return switch (format) {
+                case NDJSON, GEOJSON -> writeJson(rows, vehicleId, format, out);
+                case POLYLINE -> writePolyline(rows, precision, out);
+                case DELTA -> writeDelta(rows, precision, out);
+            };
+        }
+    }
+
+    private long writeJson(Stream<PositionExportRow> rows, Long vehicleId, PositionExportFormat format,
+                           OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            // le flux de sortie est fermé par l'appelant (compression éventuelle à terminer)
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // NDJSON : chaque ligne se termine par un saut de ligne, sans séparateur supplémentaire
+            generator.setRootValueSeparator(null);
+            if (format == PositionExportFormat.GEOJSON) {
+                generator.writeStartObject();
+                generator.writeStringField("type", "FeatureCollection");
+                generator.writeNumberField("vehicleId", vehicleId);
+                generator.writeArrayFieldStart("features");
+            }
+            Iterator<PositionExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PositionExportRow row = iterator.next();
+                if (format == PositionExportFormat.GEOJSON) {
+                    writeFeature(generator, row);
+                } else {
+                    writeLine(generator, vehicleId, row);
+                }
+                // le tampon du générateur est vidé vers la réponse à chaque paquet de lignes lu
+                if (++count % PositionRepository.EXPORT_FETCH_SIZE == 0) {
+                    generator.flush();
+                }
+            }
+            if (format == PositionExportFormat.GEOJSON) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        }
+        return count;
+    }
+
+    private static long writePolyline(Stream<PositionExportRow> rows, int precision, OutputStream out) throws IOException {
+        PolylineEncoder encoder = new PolylineEncoder(precision);
+        OutputStream buffered = new BufferedOutputStream(StreamUtils.nonClosing(out), EXPORT_BUFFER_SIZE);
+        long count = 0;
+        Iterator<PositionExportRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            Point point = iterator.next().coordinate();
+            encoder.add(point.getX(), point.getY(), buffered);
+            count++;
+        }
+        buffered.flush();
+        return count;
+    }
+
+    private static long writeDelta(Stream<PositionExportRow> rows, int precision, OutputStream out) throws IOException {
+        DeltaEncoder encoder = new DeltaEncoder(precision, 3);
+        long count = 0;
+        // la fermeture termine le base64 (remplissage) sans fermer la réponse
+        try (OutputStream base64 = new BufferedOutputStream(
+                Base64.getEncoder().wrap(StreamUtils.nonClosing(out)), EXPORT_BUFFER_SIZE)) {
+            Iterator<PositionExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PositionExportRow row = iterator.next();
+                encoder.add(row.coordinate().getX(), row.coordinate().getY(),
+                        row.positionDateTime().toEpochSecond(ZoneOffset.UTC), base64);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writeLine(JsonGenerator generator, Long vehicleId, PositionExportRow row) throws IOException {
+        Point point = row.coordinate();
+        generator.writeStartObject();
+        generator.writeNumberField("positionId", row.positionId());
+        generator.writeNumberField("vehicleId", vehicleId);
+        generator.writeNumberField("longitude", point.getX());
+        generator.writeNumberField("latitude", point.getY());
+        generator.writeStringField("positionDateTime", row.positionDateTime().toString());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeFeature(JsonGenerator generator, PositionExportRow row) throws IOException {
+        Point point = row.coordinate();
+        generator.writeStartObject();
+        generator.writeStringField("type", "Feature");
+        generator.writeObjectFieldStart("geometry");
+        generator.writeStringField("type", "Point");
+        generator.writeArrayFieldStart("coordinates");
+        generator.writeNumber(point.getX());
+        generator.writeNumber(point.getY());
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("properties");
+        generator.writeNumberField("positionId", row.positionId());
+        generator.writeStringField("positionDateTime", row.positionDateTime().toString());
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static LocalDateTime start(LocalDateTime from) {
+        return from != null ? from : DEBUT_HISTORIQUE;
+    }
+
+    private static LocalDateTime end(LocalDateTime to) {
+        return to != null ? to : FIN_HISTORIQUE;
+    }
+}
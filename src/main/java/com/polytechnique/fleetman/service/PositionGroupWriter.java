@@ -0,0 +1,89 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.repository.PositionBulkWriter;
+import com.polytechnique.fleetman.repository.PositionBulkWriter.PositionRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Écriture d'un groupe de positions en une transaction, pour l'écriture différée et le journal.
+ * Une erreur de la base non transitoire (contrainte violée, ex. véhicule supprimé entre-temps) vient d'une ou
+ * plusieurs lignes fautives : le groupe est coupé en deux et chaque moitié réessayée, dans l'ordre et chacune
+ * dans sa transaction, jusqu'à isoler les lignes à écarter.
+ * Toute autre erreur (connexion, délai dépassé, flux COPY interrompu) arrête l'écriture : les moitiés déjà
+ * validées sont rendues comme écrites, et seules les lignes suivantes sont à réessayer.
+ */
+@Slf4j
+@Component
+public class PositionGroupWriter {
+
+    private final PositionBulkWriter positionBulkWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    public PositionGroupWriter(PositionBulkWriter positionBulkWriter, TransactionTemplate transactionTemplate) {
+        this.positionBulkWriter = positionBulkWriter;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Bilan d'un groupe : les processed premières lignes sont traitées (validées dans written, ou écartées
+     * dans rejected) ; si failure n'est pas nul, l'écriture s'est arrêtée et les lignes suivantes,
+     * dont aucune n'est validée, sont à réessayer
+     */
+    public record GroupWriteResult(List<PositionRow> written, List<PositionRow> rejected,
+                                   int processed, RuntimeException failure) {
+    }
+
+    /**
+     * Écrit le groupe en écartant les lignes fautives ; s'arrête à la première erreur qui ne vient pas des données
+     */
+    public GroupWriteResult write(List<PositionRow> rows) {
+        List<PositionRow> written = new ArrayList<>(rows.size());
+        List<PositionRow> rejected = new ArrayList<>();
+        RuntimeException failure = null;
+        try {
+            writeOrSplit(rows, written, rejected);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        // les moitiés sont traitées dans l'ordre : les lignes traitées forment un préfixe du groupe
+        return new GroupWriteResult(written, rejected, written.size() + rejected.size(), failure);
+    }
+
+    // refus de la base imputable aux lignes elles-mêmes ; une base indisponible ou une autre erreur
+    // (ex. UncheckedIOException du flux COPY) ne l'est pas
+    private static boolean isRowFault(RuntimeException e) {
+        return e instanceof DataAccessException
+                && !(e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException);
+    }
+
+    private void writeOrSplit(List<PositionRow> rows, List<PositionRow> written, List<PositionRow> rejected) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> positionBulkWriter.write(rows.iterator()));
+            written.addAll(rows);
+        } catch (RuntimeException e) {
+            if (!isRowFault(e)) {
+                throw e;
+            }
+            if (rows.size() == 1) {
+                log.warn("Position écartée (véhicule {}, {}) : {}",
+                        rows.get(0).vehicleId(), rows.get(0).positionDateTime(), e.getMessage());
+                rejected.add(rows.get(0));
+                return;
+            }
+            int middle = rows.size() / 2;
+            writeOrSplit(rows.subList(0, middle), written, rejected);
+            writeOrSplit(rows.subList(middle, rows.size()), written, rejected);
+        }
+    }
+}
@@ -1,42 +1,91 @@
 package com.polytechnique.fleetman.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.polytechnique.fleetman.custom.PackedCoordinateReader;
+import com.polytechnique.fleetman.dto.positionhistory.EncodedPositionHistoryDTO;
 import com.polytechnique.fleetman.dto.positionhistory.PositionHistoryDTO;
+import com.polytechnique.fleetman.dto.positionhistory.PositionHistoryLodDTO;
 import com.polytechnique.fleetman.entity.PositionHistoryEntity;
 import com.polytechnique.fleetman.entity.VehicleEntity;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.geometry.encoding.DeltaEncoder;
+import com.polytechnique.fleetman.geometry.encoding.LineEncoding;
+import com.polytechnique.fleetman.geometry.encoding.PolylineEncoder;
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import com.polytechnique.fleetman.repository.PositionHistoryLodReader;
 import com.polytechnique.fleetman.repository.PositionHistoryRepository;
 import com.polytechnique.fleetman.repository.VehicleRepository;
-import lombok.RequiredArgsConstructor;
-import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class PositionHistoryService {
 
     private final PositionHistoryRepository positionHistoryRepository;
     private final VehicleRepository vehicleRepository;
+    private final PositionHistoryLodReader positionHistoryLodReader;
+    private final VectorTileCache vectorTileCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxVertices;
     private final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
 
-    @Transactional
-    public PositionHistoryDTO createPositionHistory(Long vehicleId, List<Coordinate> coordinates) {
-        VehicleEntity vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException("Véhicule non trouvé"));
+    public PositionHistoryService(PositionHistoryRepository positionHistoryRepository,
+                                  VehicleRepository vehicleRepository,
+                                  PositionHistoryLodReader positionHistoryLodReader,
+                                  VectorTileCache vectorTileCache,
+                                  ObjectMapper objectMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${fleetman.position-history.max-vertices:200000}") int maxVertices) {
+        this.positionHistoryRepository = positionHistoryRepository;
+        this.vehicleRepository = vehicleRepository;
+        this.positionHistoryLodReader = positionHistoryLodReader;
+        this.vectorTileCache = vectorTileCache;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.maxVertices = maxVertices;
+    }
 
-        if (coordinates == null || coordinates.size() < 2) {
-            throw new RuntimeException("Au moins 2 coordonnées sont nécessaires pour créer un LineString");
+    /**
+     * Crée un historique à partir du corps {"coordinates": [[longitude, latitude], ...]} lu en flux :
+     * les coordonnées vont directement dans une séquence compacte, sans liste ni Double intermédiaires.
+     * Le corps est lu hors transaction : la connexion n'est prise au pool que pour l'enregistrement,
+     * pas pendant la réception d'un envoi lent.
+     */
+    public PositionHistoryDTO createPositionHistory(Long vehicleId, InputStream body) throws IOException {
+        CoordinateSequence coordinates;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            coordinates = PackedCoordinateReader.readCoordinates(parser, maxVertices);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Corps JSON invalide : " + e.getOriginalMessage());
         }
 
-        LineString lineString = geometryFactory.createLineString(
-                coordinates.toArray(new Coordinate[0])
-        );
+        if (coordinates.size() < 2) {
+            throw new BadRequestException("Au moins 2 coordonnées sont nécessaires pour créer un LineString");
+        }
+
+        LineString lineString = geometryFactory.createLineString(coordinates);
+        return transactionTemplate.execute(status -> enregistrer(vehicleId, lineString));
+    }
+
+    private PositionHistoryDTO enregistrer(Long vehicleId, LineString lineString) {
+        VehicleEntity vehicle = vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new RuntimeException("Véhicule non trouvé"));
 
         PositionHistoryEntity positionHistory = new PositionHistoryEntity();
         positionHistory.setSummaryCoordinate(lineString);
@@ -44,6 +93,7 @@ public class PositionHistoryService {
         positionHistory.setVehicle(vehicle);
 
         PositionHistoryEntity saved = positionHistoryRepository.save(positionHistory);
+        historyChanged(saved);
         return convertToDTO(saved);
     }
 
@@ -68,12 +118,65 @@ public class PositionHistoryService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Historique dont la ligne est encodée en polyligne ou en écarts (réponse compacte)
+     */
+    @Transactional(readOnly = true)
+    public EncodedPositionHistoryDTO getEncodedPositionHistoryById(Long positionHistoryId, LineEncoding encoding, int precision) {
+        PositionHistoryEntity positionHistory = positionHistoryRepository.findById(positionHistoryId)
+                .orElseThrow(() -> new RuntimeException("Historique de position non trouvé"));
+        return convertToEncodedDTO(positionHistory, encoding, precision);
+    }
+
+    @Transactional(readOnly = true)
+    public List<EncodedPositionHistoryDTO> getAllEncodedPositionHistories(LineEncoding encoding, int precision) {
+        return positionHistoryRepository.findAll().stream()
+                .map(positionHistory -> convertToEncodedDTO(positionHistory, encoding, precision))
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<EncodedPositionHistoryDTO> getEncodedPositionHistoriesByVehicleId(Long vehicleId, LineEncoding encoding, int precision) {
+        return positionHistoryRepository.findByVehicle_VehicleId(vehicleId).stream()
+                .map(positionHistory -> convertToEncodedDTO(positionHistory, encoding, precision))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Historiques du véhicule simplifiés pour l'affichage : niveau de détail précalculé le plus grossier
+     * dont la tolérance ne dépasse pas toleranceMeters, découpés à l'emprise si elle est donnée
+     */
+    @Transactional(readOnly = true)
+    public List<PositionHistoryLodDTO> getPositionHistoriesByVehicleIdAtTolerance(Long vehicleId, double toleranceMeters,
+                                                                                  List<Double> bbox) {
+        Envelope envelope = bbox != null ? VehicleSpatialIndex.envelope(bbox) : null;
+        int level = PositionHistoryLodReader.levelForTolerance(toleranceMeters);
+        double levelTolerance = PositionHistoryLodReader.toleranceForLevel(level);
+        return positionHistoryLodReader.findByVehicleId(vehicleId, level, envelope).stream()
+                .map(row -> new PositionHistoryLodDTO(
+                        row.positionHistoryId(),
+                        row.summaryCoordinate(),
+                        level,
+                        levelTolerance,
+                        row.positionDateTime(),
+                        row.vehicleId(),
+                        row.vehicleName()))
+                .collect(Collectors.toList());
+    }
+
     @Transactional
     public void deletePositionHistory(Long positionHistoryId) {
-        if (!positionHistoryRepository.existsById(positionHistoryId)) {
-            throw new RuntimeException("Historique de position non trouvé");
-        }
-        positionHistoryRepository.deleteById(positionHistoryId);
+        PositionHistoryEntity positionHistory = positionHistoryRepository.findById(positionHistoryId)
+                .orElseThrow(() -> new RuntimeException("Historique de position non trouvé"));
+        positionHistoryRepository.delete(positionHistory);
+        historyChanged(positionHistory);
+    }
+
+    // les tuiles d'historiques qui recouvrent la ligne et sa date ne sont plus à jour
+    private void historyChanged(PositionHistoryEntity positionHistory) {
+        LocalDateTime dateTime = positionHistory.getPositionDateTime();
+        vectorTileCache.dataChanged(TileLayer.HISTORIES,
+                positionHistory.getSummaryCoordinate().getEnvelopeInternal(), dateTime, dateTime);
     }
 
     private PositionHistoryDTO convertToDTO(PositionHistoryEntity positionHistory) {
@@ -86,4 +189,24 @@ public class PositionHistoryService {
 
         return dto;
     }
-}
\ No newline at end of file
+
+    // encodage directement depuis la séquence de coordonnées de la ligne
+    private EncodedPositionHistoryDTO convertToEncodedDTO(PositionHistoryEntity positionHistory,
+                                                          LineEncoding encoding, int precision) {
+        CoordinateSequence sequence = positionHistory.getSummaryCoordinate().getCoordinateSequence();
+        String summary = switch (encoding) {
+            case POLYLINE -> PolylineEncoder.encode(sequence, precision);
+            case DELTA -> DeltaEncoder.encode(sequence, precision);
+            case GEOJSON -> throw new IllegalArgumentException("Encodage GeoJSON : utiliser PositionHistoryDTO");
+        };
+        return new EncodedPositionHistoryDTO(
+                positionHistory.getPositionHistoryId(),
+                summary,
+                encoding,
+                precision,
+                positionHistory.getPositionDateTime(),
+                positionHistory.getVehicle().getVehicleId(),
+                positionHistory.getVehicle().getVehicleName()
+        );
+    }
+}
@@ -0,0 +1,124 @@
+package com.polytechnique.fleetman.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sérialise l'ingestion des positions par véhicule.
+ * Chaque véhicule a sa boîte aux lettres, vidée par un thread virtuel : les positions d'un même véhicule
+ * sont traitées strictement dans l'ordre d'arrivée, celles de véhicules différents en parallèle.
+ * Les boîtes inactives sont libérées ; leur profondeur est exposée par partition (vehicleId modulo partitions).
+ */
+@Component
+public class PositionIngestDispatcher {
+
+    private final boolean ordered;
+    private final Map<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger[] partitionDepths;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PositionIngestDispatcher(MeterRegistry meterRegistry,
+                                    @Value("${fleetman.position.ingest.ordered:true}") boolean ordered,
+                                    @Value("${fleetman.position.ingest.partitions:16}") int partitions) {
+        this.ordered = ordered;
+        this.partitionDepths = new AtomicInteger[Math.max(1, partitions)];
+        for (int i = 0; i < partitionDepths.length; i++) {
+            partitionDepths[i] = new AtomicInteger();
+            Gauge.builder("fleetman.position.ingest.mailbox.depth", partitionDepths[i], AtomicInteger::get)
+                    .description("Positions en attente de traitement dans les boîtes aux lettres de la partition")
+                    .tag("partition", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        Gauge.builder("fleetman.position.ingest.mailboxes", mailboxes, Map::size)
+                .description("Véhicules ayant des positions en cours de traitement")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exécute la tâche dans la boîte aux lettres du véhicule et attend son résultat
+     */
+    public <T> T execute(Long vehicleId, Supplier<T> task) {
+        if (!ordered) {
+            return task.get();
+        }
+
+        AtomicInteger depth = partitionDepths[Math.floorMod(vehicleId.hashCode(), partitionDepths.length)];
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable job = () -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                depth.decrementAndGet();
+            }
+        };
+
+        depth.incrementAndGet();
+        // ajout atomique par clé : la boîte trouvée est toujours celle en service
+        Mailbox mailbox = mailboxes.compute(vehicleId, (id, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox();
+            target.queue.add(job);
+            return target;
+        });
+        if (mailbox.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(vehicleId, mailbox));
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private void drain(Long vehicleId, Mailbox mailbox) {
+        while (true) {
+            Runnable job;
+            while ((job = mailbox.queue.poll()) != null) {
+                job.run();
+            }
+
+            mailbox.scheduled.set(false);
+            // une position a pu arriver entre le dernier poll et la libération
+            if (!mailbox.queue.isEmpty() && mailbox.scheduled.compareAndSet(false, true)) {
+                continue;
+            }
+            mailboxes.computeIfPresent(vehicleId, (id, existing) ->
+                    existing == mailbox && existing.queue.isEmpty() && !existing.scheduled.get() ? null : existing);
+            return;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class Mailbox {
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+}
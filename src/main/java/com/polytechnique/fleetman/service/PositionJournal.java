@@ -0,0 +1,516 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.exception.IngestQueueFullException;
+import com.polytechnique.fleetman.repository.PositionBulkWriter.PositionRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal d'ingestion durable, en ajout seul, dans des segments de fichiers projetés en mémoire (mmap).
+ * Une position acceptée y est écrite avant son acquittement : elle survit à l'arrêt brutal de la JVM.
+ * Un thread de rejeu vide le journal vers la table position par groupes transactionnels et supprime
+ * les segments entièrement validés ; au démarrage, les positions non rejouées sont reprises.
+ * Le débit d'ingestion ne dépend ainsi plus de la disponibilité ni de la latence de commit de la base.
+ * Seules les erreurs transitoires (connexion, délai) bloquent le rejeu ; une position refusée par la base
+ * (contrainte violée) est isolée et mise au rebut dans dead-letter.csv, au format de l'import CSV.
+ * Le curseur validé avance avec chaque partie de groupe écrite : un rejeu repris ne réécrit rien.
+ *
+ * Segment : en-tête (magic, version, offset validé) puis enregistrements de taille fixe
+ * (vehicle_id, longitude, latitude, date en microsecondes, CRC32C, marqueur écrit en dernier).
+ */
+@Slf4j
+@Component
+public class PositionJournal implements SmartLifecycle {
+
+    private static final int MAGIC = 0x464D4A31; // "FMJ1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int COMMITTED_OFFSET_INDEX = 8;
+    private static final int RECORD_SIZE = 40;
+    private static final int RECORD_PAYLOAD_SIZE = 32;
+    private static final int RECORD_MARKER = 0x52454331; // "REC1"
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final String DEAD_LETTER_FILE = "dead-letter.csv";
+
+    private final PositionGroupWriter positionGroupWriter;
+    private final VectorTileCache vectorTileCache;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnAppend;
+    private final long flushIntervalMs;
+    private final int flushMaxRows;
+
+    private final DistributionSummary replaySize;
+    private final Timer replayLatency;
+    private final Counter deadLetters;
+
+    // écriture : protégée par le verrou (pas de synchronized : les appels viennent de threads virtuels)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C appendCrc = new CRC32C();
+    private Segment activeSegment;
+    private long nextSegmentIndex;
+
+    // lecture : réservée au thread de rejeu
+    private final CRC32C replayCrc = new CRC32C();
+    private Segment replaySegment;
+    private int replayOffset;
+
+    private final AtomicLong pendingRecords = new AtomicLong();
+    private final AtomicInteger segmentCount = new AtomicInteger();
+
+    private volatile boolean running;
+    private Thread replayThread;
+
+    public PositionJournal(PositionGroupWriter positionGroupWriter,
+                           VectorTileCache vectorTileCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${fleetman.position.journal.enabled:false}") boolean enabled,
+                           @Value("${fleetman.position.journal.directory:./data/position-journal}") String directory,
+                           @Value("${fleetman.position.journal.segment-size-bytes:67108864}") int segmentSize,
+                           @Value("${fleetman.position.journal.max-segments:64}") int maxSegments,
+                           @Value("${fleetman.position.journal.force-on-append:false}") boolean forceOnAppend,
+                           @Value("${fleetman.position.journal.flush-interval-ms:200}") long flushIntervalMs,
+                           @Value("${fleetman.position.journal.flush-max-rows:5000}") int flushMaxRows) {
+        this.positionGroupWriter = positionGroupWriter;
+        this.vectorTileCache = vectorTileCache;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        // un segment contient un nombre entier d'enregistrements
+        int records = Math.max(1, (segmentSize - HEADER_SIZE) / RECORD_SIZE);
+        this.segmentSize = HEADER_SIZE + records * RECORD_SIZE;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.forceOnAppend = forceOnAppend;
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.flushMaxRows = Math.max(1, flushMaxRows);
+
+        Gauge.builder("fleetman.position.journal.pending", pendingRecords, AtomicLong::get)
+                .description("Positions journalisées en attente de rejeu")
+                .register(meterRegistry);
+        Gauge.builder("fleetman.position.journal.segments", segmentCount, AtomicInteger::get)
+                .description("Segments du journal présents sur disque")
+                .register(meterRegistry);
+        this.replaySize = DistributionSummary.builder("fleetman.position.journal.replay.size")
+                .description("Nombre de positions rejouées par transaction")
+                .register(meterRegistry);
+        this.replayLatency = Timer.builder("fleetman.position.journal.replay.latency")
+                .description("Durée d'écriture d'un groupe de positions rejouées")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("fleetman.position.journal.dead_letters")
+                .description("Positions refusées par la base, déplacées dans le fichier de rebut")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Écrit la position dans le journal ; au retour, elle peut être acquittée
+     */
+    public void append(PositionRow row) {
+        if (!running) {
+            throw new IngestQueueFullException("Le journal d'ingestion des positions est arrêté");
+        }
+
+        lock.lock();
+        try {
+            Segment segment = activeSegment;
+            int offset = segment.limit;
+            if (offset + RECORD_SIZE > segmentSize) {
+                if (segmentCount.get() >= maxSegments) {
+                    throw new IngestQueueFullException("Le journal d'ingestion des positions est plein, réessayez plus tard");
+                }
+                segment = roll();
+                offset = segment.limit;
+            }
+
+            MappedByteBuffer buffer = segment.buffer;
+            buffer.putLong(offset, row.vehicleId());
+            buffer.putDouble(offset + 8, row.longitude());
+            buffer.putDouble(offset + 16, row.latitude());
+            buffer.putLong(offset + 24, toMicros(row.positionDateTime()));
+            appendCrc.reset();
+            appendCrc.update(buffer.slice(offset, RECORD_PAYLOAD_SIZE));
+            buffer.putInt(offset + RECORD_PAYLOAD_SIZE, (int) appendCrc.getValue());
+            // le marqueur est écrit en dernier : un enregistrement interrompu n'est jamais relu
+            buffer.putInt(offset + RECORD_PAYLOAD_SIZE + 4, RECORD_MARKER);
+            if (forceOnAppend) {
+                buffer.force(offset, RECORD_SIZE);
+            }
+
+            // publication (volatile) de l'enregistrement au thread de rejeu
+            segment.limit = offset + RECORD_SIZE;
+            pendingRecords.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir le journal des positions " + directory, e);
+        }
+        running = true;
+        replayThread = Thread.ofPlatform()
+                .name("position-journal-replay")
+                .start(this::replayLoop);
+    }
+
+    @Override
+    public void stop() {
+        if (replayThread == null) {
+            return;
+        }
+        running = false;
+        try {
+            // le rejeu continue tant que des positions sont en attente ; le reste sera repris au redémarrage
+            replayThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            for (Segment segment = replaySegment; segment != null; segment = segment.next) {
+                segment.buffer.force();
+                segment.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+        replayThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // même logique que l'écriture différée : arrêt après le serveur web, avant la fermeture de la base
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Rouvre les segments présents sur disque et repositionne les curseurs d'écriture et de rejeu
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        Segment previous = null;
+        long recovered = 0;
+        for (Path file : files) {
+            Segment segment = Segment.open(file);
+            if (segment.buffer.getInt(0) != MAGIC || segment.buffer.getInt(4) != VERSION) {
+                log.error("Segment de journal invalide ignoré : {}", file);
+                segment.close();
+                Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"));
+                continue;
+            }
+
+            int committed = (int) segment.buffer.getLong(COMMITTED_OFFSET_INDEX);
+            int end = committed;
+            while (end + RECORD_SIZE <= segment.buffer.capacity() && isValidRecord(segment.buffer, end, replayCrc)) {
+                end += RECORD_SIZE;
+            }
+            segment.limit = end;
+            recovered += (end - committed) / RECORD_SIZE;
+
+            if (previous == null) {
+                replaySegment = segment;
+                replayOffset = committed;
+            } else {
+                previous.sealed = true;
+                previous.next = segment;
+            }
+            previous = segment;
+            nextSegmentIndex = segment.index + 1;
+            segmentCount.incrementAndGet();
+        }
+
+        lock.lock();
+        try {
+            if (previous == null) {
+                activeSegment = createSegment();
+                replaySegment = activeSegment;
+                replayOffset = HEADER_SIZE;
+            } else {
+                activeSegment = previous;
+            }
+        } finally {
+            lock.unlock();
+        }
+        pendingRecords.set(recovered);
+        if (recovered > 0) {
+            log.info("{} positions journalisées non rejouées récupérées depuis {}", recovered, directory);
+        }
+    }
+
+    private Segment roll() {
+        Segment previous = activeSegment;
+        Segment segment = createSegment();
+        previous.sealed = true;
+        previous.next = segment;
+        activeSegment = segment;
+        return segment;
+    }
+
+    private Segment createSegment() {
+        Path file = directory.resolve(String.format("%020d%s", nextSegmentIndex++, SEGMENT_SUFFIX));
+        try {
+            Segment segment = Segment.create(file, segmentSize);
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(4, VERSION);
+            segment.buffer.putLong(COMMITTED_OFFSET_INDEX, HEADER_SIZE);
+            segment.buffer.force(0, HEADER_SIZE);
+            segment.limit = HEADER_SIZE;
+            segmentCount.incrementAndGet();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de créer le segment de journal " + file, e);
+        }
+    }
+
+    private void replayLoop() {
+        long backoffMs = flushIntervalMs;
+        List<PositionRow> batch = new ArrayList<>(flushMaxRows);
+        // segment et fin de chaque enregistrement du groupe : position à valider après un préfixe écrit
+        List<Segment> recordSegments = new ArrayList<>(flushMaxRows);
+        int[] recordEnds = new int[flushMaxRows];
+        while (running || pendingRecords.get() > 0) {
+            try {
+                Segment segment = replaySegment;
+                int offset = replayOffset;
+                List<Segment> passed = new ArrayList<>();
+                while (batch.size() < flushMaxRows) {
+                    if (offset + RECORD_SIZE <= segment.limit) {
+                        batch.add(readRecord(segment.buffer, offset));
+                        offset += RECORD_SIZE;
+                        recordEnds[recordSegments.size()] = offset;
+                        recordSegments.add(segment);
+                    } else if (segment.sealed && offset + RECORD_SIZE > segment.limit && segment.next != null) {
+                        passed.add(segment);
+                        segment = segment.next;
+                        offset = HEADER_SIZE;
+                    } else {
+                        break;
+                    }
+                }
+
+                if (batch.isEmpty()) {
+                    // segments récupérés au démarrage déjà entièrement validés
+                    if (!passed.isEmpty()) {
+                        commit(segment, offset, passed);
+                    }
+                    if (!running) {
+                        break;
+                    }
+                    Thread.sleep(flushIntervalMs);
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                PositionGroupWriter.GroupWriteResult result = positionGroupWriter.write(batch);
+                replayLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                replaySize.record(result.written().size());
+                result.written().forEach(row ->
+                        vectorTileCache.positionWritten(row.longitude(), row.latitude(), row.positionDateTime()));
+                // lignes refusées (ex. véhicule supprimé) : mises au rebut, le rejeu les dépasse
+                if (!result.rejected().isEmpty()) {
+                    deadLetter(result.rejected());
+                }
+
+                if (result.failure() != null) {
+                    // moitiés déjà validées : le curseur avance jusqu'à elles pour ne pas les réécrire
+                    if (result.processed() > 0) {
+                        Segment reached = recordSegments.get(result.processed() - 1);
+                        commit(reached, recordEnds[result.processed() - 1],
+                                passed.stream().filter(done -> done.index < reached.index).toList());
+                        pendingRecords.addAndGet(-result.processed());
+                    }
+                    throw result.failure();
+                }
+                commit(segment, offset, passed);
+                pendingRecords.addAndGet(-batch.size());
+                backoffMs = flushIntervalMs;
+
+                if (batch.size() < flushMaxRows) {
+                    Thread.sleep(flushIntervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // base indisponible (erreur transitoire) : les positions restent dans le journal et seront rejouées
+                log.warn("Échec du rejeu du journal des positions, nouvel essai dans {} ms : {}", backoffMs, e.getMessage());
+                if (!running) {
+                    break;
+                }
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoffMs = Math.min(backoffMs * 2, TimeUnit.SECONDS.toMillis(30));
+            } finally {
+                batch.clear();
+                recordSegments.clear();
+            }
+        }
+    }
+
+    /**
+     * Ajoute les positions refusées au fichier de rebut, au format de l'import CSV pour pouvoir les réimporter
+     */
+    private void deadLetter(List<PositionRow> rows) {
+        deadLetters.increment(rows.size());
+        log.error("{} positions du journal refusées par la base, mises au rebut dans {}",
+                rows.size(), directory.resolve(DEAD_LETTER_FILE));
+        StringBuilder lines = new StringBuilder();
+        for (PositionRow row : rows) {
+            lines.append(row.vehicleId()).append(',')
+                    .append(row.longitude()).append(',')
+                    .append(row.latitude()).append(',')
+                    .append(row.positionDateTime()).append('\n');
+        }
+        try {
+            Files.writeString(directory.resolve(DEAD_LETTER_FILE), lines,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("Impossible d'écrire le fichier de rebut du journal, positions perdues : {}", lines, e);
+        }
+    }
+
+    // validation : on avance le curseur de rejeu et on supprime les segments entièrement rejoués
+    private void commit(Segment segment, int offset, List<Segment> passed) {
+        segment.buffer.putLong(COMMITTED_OFFSET_INDEX, offset);
+        if (forceOnAppend) {
+            segment.buffer.force(0, HEADER_SIZE);
+        }
+        replaySegment = segment;
+        replayOffset = offset;
+        for (Segment done : passed) {
+            done.delete();
+            segmentCount.decrementAndGet();
+        }
+    }
+
+    private PositionRow readRecord(MappedByteBuffer buffer, int offset) {
+        long micros = buffer.getLong(offset + 24);
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(
+                Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000,
+                ZoneOffset.UTC);
+        return new PositionRow(
+                buffer.getLong(offset),
+                buffer.getDouble(offset + 8),
+                buffer.getDouble(offset + 16),
+                dateTime
+        );
+    }
+
+    private static boolean isValidRecord(MappedByteBuffer buffer, int offset, CRC32C crc) {
+        if (buffer.getInt(offset + RECORD_PAYLOAD_SIZE + 4) != RECORD_MARKER) {
+            return false;
+        }
+        crc.reset();
+        crc.update(buffer.slice(offset, RECORD_PAYLOAD_SIZE));
+        return buffer.getInt(offset + RECORD_PAYLOAD_SIZE) == (int) crc.getValue();
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    private static final class Segment {
+
+        private final long index;
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        // fin des enregistrements écrits ; publiée après chaque ajout
+        private volatile int limit;
+        // plus aucun ajout : le rejeu peut passer au segment suivant
+        private volatile boolean sealed;
+        private volatile Segment next;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            String name = file.getFileName().toString();
+            this.index = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        static Segment open(Path file) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Fermeture du segment {} impossible : {}", file, e.getMessage());
+            }
+        }
+
+        void delete() {
+            close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Suppression du segment {} impossible : {}", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.polytechnique.fleetman.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Gestion des partitions mensuelles de la table position (voir V5__position_partitioning.sql).
+ * Crée à l'avance les partitions des prochains mois et applique la politique de rétention
+ * en détachant ou supprimant les partitions expirées, sans DELETE massif.
+ */
+@Slf4j
+@Component
+public class PositionPartitionManager {
+
+    public enum RetentionAction {
+        // la partition devient une table indépendante (archivage manuel possible)
+        DETACH,
+        // la partition et ses données sont supprimées
+        DROP
+    }
+
+    // verrou consultatif : une seule instance de l'application gère les partitions à la fois
+    private static final long ADVISORY_LOCK_KEY = 0x666C_6565_7470_6172L;
+    private static final String PARTITION_PREFIX = "position_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final RetentionAction retentionAction;
+
+    public PositionPartitionManager(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    @Value("${fleetman.position.partition.premake-months:3}") int premakeMonths,
+                                    @Value("${fleetman.position.partition.retention-months:0}") int retentionMonths,
+                                    @Value("${fleetman.position.partition.retention-action:DETACH}") RetentionAction retentionAction) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.retentionMonths = retentionMonths;
+        this.retentionAction = retentionAction;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintainPartitions();
+    }
+
+    @Scheduled(cron = "${fleetman.position.partition.cron:0 15 2 * * *}")
+    public void maintainPartitions() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean locked = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) {
+                    log.debug("Maintenance des partitions de position déjà en cours sur une autre instance");
+                    return;
+                }
+                createUpcomingPartitions();
+                if (retentionMonths > 0) {
+                    expirePartitions();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Échec de la maintenance des partitions de position", e);
+        }
+    }
+
+    private void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++) {
+            LocalDate month = current.plusMonths(i).atDay(1);
+            jdbcTemplate.queryForObject("SELECT create_position_partition(?)", String.class, month);
+        }
+    }
+
+    private void expirePartitions() {
+        // les partitions dont le mois se termine avant cette date sont expirées
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'position'::regclass AND c.relname LIKE 'position\\_p%'",
+                String.class);
+
+        for (String partition : partitions) {
+            YearMonth month = parseMonth(partition);
+            if (month == null || !month.isBefore(oldestKept)) {
+                continue;
+            }
+            jdbcTemplate.execute("ALTER TABLE position DETACH PARTITION " + partition);
+            if (retentionAction == RetentionAction.DROP) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+            log.info("Partition {} expirée ({})", partition, retentionAction);
+        }
+    }
+
+    private static YearMonth parseMonth(String partition) {
+        String suffix = partition.substring(PARTITION_PREFIX.length());
+        if (!suffix.matches("\\d{6}")) {
+            return null;
+        }
+        return YearMonth.parse(suffix, PARTITION_SUFFIX);
+    }
+}
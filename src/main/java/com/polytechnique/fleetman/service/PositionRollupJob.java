@@ -0,0 +1,297 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Compaction des positions brutes en historiques (position_history).
+ * Pour chaque tranche de temps close (heure ou jour), les positions de chaque véhicule sont assemblées
+ * en un LineString simplifié ; les positions brutes plus anciennes que l'horizon de rétention
+ * et déjà résumées sont ensuite supprimées par paquets bornés.
+ * Les positions arrivées depuis dans une tranche compactée (signalées par heure, voir V11 et V12) sont résumées
+ * avant d'être supprimées : une position n'est jamais purgée sans historique.
+ */
+@Slf4j
+@Component
+public class PositionRollupJob {
+
+    public enum Bucket {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Bucket(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    // verrou consultatif : une seule instance de l'application compacte à la fois
+    private static final long ADVISORY_LOCK_KEY = 0x666C_6565_7472_6F6CL;
+
+    // un véhicule n'ayant qu'une position dans la tranche est résumé par un segment de longueur nulle
+    private static final String ROLLUP_SQL =
+            "INSERT INTO position_history (summary_coordinate, position_date_time, vehicle_id, rollup_bucket) " +
+            "SELECT CASE WHEN fixes = 1 THEN ST_MakeLine(ST_StartPoint(line), ST_StartPoint(line)) " +
+            "            ELSE ST_SimplifyPreserveTopology(line, ?) END, " +
+            "       first_date_time, vehicle_id, ? " +
+            "FROM (SELECT ST_MakeLine(coordinate ORDER BY position_date_time) AS line, COUNT(*) AS fixes, " +
+            "             MIN(position_date_time) AS first_date_time, vehicle_id " +
+            "      FROM position " +
+            "      WHERE position_date_time >= ? AND position_date_time < ? " +
+            "      GROUP BY vehicle_id) s";
+
+    // marques effacées avant la lecture des positions : une position validée plus tard garde sa marque
+    private static final String CLEAR_DIRTY_SQL =
+            "DELETE FROM position_rollup_dirty WHERE hour_start >= ? AND hour_start < ? RETURNING hour_start";
+
+    // la clé primaire inclut position_date_time : la sous-requête reste limitée aux partitions expirées ;
+    // les heures signalées (positions pas encore résumées) sont conservées
+    private static final String DELETE_CHUNK_SQL =
+            "DELETE FROM position WHERE (position_id, position_date_time) IN (" +
+            "  SELECT p.position_id, p.position_date_time FROM position p WHERE p.position_date_time < ? " +
+            "  AND NOT EXISTS (SELECT 1 FROM position_rollup_dirty d " +
+            "                  WHERE d.hour_start = date_trunc('hour', p.position_date_time)) " +
+            "  LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorTileCache vectorTileCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Bucket bucket;
+    private final double simplifyTolerance;
+    private final long lagMinutes;
+    private final long retentionDays;
+    private final int maxBucketsPerRun;
+    private final int deleteChunkSize;
+
+    private final Counter summaries;
+    private final Counter deletedRows;
+
+    public PositionRollupJob(JdbcTemplate jdbcTemplate,
+                             VectorTileCache vectorTileCache,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${fleetman.position.rollup.enabled:false}") boolean enabled,
+                             @Value("${fleetman.position.rollup.bucket:HOUR}") Bucket bucket,
+                             @Value("${fleetman.position.rollup.simplify-tolerance:0.00005}") double simplifyTolerance,
+                             @Value("${fleetman.position.rollup.lag-minutes:30}") long lagMinutes,
+                             @Value("${fleetman.position.rollup.retention-days:30}") long retentionDays,
+                             @Value("${fleetman.position.rollup.max-buckets-per-run:48}") int maxBucketsPerRun,
+                             @Value("${fleetman.position.rollup.delete-chunk-size:5000}") int deleteChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vectorTileCache = vectorTileCache;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.bucket = bucket;
+        this.simplifyTolerance = simplifyTolerance;
+        this.lagMinutes = lagMinutes;
+        this.retentionDays = retentionDays;
+        this.maxBucketsPerRun = Math.max(1, maxBucketsPerRun);
+        this.deleteChunkSize = Math.max(1, deleteChunkSize);
+
+        this.summaries = Counter.builder("fleetman.position.rollup.summaries")
+                .description("Historiques (LineString) produits par la compaction")
+                .register(meterRegistry);
+        this.deletedRows = Counter.builder("fleetman.position.rollup.deleted")
+                .description("Positions brutes supprimées après compaction")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${fleetman.position.rollup.interval-ms:300000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime rolledUpUntil = rollup();
+            if (rolledUpUntil != null) {
+                rollupLateRows(rolledUpUntil);
+                purge(rolledUpUntil);
+            }
+        } catch (RuntimeException e) {
+            log.error("Échec de la compaction des positions", e);
+        }
+    }
+
+    /**
+     * Résume les tranches closes depuis le point de reprise ; retourne le nouveau point de reprise
+     */
+    private LocalDateTime rollup() {
+        // une tranche n'est résumée qu'une fois close depuis lag-minutes (positions arrivant en retard)
+        LocalDateTime horizon = LocalDateTime.now().minusMinutes(lagMinutes).truncatedTo(bucket.unit);
+
+        LocalDateTime checkpoint = null;
+        for (int i = 0; i < maxBucketsPerRun; i++) {
+            LocalDateTime done = transactionTemplate.execute(status -> {
+                if (!tryLock()) {
+                    return null;
+                }
+                LocalDateTime start = nextBucketStart();
+                if (start == null || !start.isBefore(horizon)) {
+                    return null;
+                }
+                LocalDateTime end = start.plus(1, bucket.unit);
+
+                clearDirty(start, end);
+                int lines = summarize(start, start, end);
+                jdbcTemplate.update(
+                        "UPDATE position_rollup_checkpoint SET rolled_up_until = ?, updated_at = CURRENT_TIMESTAMP " +
+                        "WHERE checkpoint_id = 1",
+                        Timestamp.valueOf(end));
+                log.debug("Tranche [{} ; {}[ compactée : {} historiques", start, end, lines);
+                return end;
+            });
+            if (done == null) {
+                break;
+            }
+            checkpoint = done;
+        }
+        return checkpoint != null ? checkpoint : readCheckpoint();
+    }
+
+    /**
+     * Recompacte les tranches déjà compactées qui ont reçu des positions depuis (import, rejeu tardif).
+     * Tranche encore complète : ses historiques sont remplacés. Tranche purgée : il n'y reste que les positions
+     * des heures signalées, qui sont résumées en plus des historiques existants puis supprimées.
+     */
+    private void rollupLateRows(LocalDateTime rolledUpUntil) {
+        for (int i = 0; i < maxBucketsPerRun; i++) {
+            Boolean done = transactionTemplate.execute(status -> {
+                if (!tryLock()) {
+                    return false;
+                }
+                Timestamp dirty = jdbcTemplate.queryForObject(
+                        "SELECT MIN(hour_start) FROM position_rollup_dirty WHERE hour_start < ?",
+                        Timestamp.class, Timestamp.valueOf(rolledUpUntil));
+                if (dirty == null) {
+                    return false;
+                }
+                LocalDateTime start = dirty.toLocalDateTime().truncatedTo(bucket.unit);
+                LocalDateTime end = start.plus(1, bucket.unit);
+                LocalDateTime appendOnlyUntil = readAppendOnlyUntil();
+
+                List<LocalDateTime> hours = clearDirty(start, end);
+                int lines;
+                if (appendOnlyUntil == null || !start.isBefore(appendOnlyUntil)) {
+                    jdbcTemplate.update("DELETE FROM position_history WHERE rollup_bucket = ?", Timestamp.valueOf(start));
+                    lines = summarize(start, start, end);
+                } else {
+                    lines = 0;
+                    for (LocalDateTime hour : hours) {
+                        LocalDateTime hourEnd = hour.plusHours(1);
+                        lines += summarize(start, hour, hourEnd);
+                        int deleted = jdbcTemplate.update(
+                                "DELETE FROM position WHERE position_date_time >= ? AND position_date_time < ?",
+                                Timestamp.valueOf(hour), Timestamp.valueOf(hourEnd));
+                        deletedRows.increment(deleted);
+                    }
+                    vectorTileCache.dataChanged(TileLayer.POSITIONS, null, start, end);
+                }
+                log.info("Tranche [{} ; {}[ recompactée après l'arrivée de positions en retard : {} historiques",
+                        start, end, lines);
+                return true;
+            });
+            if (!Boolean.TRUE.equals(done)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Supprime par paquets les positions brutes déjà résumées et plus anciennes que l'horizon de rétention
+     */
+    private void purge(LocalDateTime rolledUpUntil) {
+        LocalDateTime retentionHorizon = LocalDateTime.now().minusDays(retentionDays).truncatedTo(bucket.unit);
+        LocalDateTime cutoff = rolledUpUntil.isBefore(retentionHorizon) ? rolledUpUntil : retentionHorizon;
+        // une tranche signalée mais pas encore recompactée (budget du passage épuisé) n'est pas entamée
+        Timestamp dirty = jdbcTemplate.queryForObject(
+                "SELECT MIN(hour_start) FROM position_rollup_dirty WHERE hour_start < ?",
+                Timestamp.class, Timestamp.valueOf(cutoff));
+        if (dirty != null) {
+            cutoff = dirty.toLocalDateTime().truncatedTo(bucket.unit);
+        }
+        LocalDateTime purgeUntil = cutoff;
+
+        long total = 0;
+        int deleted;
+        do {
+            // une transaction courte par paquet : pas de verrou prolongé sur la table chaude
+            Integer count = transactionTemplate.execute(status ->
+                    jdbcTemplate.update(DELETE_CHUNK_SQL, Timestamp.valueOf(purgeUntil), deleteChunkSize));
+            deleted = count != null ? count : 0;
+            total += deleted;
+            deletedRows.increment(deleted);
+        } while (deleted == deleteChunkSize);
+
+        jdbcTemplate.update(
+                "UPDATE position_rollup_checkpoint SET append_only_until = ? " +
+                "WHERE checkpoint_id = 1 AND (append_only_until IS NULL OR append_only_until < ?)",
+                Timestamp.valueOf(purgeUntil), Timestamp.valueOf(purgeUntil));
+
+        if (total > 0) {
+            vectorTileCache.dataChanged(TileLayer.POSITIONS, null, null, purgeUntil);
+            log.info("{} positions brutes antérieures au {} supprimées après compaction", total, purgeUntil);
+        }
+    }
+
+    // historiques des positions de [from, to[, rattachés à la tranche bucketStart
+    private int summarize(LocalDateTime bucketStart, LocalDateTime from, LocalDateTime to) {
+        int lines = jdbcTemplate.update(ROLLUP_SQL,
+                simplifyTolerance, Timestamp.valueOf(bucketStart), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        summaries.increment(lines);
+        if (lines > 0) {
+            // emprise inconnue ici : toutes les tuiles d'historiques de la tranche
+            vectorTileCache.dataChanged(TileLayer.HISTORIES, null, bucketStart, bucketStart.plus(1, bucket.unit));
+        }
+        return lines;
+    }
+
+    private List<LocalDateTime> clearDirty(LocalDateTime start, LocalDateTime end) {
+        return jdbcTemplate.query(CLEAR_DIRTY_SQL,
+                (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(),
+                Timestamp.valueOf(start), Timestamp.valueOf(end));
+    }
+
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY));
+    }
+
+    private LocalDateTime readCheckpoint() {
+        Timestamp checkpoint = jdbcTemplate.queryForObject(
+                "SELECT rolled_up_until FROM position_rollup_checkpoint WHERE checkpoint_id = 1", Timestamp.class);
+        return checkpoint != null ? checkpoint.toLocalDateTime() : null;
+    }
+
+    private LocalDateTime readAppendOnlyUntil() {
+        Timestamp appendOnlyUntil = jdbcTemplate.queryForObject(
+                "SELECT append_only_until FROM position_rollup_checkpoint WHERE checkpoint_id = 1", Timestamp.class);
+        return appendOnlyUntil != null ? appendOnlyUntil.toLocalDateTime() : null;
+    }
+
+    /**
+     * Début de la prochaine tranche contenant des positions, en sautant les tranches vides
+     */
+    private LocalDateTime nextBucketStart() {
+        LocalDateTime checkpoint = readCheckpoint();
+        Timestamp first = checkpoint == null
+                ? jdbcTemplate.queryForObject("SELECT MIN(position_date_time) FROM position", Timestamp.class)
+                : jdbcTemplate.queryForObject(
+                        "SELECT MIN(position_date_time) FROM position WHERE position_date_time >= ?",
+                        Timestamp.class, Timestamp.valueOf(checkpoint));
+        return first != null ? first.toLocalDateTime().truncatedTo(bucket.unit) : null;
+    }
+}
@@ -1,67 +1,305 @@
 package com.polytechnique.fleetman.service;
 
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import com.polytechnique.fleetman.dto.position.PositionBatchItemDTO;
+import com.polytechnique.fleetman.dto.position.PositionBatchResultDTO;
+import com.polytechnique.fleetman.dto.position.PositionBatchStatus;
 import com.polytechnique.fleetman.dto.position.PositionCreateDTO;
 import com.polytechnique.fleetman.dto.position.PositionDTO;
+import com.polytechnique.fleetman.dto.position.PositionImportResultDTO;
+import com.polytechnique.fleetman.dto.position.PositionPageDTO;
 import com.polytechnique.fleetman.entity.PositionEntity;
 import com.polytechnique.fleetman.entity.VehicleEntity;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import com.polytechnique.fleetman.exception.IngestQueueFullException;
 import com.polytechnique.fleetman.exception.ResourceNotFoundException;
+import com.polytechnique.fleetman.geometry.PositionFilterKernel;
+import com.polytechnique.fleetman.geometry.compression.CompressionDecision;
+import com.polytechnique.fleetman.geometry.compression.TrackPoint;
+import com.polytechnique.fleetman.geometry.compression.TrajectoryCompressor;
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import com.polytechnique.fleetman.repository.PositionBulkWriter;
 import com.polytechnique.fleetman.repository.PositionRepository;
 import com.polytechnique.fleetman.repository.VehicleRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.operation.distance.DistanceOp;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PositionService {
 
     private final PositionRepository positionRepository;
     private final VehicleRepository vehicleRepository;
+    private final PositionTailCache positionTailCache;
+    private final LatestPositionStore latestPositionStore;
+    private final PositionStreamHub positionStreamHub;
+    private final PositionBulkWriter positionBulkWriter;
+    private final PositionWriteBehindBuffer positionWriteBehindBuffer;
+    private final PositionJournal positionJournal;
+    private final PositionIngestDispatcher positionIngestDispatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final TrajectoryCompressorRegistry trajectoryCompressorRegistry;
+    private final GeofenceEngine geofenceEngine;
+    private final VectorTileCache vectorTileCache;
     private static final GeometryFactory geometryFactory = new GeometryFactory();
-    private static final double DISTANCE_THRESHOLD = 0.00009; // 10 mètres
-    private static final double INCERTITUDE = 0.00009; // ±10 mètres
+    private static final double DISTANCE_THRESHOLD = PositionFilterKernel.DISTANCE_THRESHOLD; // 10 mètres
+    private static final double INCERTITUDE = PositionFilterKernel.INCERTITUDE; // ±10 mètres
+    // bornes par défaut des périodes de consultation de l'historique
+    private static final LocalDateTime DEBUT_HISTORIQUE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FIN_HISTORIQUE = LocalDateTime.of(9999, 12, 31, 0, 0);
 
     /**
-     * Enregistre une nouvelle position seulement si elle n'est pas alignée
-     * avec les deux dernières positions
+     * Enregistre une nouvelle position seulement si le compresseur de trajectoire du type de véhicule la retient
+     * (par défaut : si elle n'est pas alignée avec les deux dernières positions).
+     * Les positions d'un même véhicule passent par sa boîte aux lettres : elles sont filtrées et écrites
+     * une à une dans l'ordre d'arrivée, chacune dans sa propre transaction.
      */
-    @Transactional
     public PositionDTO savePositionIfNotAligned(PositionCreateDTO dto) {
-        // Récupérer les 2 dernières positions du véhicule/conducteur
-        List<PositionEntity> lastTwoPositions = positionRepository
-                .findLastTwoPositions(dto.getVehicleId());
+        return positionIngestDispatcher.execute(dto.getVehicleId(),
+                () -> transactionTemplate.execute(status -> filtrerEtEnregistrer(dto)));
+    }
+
+    private PositionDTO filtrerEtEnregistrer(PositionCreateDTO dto) {
+        // Récupérer les 2 dernières positions du véhicule depuis le cache mémoire
+        PositionTailCache.VehicleTail tail = positionTailCache.getTail(dto.getVehicleId());
+        PositionDTO[] lastTwoPositions = tail.recent(2);
+        List<TrackPoint> ecartees = tail.skipped();
+        TrackPoint courant = new TrackPoint(dto.getCoordinate().getX(), dto.getCoordinate().getY(), LocalDateTime.now());
+        // zones évaluées sur chaque position reçue, même écartée par le compresseur
+        geofenceEngine.evaluate(tail, courant.x(), courant.y(), courant.time());
+
+        CompressionDecision decision = compresser(tail, lastTwoPositions, ecartees, courant);
+        if (decision == CompressionDecision.SKIP) {
+            return lastTwoPositions[0];
+        }
+
+        // Position retenue par le compresseur, l'enregistrer (précédée de la dernière écartée si besoin)
+        if (decision == CompressionDecision.KEEP_WITH_PREVIOUS) {
+            TrackPoint precedente = ecartees.get(ecartees.size() - 1);
+            enregistrer(point(dto.getCoordinate(), precedente), precedente.time(), tail);
+        }
+        return enregistrer(dto.getCoordinate(), courant.time(), tail);
+    }
+
+    private PositionDTO enregistrer(Point coordinate, LocalDateTime dateTime, PositionTailCache.VehicleTail tail) {
+        if (positionJournal.isEnabled() || positionWriteBehindBuffer.isEnabled()) {
+            return enqueue(coordinate, dateTime, tail);
+        }
+        return persist(coordinate, dateTime, tail);
+    }
 
-        // Si moins de 2 positions, enregistrer directement
-        if (lastTwoPositions.size() < 2) {
-            return createPosition(dto);
+    // applique le compresseur du type de véhicule et tient à jour les positions écartées depuis la dernière retenue
+    private CompressionDecision compresser(PositionTailCache.VehicleTail tail, PositionDTO[] stored,
+                                           List<TrackPoint> ecartees, TrackPoint courant) {
+        TrajectoryCompressor compressor = trajectoryCompressorRegistry.compressorFor(tail.getVehicleType());
+        CompressionDecision decision = CompressionDecision.KEEP;
+        if (stored.length > 0) {
+            TrackPoint[] enregistrees = new TrackPoint[stored.length];
+            for (int i = 0; i < stored.length; i++) {
+                Point coordinate = stored[i].getCoordinate();
+                enregistrees[i] = new TrackPoint(coordinate.getX(), coordinate.getY(), stored[i].getPositionDateTime());
+            }
+            decision = compressor.decide(enregistrees, ecartees, courant);
         }
 
-        Point pointB = lastTwoPositions.get(0).getCoordinate(); // Dernière
-        // si les deux derniers points sont trop proche ne pas enregistrer
-        if(sontProchesAvecDistanceOp(pointB,dto.getCoordinate())){
-            return convertToDTO(lastTwoPositions.getFirst());
+        if (decision == CompressionDecision.SKIP) {
+            tail.skip(courant, compressor.windowSize());
+        } else {
+            tail.clearSkipped();
         }
+        return decision;
+    }
+
+    // point de même fabrique (donc même SRID) que la position reçue
+    private static Point point(Point reference, TrackPoint trackPoint) {
+        return reference.getFactory().createPoint(new Coordinate(trackPoint.x(), trackPoint.y()));
+    }
 
-        // Créer les points à partir des positions
-        Point pointA = lastTwoPositions.get(1).getCoordinate(); // Avant-dernière
-        Point pointC = dto.getCoordinate(); // Nouvelle position
+    /**
+     * Enregistre un lot de positions : le lot est découpé par véhicule et chaque tranche passe par la boîte
+     * aux lettres du véhicule, comme une position isolée. Le compresseur de trajectoire y est appliqué dans
+     * l'ordre du lot et les positions retenues sont insérées par lots, dans une transaction par véhicule.
+     * L'échec d'une tranche n'annule pas les autres, déjà validées : ses positions sont marquées REJECTED.
+     */
+    public PositionBatchResultDTO savePositionsIfNotAligned(List<PositionCreateDTO> positions) {
+        // indices des positions de chaque véhicule, dans l'ordre du lot
+        Map<Long, List<Integer>> tranches = new LinkedHashMap<>();
+        for (int i = 0; i < positions.size(); i++) {
+            tranches.computeIfAbsent(positions.get(i).getVehicleId(), id -> new ArrayList<>()).add(i);
+        }
 
-        // Vérifier l'alignement
-        if (existeDroite(pointA, pointB, pointC)) {
-            // Les 3 points sont alignés, ne pas enregistrer
-             return convertToDTO(lastTwoPositions.getFirst());
+        PositionBatchItemDTO[] items = new PositionBatchItemDTO[positions.size()];
+        for (Map.Entry<Long, List<Integer>> tranche : tranches.entrySet()) {
+            Long vehicleId = tranche.getKey();
+            try {
+                positionIngestDispatcher.execute(vehicleId, () -> transactionTemplate.execute(status -> {
+                    enregistrerTranche(vehicleId, positions, tranche.getValue(), items);
+                    return null;
+                }));
+            } catch (RuntimeException e) {
+                log.warn("Échec de l'enregistrement des positions du véhicule {} dans un lot : {}", vehicleId, e.getMessage());
+                rejeterTranche(vehicleId, tranche.getValue(), items, e);
+            }
         }
 
-        // Points non alignés, enregistrer la nouvelle position
-        return createPosition(dto);
+        int accepted = 0;
+        int skipped = 0;
+        int rejected = 0;
+        for (PositionBatchItemDTO item : items) {
+            switch (item.getStatus()) {
+                case ACCEPTED -> accepted++;
+                case SKIPPED -> skipped++;
+                case REJECTED -> rejected++;
+            }
+        }
+        return new PositionBatchResultDTO(accepted, skipped, rejected, Arrays.asList(items));
     }
 
+    // tranche annulée : ses positions ne sont pas enregistrées, sauf celles déjà placées dans la file d'écriture
+    // différée ou le journal, hors transaction, qui restent acceptées
+    private void rejeterTranche(Long vehicleId, List<Integer> indices, PositionBatchItemDTO[] items, RuntimeException e) {
+        boolean horsTransaction = positionJournal.isEnabled() || positionWriteBehindBuffer.isEnabled();
+        String message = e instanceof IngestQueueFullException
+                ? e.getMessage()
+                : "Échec de l'enregistrement des positions du véhicule";
+        for (int i : indices) {
+            if (horsTransaction && items[i] != null && items[i].getStatus() == PositionBatchStatus.ACCEPTED) {
+                continue;
+            }
+            items[i] = new PositionBatchItemDTO(i, vehicleId, PositionBatchStatus.REJECTED, null, message);
+        }
+    }
+
+    // tranche d'un véhicule, exécutée dans sa boîte aux lettres : l'anneau lu ne peut pas changer entre-temps
+    private void enregistrerTranche(Long vehicleId, List<PositionCreateDTO> positions, List<Integer> indices,
+                                    PositionBatchItemDTO[] items) {
+        PositionTailCache.VehicleTail tail;
+        try {
+            tail = positionTailCache.getTail(vehicleId);
+        } catch (ResourceNotFoundException e) {
+            // un véhicule inconnu ne fait pas échouer le lot
+            for (int i : indices) {
+                items[i] = new PositionBatchItemDTO(i, vehicleId, PositionBatchStatus.REJECTED, null, "Véhicule non trouvé");
+            }
+            return;
+        }
+
+        // 2 dernières positions retenues, la plus récente en premier (l'anneau n'est mis à jour qu'au commit)
+        PositionDTO[] fenetre = tail.recent(2);
+        for (int i : indices) {
+            PositionCreateDTO dto = positions.get(i);
+            List<TrackPoint> ecartees = tail.skipped();
+            TrackPoint courant = new TrackPoint(dto.getCoordinate().getX(), dto.getCoordinate().getY(), LocalDateTime.now());
+            geofenceEngine.evaluate(tail, courant.x(), courant.y(), courant.time());
+            CompressionDecision decision = compresser(tail, fenetre, ecartees, courant);
+            if (decision == CompressionDecision.SKIP) {
+                items[i] = new PositionBatchItemDTO(i, vehicleId, PositionBatchStatus.SKIPPED, fenetre[0].getPositionId(), null);
+                continue;
+            }
+
+            // même chemin qu'une position isolée (écriture différée ou journal selon le mode d'ingestion) ;
+            // en écriture directe, l'identifiant est attribué par la séquence et l'INSERT différé jusqu'au flush groupé
+            if (decision == CompressionDecision.KEEP_WITH_PREVIOUS) {
+                TrackPoint precedente = ecartees.get(ecartees.size() - 1);
+                PositionDTO retenue = enregistrer(point(dto.getCoordinate(), precedente), precedente.time(), tail);
+                fenetre = fenetre.length == 0
+                        ? new PositionDTO[]{retenue}
+                        : new PositionDTO[]{retenue, fenetre[0]};
+            }
+            PositionDTO created = enregistrer(dto.getCoordinate(), courant.time(), tail);
+            fenetre = fenetre.length == 0
+                    ? new PositionDTO[]{created}
+                    : new PositionDTO[]{created, fenetre[0]};
+            items[i] = new PositionBatchItemDTO(i, vehicleId, PositionBatchStatus.ACCEPTED, created.getPositionId(), null);
+        }
+        positionRepository.flush();
+    }
+
+    // mode écriture différée : la position est acquittée dès sa mise en file (ou dans le journal durable),
+    // son ID n'est pas encore connu
+    private PositionDTO enqueue(Point coordinate, LocalDateTime dateTime, PositionTailCache.VehicleTail tail) {
+        PositionBulkWriter.PositionRow row = new PositionBulkWriter.PositionRow(
+                tail.getVehicleId(), coordinate.getX(), coordinate.getY(), dateTime);
+        if (positionJournal.isEnabled()) {
+            positionJournal.append(row);
+        } else {
+            positionWriteBehindBuffer.submit(row);
+        }
+
+        PositionDTO accepted = new PositionDTO(null, coordinate, dateTime, tail.getVehicleId(), tail.getVehicleName());
+        positionTailCache.record(accepted);
+        latestPositionStore.record(accepted);
+        return accepted;
+    }
+
+    /**
+     * Import massif de positions horodatées (reprise d'historique) via COPY, sans filtre d'alignement
+     */
+    @Transactional
+    public PositionImportResultDTO importPositions(Iterator<PositionBulkWriter.PositionRow> rows) {
+        Set<Long> vehicleIds = new HashSet<>();
+        Envelope envelope = new Envelope();
+        LocalDateTime[] period = new LocalDateTime[2];
+        Iterator<PositionBulkWriter.PositionRow> suivi = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public PositionBulkWriter.PositionRow next() {
+                PositionBulkWriter.PositionRow row = rows.next();
+                vehicleIds.add(row.vehicleId());
+                envelope.expandToInclude(row.longitude(), row.latitude());
+                if (period[0] == null || row.positionDateTime().isBefore(period[0])) {
+                    period[0] = row.positionDateTime();
+                }
+                if (period[1] == null || row.positionDateTime().isAfter(period[1])) {
+                    period[1] = row.positionDateTime();
+                }
+                return row;
+            }
+        };
+
+        PositionBulkWriter.BulkWriteReport report = positionBulkWriter.write(suivi);
+        // les anneaux en cache des véhicules importés ne reflètent plus la base
+        vehicleIds.forEach(positionTailCache::invalidate);
+        vehicleIds.forEach(latestPositionStore::invalidate);
+        if (!envelope.isNull()) {
+            vectorTileCache.dataChanged(TileLayer.POSITIONS, envelope, period[0], period[1]);
+        }
+
+        return new PositionImportResultDTO(report.rows(), report.elapsedMillis(), report.rowsPerSecond(), report.method());
+    }
+
+    @Transactional
+    public PositionImportResultDTO importPositionsCsv(InputStream csv) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        return importPositions(new PositionCsvReader(reader));
+    }
 
     @Transactional
     public PositionDTO createPosition(PositionCreateDTO positionCreateDTO) {
@@ -74,7 +312,36 @@ public class PositionService {
         position.setVehicle(vehicle);
 
         PositionEntity saved = positionRepository.save(position);
-        return convertToDTO(saved);
+        PositionDTO created = convertToDTO(saved);
+        geofenceEngine.evaluate(positionTailCache.getTail(vehicle.getVehicleId()),
+                created.getCoordinate().getX(), created.getCoordinate().getY(), created.getPositionDateTime());
+        positionTailCache.record(created);
+        latestPositionStore.record(created);
+        vectorTileCache.positionWritten(created.getCoordinate().getX(), created.getCoordinate().getY(),
+                created.getPositionDateTime());
+        return created;
+    }
+
+    // enregistre une position acceptée par le filtre : le véhicule est déjà connu du cache, pas besoin de le relire
+    private PositionDTO persist(Point coordinate, LocalDateTime dateTime, PositionTailCache.VehicleTail tail) {
+        PositionEntity position = new PositionEntity();
+        position.setCoordinate(coordinate);
+        position.setPositionDateTime(dateTime);
+        position.setVehicle(vehicleRepository.getReferenceById(tail.getVehicleId()));
+
+        PositionEntity saved = positionRepository.save(position);
+        PositionDTO created = new PositionDTO(
+                saved.getPositionId(),
+                saved.getCoordinate(),
+                saved.getPositionDateTime(),
+                tail.getVehicleId(),
+                tail.getVehicleName()
+        );
+        positionTailCache.record(created);
+        latestPositionStore.record(created);
+        vectorTileCache.positionWritten(created.getCoordinate().getX(), created.getCoordinate().getY(),
+                created.getPositionDateTime());
+        return created;
     }
 
     @Transactional(readOnly = true)
@@ -84,40 +351,129 @@ public class PositionService {
         return convertToDTO(position);
     }
 
+    /**
+     * Page de positions de tous les véhicules sur [from, to[, dans l'ordre chronologique ;
+     * after est le curseur renvoyé par la page précédente (absent pour la première page)
+     */
     @Transactional(readOnly = true)
-    public List<PositionDTO> getAllPositions() {
-        return positionRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public PositionPageDTO getPositionsPage(LocalDateTime from, LocalDateTime to, int limit, String after) {
+        LocalDateTime start = from != null ? from : DEBUT_HISTORIQUE;
+        LocalDateTime end = to != null ? to : FIN_HISTORIQUE;
+        PositionCursor cursor = cursor(start, end, after);
+        // une ligne de plus que demandé : sa présence indique qu'une page suit
+        List<PositionEntity> rows = positionRepository.findPageByPeriod(
+                start, end, cursor.positionDateTime(), cursor.positionId(), Limit.of(limit + 1));
+        return page(rows, limit);
     }
 
+    /**
+     * Page de l'historique d'un véhicule sur [from, to[, dans l'ordre chronologique (pagination par clé :
+     * le coût d'une page ne dépend pas de sa position dans l'historique) ; seules les partitions concernées sont lues
+     */
     @Transactional(readOnly = true)
-    public List<PositionDTO> getPositionsByVehicleId(Long vehicleId) {
-
-        // vérifions si le vehicule existe
-        VehicleEntity vehicle = vehicleRepository.findById(vehicleId)
+    public PositionPageDTO getPositionsPageByVehicleId(Long vehicleId, LocalDateTime from, LocalDateTime to,
+                                                       int limit, String after) {
+        vehicleRepository.findById(vehicleId)
                 .orElseThrow(() -> new ResourceNotFoundException("Véhicule non trouvé"));
 
-        return positionRepository.findByVehicle_VehicleId(vehicleId).stream()
+        LocalDateTime start = from != null ? from : DEBUT_HISTORIQUE;
+        LocalDateTime end = to != null ? to : FIN_HISTORIQUE;
+        PositionCursor cursor = cursor(start, end, after);
+        List<PositionEntity> rows = positionRepository.findPageByVehicleIdAndPeriod(
+                vehicleId, start, end, cursor.positionDateTime(), cursor.positionId(), Limit.of(limit + 1));
+        return page(rows, limit);
+    }
+
+    // première page : clé juste avant le début de la période (les IDs de la séquence sont positifs)
+    private static PositionCursor cursor(LocalDateTime start, LocalDateTime end, String after) {
+        if (!start.isBefore(end)) {
+            throw new BadRequestException("La date de début doit précéder la date de fin");
+        }
+        return after != null ? PositionCursor.decode(after) : new PositionCursor(start, 0L);
+    }
+
+    private PositionPageDTO page(List<PositionEntity> rows, int limit) {
+        boolean hasNext = rows.size() > limit;
+        List<PositionDTO> positions = rows.stream()
+                .limit(limit)
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        String nextCursor = null;
+        if (hasNext) {
+            PositionDTO last = positions.get(positions.size() - 1);
+            nextCursor = new PositionCursor(last.getPositionDateTime(), last.getPositionId()).encode();
+        }
+        return new PositionPageDTO(positions, nextCursor);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Dernière position du véhicule, servie depuis l'état courant de la flotte en mémoire
+     */
     public PositionDTO getLatestPositionByVehicleId(Long vehicleId) {
-        PositionEntity position = positionRepository.findLatestPositionByVehicle(vehicleId)
+        LatestPositionDTO latest = latestPositionStore.getLatest(vehicleId)
                 .orElseThrow(() -> new ResourceNotFoundException("Aucune position trouvée pour ce véhicule"));
-        return convertToDTO(position);
+        return new PositionDTO(
+                latest.getPositionId(),
+                latest.getCoordinate(),
+                latest.getPositionDateTime(),
+                latest.getVehicleId(),
+                latest.getVehicleName()
+        );
+    }
+
+    /**
+     * Flux en direct des positions acceptées, filtré par véhicules, par propriétaire et/ou par emprise
+     * (sans @Transactional : un type de retour réactif exigerait un gestionnaire de transactions réactif)
+     */
+    public Flux<LatestPositionDTO> streamPositions(List<Long> vehicleIds, Long userId, List<Double> bbox) {
+        return positionStreamHub.subscribe(streamFilter(vehicleIds, userId, bbox));
+    }
+
+    /**
+     * Filtre d'abonnement au suivi en direct (flux SSE, WebSocket) : véhicules demandés, restreints à ceux
+     * de l'utilisateur s'il est précisé, et emprise minLongitude,minLatitude,maxLongitude,maxLatitude
+     */
+    public PositionStreamHub.StreamFilter streamFilter(List<Long> vehicleIds, Long userId, List<Double> bbox) {
+        Set<Long> suivis = vehicleIds != null && !vehicleIds.isEmpty() ? new HashSet<>(vehicleIds) : null;
+        if (userId != null) {
+            Set<Long> vehiculesUtilisateur = vehicleRepository.findByUser_UserId(userId).stream()
+                    .map(VehicleEntity::getVehicleId)
+                    .collect(Collectors.toSet());
+            if (suivis != null) {
+                suivis.retainAll(vehiculesUtilisateur);
+            } else {
+                suivis = vehiculesUtilisateur;
+            }
+        }
+
+        Envelope emprise = bbox != null && !bbox.isEmpty() ? VehicleSpatialIndex.envelope(bbox) : null;
+
+        return new PositionStreamHub.StreamFilter(suivis, emprise);
+    }
+
+    /**
+     * État courant (dernière position, vitesse, cap) de plusieurs véhicules en un appel ;
+     * les véhicules inconnus ou sans position sont absents du résultat
+     */
+    public List<LatestPositionDTO> getLatestPositions(List<Long> vehicleIds) {
+        return latestPositionStore.getLatest(vehicleIds);
     }
 
     @Transactional
     public void deletePosition(Long positionId) {
-        if (!positionRepository.existsById(positionId)) {
-            throw new ResourceNotFoundException("Position non trouvée");
-        }
-        positionRepository.deleteById(positionId);
+        PositionEntity position = positionRepository.findById(positionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Position non trouvée"));
+        positionRepository.delete(position);
+        // l'anneau du véhicule peut contenir la position supprimée
+        positionTailCache.invalidate(position.getVehicle().getVehicleId());
+        latestPositionStore.invalidate(position.getVehicle().getVehicleId());
+        vectorTileCache.positionWritten(position.getCoordinate().getX(), position.getCoordinate().getY(),
+                position.getPositionDateTime());
     }
 
+    // Implémentations JTS de référence : l'ingestion utilise PositionFilterKernel, qui rend les mêmes décisions
+    // sans allocation (voir PositionFilterKernelTest)
+
     // fonction qui vérifie si deux points sont distants de moins de DISTANCE_THRESHOLD mètres
     public static boolean sontProchesAvecDistanceOp(Point point1, Point point2) {
         double distance = DistanceOp.distance(point1, point2);
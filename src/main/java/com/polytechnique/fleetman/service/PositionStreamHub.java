@@ -0,0 +1,121 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.locationtech.jts.geom.Envelope;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diffusion en direct des positions acceptées aux abonnés (flux SSE, WebSocket).
+ * Chaque abonné a sa propre file, conflatée par véhicule : tant qu'il ne consomme pas,
+ * seule la position la plus récente de chaque véhicule est conservée. Un abonné lent
+ * ne ralentit donc pas l'ingestion et sa mémoire reste bornée par le nombre de véhicules suivis.
+ */
+@Component
+public class PositionStreamHub {
+
+    /**
+     * Filtre d'un abonnement : véhicules suivis (null = tous) et emprise géographique (null = partout)
+     */
+    public record StreamFilter(Set<Long> vehicleIds, Envelope bbox) {
+
+        boolean accepts(LatestPositionDTO position) {
+            if (vehicleIds != null && !vehicleIds.contains(position.getVehicleId())) {
+                return false;
+            }
+            return bbox == null || bbox.contains(position.getCoordinate().getX(), position.getCoordinate().getY());
+        }
+    }
+
+    private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+    private final Counter conflated;
+
+    public PositionStreamHub(MeterRegistry meterRegistry) {
+        Gauge.builder("fleetman.position.stream.subscribers", subscribers, Set::size)
+                .description("Abonnés au flux de positions en direct")
+                .register(meterRegistry);
+        this.conflated = Counter.builder("fleetman.position.stream.conflated")
+                .description("Positions remplacées par une plus récente avant d'avoir été envoyées")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Diffuse une position acceptée ; ne bloque jamais, quel que soit l'état des abonnés
+     */
+    public void publish(LatestPositionDTO position) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.filter.accepts(position)) {
+                subscriber.offer(position);
+            }
+        }
+    }
+
+    /**
+     * Flux des positions acceptées à partir de maintenant, respectant la demande de l'abonné
+     */
+    public Flux<LatestPositionDTO> subscribe(StreamFilter filter) {
+        return Flux.create(sink -> {
+            Subscriber subscriber = new Subscriber(filter, sink);
+            subscribers.add(subscriber);
+            sink.onRequest(n -> subscriber.drain());
+            sink.onDispose(() -> subscribers.remove(subscriber));
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    private final class Subscriber {
+
+        private final StreamFilter filter;
+        private final FluxSink<LatestPositionDTO> sink;
+        // position en attente la plus récente par véhicule, et ordre d'arrivée des véhicules
+        private final Map<Long, LatestPositionDTO> pending = new ConcurrentHashMap<>();
+        private final Queue<Long> order = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private Subscriber(StreamFilter filter, FluxSink<LatestPositionDTO> sink) {
+            this.filter = filter;
+            this.sink = sink;
+        }
+
+        void offer(LatestPositionDTO position) {
+            if (pending.put(position.getVehicleId(), position) == null) {
+                order.offer(position.getVehicleId());
+            } else {
+                conflated.increment();
+            }
+            drain();
+        }
+
+        // un seul thread émet à la fois ; les appels concurrents sont comptés et rejoués par celui-ci
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                    Long vehicleId = order.poll();
+                    if (vehicleId == null) {
+                        break;
+                    }
+                    LatestPositionDTO position = pending.remove(vehicleId);
+                    if (position != null) {
+                        sink.next(position);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
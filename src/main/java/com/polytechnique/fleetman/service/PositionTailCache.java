@@ -0,0 +1,256 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.position.PositionDTO;
+import com.polytechnique.fleetman.entity.PositionEntity;
+import com.polytechnique.fleetman.entity.VehicleEntity;
+import com.polytechnique.fleetman.exception.ResourceNotFoundException;
+import com.polytechnique.fleetman.geometry.compression.TrackPoint;
+import com.polytechnique.fleetman.repository.PositionRepository;
+import com.polytechnique.fleetman.repository.VehicleRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache mémoire des dernières positions acceptées de chaque véhicule.
+ * Permet au filtre d'alignement de décider sans interroger la base à chaque position reçue.
+ * Les anneaux sont chargés paresseusement depuis la base et les véhicules inactifs sont évincés.
+ */
+@Component
+public class PositionTailCache {
+
+    private final PositionRepository positionRepository;
+    private final VehicleRepository vehicleRepository;
+    private final int ringSize;
+    private final int maxVehicles;
+    private final long idleTimeoutNanos;
+
+    private final Map<Long, VehicleTail> tails = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PositionTailCache(PositionRepository positionRepository,
+                             VehicleRepository vehicleRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${fleetman.position.tail-cache.ring-size:4}") int ringSize,
+                             @Value("${fleetman.position.tail-cache.max-vehicles:50000}") int maxVehicles,
+                             @Value("${fleetman.position.tail-cache.idle-timeout-ms:600000}") long idleTimeoutMs) {
+        this.positionRepository = positionRepository;
+        this.vehicleRepository = vehicleRepository;
+        // le filtre d'alignement a besoin d'au moins deux points
+        this.ringSize = Math.max(2, ringSize);
+        this.maxVehicles = Math.max(1, maxVehicles);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+
+        FunctionCounter.builder("fleetman.position.tail_cache.hits", hits, LongAdder::sum)
+                .description("Décisions d'alignement servies depuis le cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("fleetman.position.tail_cache.misses", misses, LongAdder::sum)
+                .description("Chargements de l'anneau depuis la base")
+                .register(meterRegistry);
+        FunctionCounter.builder("fleetman.position.tail_cache.evictions", evictions, LongAdder::sum)
+                .description("Véhicules évincés du cache")
+                .register(meterRegistry);
+        Gauge.builder("fleetman.position.tail_cache.size", tails, Map::size)
+                .description("Nombre de véhicules présents dans le cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retourne l'anneau du véhicule, en le chargeant depuis la base s'il n'est pas en cache
+     */
+    public VehicleTail getTail(Long vehicleId) {
+        VehicleTail tail = tails.get(vehicleId);
+        if (tail != null) {
+            hits.increment();
+            tail.touch();
+            return tail;
+        }
+
+        misses.increment();
+        VehicleTail loaded = load(vehicleId);
+        if (tails.size() >= maxVehicles) {
+            evictLeastRecentlyUsed(Math.max(1, maxVehicles / 10));
+        }
+        VehicleTail existing = tails.putIfAbsent(vehicleId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Ajoute une position acceptée à l'anneau de son véhicule.
+     * Dans une transaction, l'ajout n'a lieu qu'après le commit pour ne jamais exposer une ligne annulée.
+     */
+    public void record(PositionDTO position) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    push(position);
+                }
+            });
+        } else {
+            push(position);
+        }
+    }
+
+    /**
+     * Retire l'anneau du véhicule ; dans une transaction, il est retiré à nouveau après le commit
+     * pour ne pas conserver un anneau rechargé avant que les modifications soient visibles
+     */
+    public void invalidate(Long vehicleId) {
+        tails.remove(vehicleId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tails.remove(vehicleId);
+                }
+            });
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Scheduled(fixedDelayString = "${fleetman.position.tail-cache.sweep-interval-ms:60000}")
+    public void evictIdleVehicles() {
+        long now = System.nanoTime();
+        tails.values().removeIf(tail -> {
+            boolean idle = now - tail.lastAccessNanos > idleTimeoutNanos;
+            if (idle) {
+                evictions.increment();
+            }
+            return idle;
+        });
+    }
+
+    private void push(PositionDTO position) {
+        VehicleTail tail = tails.get(position.getVehicleId());
+        if (tail != null) {
+            tail.push(position);
+        }
+    }
+
+    private void evictLeastRecentlyUsed(int count) {
+        tails.values().stream()
+                .sorted(Comparator.comparingLong(tail -> tail.lastAccessNanos))
+                .limit(count)
+                .toList()
+                .forEach(tail -> {
+                    if (tails.remove(tail.getVehicleId(), tail)) {
+                        evictions.increment();
+                    }
+                });
+    }
+
+    private VehicleTail load(Long vehicleId) {
+        VehicleEntity vehicle = vehicleRepository.findById(vehicleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Véhicule non trouvé"));
+
+        VehicleTail tail = new VehicleTail(vehicleId, vehicle.getVehicleName(), vehicle.getVehicleType(),
+                vehicle.getUser().getUserId(), ringSize);
+        List<PositionEntity> lastPositions = positionRepository.findLastPositions(vehicleId, ringSize);
+        // la requête renvoie la plus récente en premier : on remplit l'anneau du plus ancien au plus récent
+        for (int i = lastPositions.size() - 1; i >= 0; i--) {
+            PositionEntity position = lastPositions.get(i);
+            tail.push(new PositionDTO(
+                    position.getPositionId(),
+                    position.getCoordinate(),
+                    position.getPositionDateTime(),
+                    vehicleId,
+                    vehicle.getVehicleName()
+            ));
+        }
+        return tail;
+    }
+
+    /**
+     * Anneau borné des dernières positions acceptées d'un véhicule,
+     * et positions écartées par le compresseur de trajectoire depuis la dernière acceptée
+     */
+    public static final class VehicleTail {
+
+        @Getter
+        private final Long vehicleId;
+        @Getter
+        private final String vehicleName;
+        @Getter
+        private final String vehicleType;
+        // propriétaire du véhicule : seules ses zones sont évaluées
+        @Getter
+        private final Long userId;
+
+        private final PositionDTO[] ring;
+        private int next;
+        private int size;
+        private final List<TrackPoint> skipped = new ArrayList<>();
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        VehicleTail(Long vehicleId, String vehicleName, String vehicleType, Long userId, int capacity) {
+            this.vehicleId = vehicleId;
+            this.vehicleName = vehicleName;
+            this.vehicleType = vehicleType;
+            this.userId = userId;
+            this.ring = new PositionDTO[capacity];
+        }
+
+        /**
+         * Retourne au plus {@code count} positions, la plus récente en premier
+         */
+        public synchronized PositionDTO[] recent(int count) {
+            int n = Math.min(count, size);
+            PositionDTO[] result = new PositionDTO[n];
+            for (int i = 0; i < n; i++) {
+                result[i] = ring[Math.floorMod(next - 1 - i, ring.length)];
+            }
+            return result;
+        }
+
+        /**
+         * Positions écartées depuis la dernière position acceptée, dans l'ordre d'arrivée
+         */
+        public synchronized List<TrackPoint> skipped() {
+            return List.copyOf(skipped);
+        }
+
+        public synchronized void skip(TrackPoint point, int windowSize) {
+            if (skipped.size() < windowSize) {
+                skipped.add(point);
+            }
+        }
+
+        public synchronized void clearSkipped() {
+            skipped.clear();
+        }
+
+        synchronized void push(PositionDTO position) {
+            ring[next] = position;
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+
+        void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+    }
+}
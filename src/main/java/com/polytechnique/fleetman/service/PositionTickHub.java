@@ -0,0 +1,268 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.Disposable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Diffusion par tops d'horloge pour les écrans de suivi (WebSocket).
+ * Toutes les positions reçues depuis le top précédent sont conflatées par véhicule, encodées une seule fois
+ * et rangées dans un anneau de tops partagé par toutes les sessions. À chaque top, chaque session reçoit
+ * une seule trame delta ne contenant que les véhicules de son abonnement ; une session en retard fusionne
+ * les tops manqués, ou reçoit un instantané complet si l'anneau ne les contient plus.
+ *
+ * Trame : {"seq":N,"snapshot":false,"positions":[[vehicleId,longitude,latitude,epochMillis,vitesseKmh,cap],...]}
+ */
+@Slf4j
+@Component
+public class PositionTickHub {
+
+    /**
+     * Position encodée une fois pour toutes les sessions
+     */
+    private record Fragment(LatestPositionDTO position, byte[] json) {
+    }
+
+    private record Tick(long seq, List<Fragment> fragments) {
+    }
+
+    private final PositionStreamHub positionStreamHub;
+    private final LatestPositionStore latestPositionStore;
+    private final Tick[] ring;
+
+    // positions reçues depuis le dernier top ; vidée clé par clé, une position arrivée pendant le top reste pour le suivant
+    private final Map<Long, LatestPositionDTO> pending = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile long head;
+    private Disposable subscription;
+
+    private final Timer tickLatency;
+    private final DistributionSummary frameBytes;
+
+    public PositionTickHub(PositionStreamHub positionStreamHub,
+                           LatestPositionStore latestPositionStore,
+                           MeterRegistry meterRegistry,
+                           @Value("${fleetman.position.websocket.ring-size:64}") int ringSize) {
+        this.positionStreamHub = positionStreamHub;
+        this.latestPositionStore = latestPositionStore;
+        this.ring = new Tick[Math.max(2, ringSize)];
+
+        Gauge.builder("fleetman.position.websocket.sessions", sessions, Map::size)
+                .description("Sessions WebSocket de suivi en direct")
+                .register(meterRegistry);
+        this.tickLatency = Timer.builder("fleetman.position.websocket.tick.latency")
+                .description("Durée de préparation d'un top (conflation et encodage)")
+                .register(meterRegistry);
+        this.frameBytes = DistributionSummary.builder("fleetman.position.websocket.frame.bytes")
+                .description("Taille des trames envoyées aux sessions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // abonné sans filtre au hub de diffusion : reçoit chaque position acceptée
+        subscription = positionStreamHub.subscribe(new PositionStreamHub.StreamFilter(null, null))
+                .subscribe(position -> pending.put(position.getVehicleId(), position));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        senders.shutdown();
+    }
+
+    public void register(WebSocketSession session) {
+        sessions.put(session.getId(), new Session(session));
+    }
+
+    public void unregister(WebSocketSession session) {
+        sessions.remove(session.getId());
+    }
+
+    /**
+     * Remplace l'abonnement de la session ; elle reçoit d'abord un instantané des véhicules concernés
+     */
+    public void subscribe(WebSocketSession session, PositionStreamHub.StreamFilter filter) {
+        Session target = sessions.get(session.getId());
+        if (target == null) {
+            return;
+        }
+        target.filter = filter;
+        target.snapshotRequested = true;
+        target.dispatch();
+    }
+
+    @Scheduled(fixedRateString = "${fleetman.position.websocket.tick-ms:250}")
+    public void tick() {
+        if (!pending.isEmpty()) {
+            long start = System.nanoTime();
+            List<Fragment> fragments = new ArrayList<>(pending.size());
+            for (Long vehicleId : pending.keySet()) {
+                LatestPositionDTO position = pending.remove(vehicleId);
+                if (position != null) {
+                    fragments.add(new Fragment(position, encode(position)));
+                }
+            }
+            long seq = head + 1;
+            ring[(int) (seq % ring.length)] = new Tick(seq, fragments);
+            head = seq;
+            tickLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        sessions.values().forEach(Session::dispatch);
+    }
+
+    private final class Session {
+
+        private final WebSocketSession webSocketSession;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile PositionStreamHub.StreamFilter filter;
+        private volatile boolean snapshotRequested;
+        private volatile long cursor = head;
+
+        private Session(WebSocketSession webSocketSession) {
+            this.webSocketSession = webSocketSession;
+        }
+
+        // un seul envoi en cours par session : une session lente n'occupe que son propre thread virtuel
+        void dispatch() {
+            if (filter == null || !webSocketSession.isOpen()) {
+                return;
+            }
+            if ((snapshotRequested || cursor < head) && sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                PositionStreamHub.StreamFilter current = filter;
+                long target = head;
+                List<byte[]> delta = snapshotRequested || target - cursor >= ring.length
+                        ? null
+                        : delta(current, cursor, target);
+                byte[] frame;
+                if (delta == null) {
+                    // instantané demandé, ou tops manqués qui ne sont plus dans l'anneau
+                    snapshotRequested = false;
+                    frame = frame(target, true, snapshot(current));
+                } else {
+                    frame = frame(target, false, delta);
+                }
+                cursor = target;
+                if (frame != null) {
+                    webSocketSession.sendMessage(new TextMessage(frame));
+                    frameBytes.record(frame.length);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Envoi impossible à la session WebSocket {} : {}", webSocketSession.getId(), e.getMessage());
+                sessions.remove(webSocketSession.getId());
+                try {
+                    webSocketSession.close();
+                } catch (IOException ignored) {
+                    // session déjà fermée
+                }
+            } finally {
+                sending.set(false);
+            }
+            // des tops ont pu arriver pendant l'envoi
+            dispatch();
+        }
+    }
+
+    // fusion des tops ]from, to], du plus récent au plus ancien : seule la dernière position de chaque véhicule est gardée ;
+    // null si un top manque (emplacement de l'anneau réécrit pendant le parcours) : un instantané doit être envoyé
+    private List<byte[]> delta(PositionStreamHub.StreamFilter filter, long from, long to) {
+        List<byte[]> fragments = new ArrayList<>();
+        Set<Long> seen = to - from > 1 ? new HashSet<>() : null;
+        for (long seq = to; seq > from; seq--) {
+            Tick tick = ring[(int) (seq % ring.length)];
+            if (tick == null || tick.seq() != seq) {
+                return null;
+            }
+            for (Fragment fragment : tick.fragments()) {
+                if (!filter.accepts(fragment.position())) {
+                    continue;
+                }
+                if (seen == null || seen.add(fragment.position().getVehicleId())) {
+                    fragments.add(fragment.json());
+                }
+            }
+        }
+        return fragments;
+    }
+
+    private List<byte[]> snapshot(PositionStreamHub.StreamFilter filter) {
+        Collection<LatestPositionDTO> positions = filter.vehicleIds() != null
+                ? latestPositionStore.getLatest(filter.vehicleIds())
+                : latestPositionStore.snapshot();
+        List<byte[]> fragments = new ArrayList<>();
+        for (LatestPositionDTO position : positions) {
+            if (filter.accepts(position)) {
+                fragments.add(encode(position));
+            }
+        }
+        return fragments;
+    }
+
+    // null si la trame delta est vide : rien n'est envoyé
+    private static byte[] frame(long seq, boolean snapshot, List<byte[]> fragments) {
+        if (!snapshot && fragments.isEmpty()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + fragments.size() * 64);
+        out.writeBytes(("{\"seq\":" + seq + ",\"snapshot\":" + snapshot + ",\"positions\":[")
+                .getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(fragments.get(i));
+        }
+        out.writeBytes("]}".getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    // [vehicleId,longitude,latitude,epochMillis,vitesseKmh,cap] ; coordonnées au micro-degré (≈ 0,1 m)
+    private static byte[] encode(LatestPositionDTO position) {
+        StringBuilder json = new StringBuilder(64)
+                .append('[').append(position.getVehicleId())
+                .append(',').append(Math.round(position.getCoordinate().getX() * 1e6) / 1e6)
+                .append(',').append(Math.round(position.getCoordinate().getY() * 1e6) / 1e6)
+                .append(',').append(position.getPositionDateTime().toInstant(ZoneOffset.UTC).toEpochMilli())
+                .append(',').append(position.getSpeedKmh() != null ? Math.round(position.getSpeedKmh() * 10) / 10.0 : "null")
+                .append(',').append(position.getHeading() != null ? Math.round(position.getHeading()) : "null")
+                .append(']');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
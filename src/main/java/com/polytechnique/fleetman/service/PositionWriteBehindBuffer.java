@@ -0,0 +1,255 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.exception.IngestQueueFullException;
+import com.polytechnique.fleetman.repository.PositionBulkWriter.PositionRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture différée des positions acceptées (mode optionnel).
+ * Les positions sont placées dans une file mémoire bornée et acquittées immédiatement ;
+ * un thread d'écriture les insère par groupes (toutes les N ms ou toutes les M lignes), chacun en une transaction.
+ * Une ligne refusée par la base n'emporte pas le reste du groupe ; une base indisponible est attendue.
+ * La file est vidée à l'arrêt de l'application, après l'arrêt du serveur web.
+ */
+@Slf4j
+@Component
+public class PositionWriteBehindBuffer implements SmartLifecycle {
+
+    public enum Backpressure {
+        // refuser la position (HTTP 429) lorsque la file est pleine
+        REJECT,
+        // attendre une place dans la file, au plus block-timeout-ms
+        BLOCK
+    }
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final PositionGroupWriter positionGroupWriter;
+    private final PositionTailCache positionTailCache;
+    private final LatestPositionStore latestPositionStore;
+    private final VectorTileCache vectorTileCache;
+
+    private final boolean enabled;
+    private final BlockingQueue<PositionRow> queue;
+    private final long flushIntervalNanos;
+    private final int flushMaxRows;
+    private final Backpressure backpressure;
+    private final long blockTimeoutMs;
+
+    private final DistributionSummary flushSize;
+    private final Timer flushLatency;
+    private final Counter rejected;
+    private final Counter failedRows;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public PositionWriteBehindBuffer(PositionGroupWriter positionGroupWriter,
+                                     PositionTailCache positionTailCache,
+                                     LatestPositionStore latestPositionStore,
+                                     VectorTileCache vectorTileCache,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${fleetman.position.write-behind.enabled:false}") boolean enabled,
+                                     @Value("${fleetman.position.write-behind.capacity:10000}") int capacity,
+                                     @Value("${fleetman.position.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                     @Value("${fleetman.position.write-behind.flush-max-rows:1000}") int flushMaxRows,
+                                     @Value("${fleetman.position.write-behind.backpressure:REJECT}") Backpressure backpressure,
+                                     @Value("${fleetman.position.write-behind.block-timeout-ms:1000}") long blockTimeoutMs) {
+        this.positionGroupWriter = positionGroupWriter;
+        this.positionTailCache = positionTailCache;
+        this.latestPositionStore = latestPositionStore;
+        this.vectorTileCache = vectorTileCache;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.flushMaxRows = Math.max(1, flushMaxRows);
+        this.backpressure = backpressure;
+        this.blockTimeoutMs = blockTimeoutMs;
+
+        Gauge.builder("fleetman.position.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("Positions en attente d'écriture")
+                .register(meterRegistry);
+        this.flushSize = DistributionSummary.builder("fleetman.position.write_behind.flush.size")
+                .description("Nombre de positions écrites par groupe")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("fleetman.position.write_behind.flush.latency")
+                .description("Durée d'écriture d'un groupe de positions")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("fleetman.position.write_behind.rejected")
+                .description("Positions refusées car la file était pleine")
+                .register(meterRegistry);
+        this.failedRows = Counter.builder("fleetman.position.write_behind.failed")
+                .description("Positions perdues suite à un échec d'écriture")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Place une position dans la file d'écriture, selon la politique de contre-pression configurée
+     */
+    public void submit(PositionRow row) {
+        if (!running) {
+            throw new IngestQueueFullException("La file d'ingestion des positions est arrêtée");
+        }
+
+        boolean accepted;
+        if (backpressure == Backpressure.BLOCK) {
+            try {
+                accepted = queue.offer(row, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(row);
+        }
+
+        if (!accepted) {
+            rejected.increment();
+            throw new IngestQueueFullException("La file d'ingestion des positions est pleine, réessayez plus tard");
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writerThread = Thread.ofPlatform()
+                .name("position-write-behind")
+                .start(this::writeLoop);
+    }
+
+    @Override
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        try {
+            // la boucle d'écriture vide la file avant de se terminer
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.error("{} positions non écrites à l'arrêt de l'application", queue.size());
+        }
+        writerThread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // s'arrêter après le serveur web (qui n'accepte alors plus de positions) et avant la fermeture de la base
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void writeLoop() {
+        List<PositionRow> batch = new ArrayList<>(flushMaxRows);
+        while (running || !queue.isEmpty()) {
+            try {
+                PositionRow first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                // regrouper jusqu'à M lignes ou jusqu'à N ms après la première
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                queue.drainTo(batch, flushMaxRows - batch.size());
+                while (running && batch.size() < flushMaxRows) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PositionRow next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, flushMaxRows - batch.size());
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // base indisponible : seules les lignes non encore validées sont réessayées (la file se remplit et la
+    // contre-pression s'applique) ; à l'arrêt, un seul essai, les lignes restantes sont perdues
+    private void flush(List<PositionRow> batch) throws InterruptedException {
+        long start = System.nanoTime();
+        long backoffNanos = flushIntervalNanos;
+        List<PositionRow> remaining = batch;
+        int written = 0;
+        try {
+            while (true) {
+                PositionGroupWriter.GroupWriteResult result = positionGroupWriter.write(remaining);
+                written += result.written().size();
+                result.written().forEach(row ->
+                        vectorTileCache.positionWritten(row.longitude(), row.latitude(), row.positionDateTime()));
+                if (!result.rejected().isEmpty()) {
+                    // seules les lignes fautives sont perdues, les autres véhicules du groupe sont écrits
+                    failedRows.increment(result.rejected().size());
+                    log.error("{} positions sur {} écartées par la base lors de l'écriture différée",
+                            result.rejected().size(), batch.size());
+                    forget(result.rejected());
+                }
+                if (result.failure() == null) {
+                    return;
+                }
+
+                remaining = remaining.subList(result.processed(), remaining.size());
+                if (!running) {
+                    log.error("Échec de l'écriture différée de {} positions à l'arrêt", remaining.size(), result.failure());
+                    failedRows.increment(remaining.size());
+                    forget(remaining);
+                    return;
+                }
+                log.warn("Échec de l'écriture différée de {} positions, nouvel essai dans {} ms : {}",
+                        remaining.size(), TimeUnit.NANOSECONDS.toMillis(backoffNanos), result.failure().getMessage());
+                TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                backoffNanos = Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+            }
+        } finally {
+            flushSize.record(written);
+            flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // les anneaux en cache et l'état courant contiennent des positions qui n'ont pas été écrites
+    private void forget(List<PositionRow> rows) {
+        rows.stream().map(PositionRow::vehicleId).distinct().forEach(vehicleId -> {
+            positionTailCache.invalidate(vehicleId);
+            latestPositionStore.invalidate(vehicleId);
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.config.PositionCompressionProperties;
+import com.polytechnique.fleetman.geometry.compression.AlignmentCompressor;
+import com.polytechnique.fleetman.geometry.compression.CompressionStrategy;
+import com.polytechnique.fleetman.geometry.compression.DeadReckoningCompressor;
+import com.polytechnique.fleetman.geometry.compression.OpeningWindowCompressor;
+import com.polytechnique.fleetman.geometry.compression.TrajectoryCompressor;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Choix du compresseur de trajectoire selon le type de véhicule
+ */
+@Component
+public class TrajectoryCompressorRegistry {
+
+    private final Map<CompressionStrategy, TrajectoryCompressor> compressors = new EnumMap<>(CompressionStrategy.class);
+    private final Map<String, TrajectoryCompressor> byVehicleType = new HashMap<>();
+    private final TrajectoryCompressor defaultCompressor;
+
+    public TrajectoryCompressorRegistry(PositionCompressionProperties properties) {
+        compressors.put(CompressionStrategy.ALIGNEMENT, new AlignmentCompressor());
+        compressors.put(CompressionStrategy.OPENING_WINDOW,
+                new OpeningWindowCompressor(properties.getMaxErrorMeters(), properties.getMaxWindowSize()));
+        compressors.put(CompressionStrategy.DEAD_RECKONING,
+                new DeadReckoningCompressor(properties.getMaxErrorMeters()));
+
+        this.defaultCompressor = compressors.get(properties.getDefaultStrategy());
+        properties.getVehicleTypes().forEach((vehicleType, strategy) ->
+                byVehicleType.put(vehicleType.toLowerCase(Locale.ROOT), compressors.get(strategy)));
+    }
+
+    public TrajectoryCompressor compressorFor(String vehicleType) {
+        if (vehicleType == null) {
+            return defaultCompressor;
+        }
+        return byVehicleType.getOrDefault(vehicleType.toLowerCase(Locale.ROOT), defaultCompressor);
+    }
+}
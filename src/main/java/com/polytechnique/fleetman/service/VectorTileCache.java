@@ -0,0 +1,319 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import com.polytechnique.fleetman.geometry.tile.Tiles;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.locationtech.jts.geom.Envelope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache des tuiles vectorielles générées, par tuile et par filtre (période, utilisateur), borné en octets
+ * et en nombre d'entrées. Chaque entrée compte sa tuile plus un surcoût fixe (clé, nœud de la table) :
+ * les tuiles vides, mises en cache elles aussi, ne sont pas gratuites, et les filtres choisis par le client
+ * ne peuvent pas faire croître le cache sans limite. Au-delà d'une borne, le dixième le moins récemment lu
+ * est retiré. Table concurrente : ni la lecture ni l'invalidation ne bloquent les autres lectures.
+ * Les écritures signalent la zone et la période modifiées ; elles sont regroupées par tuile au zoom
+ * DIRTY_ZOOM (ou plus grossier pour une grande emprise), puis appliquées en un seul parcours du cache
+ * toutes les `fleetman.tiles.cache.invalidation-interval-ms` : une tuile est retirée si elle recouvre une zone
+ * modifiée et si sa période contient une date modifiée.
+ */
+@Component
+public class VectorTileCache {
+
+    // zoom de regroupement des modifications (tuiles d'environ 600 m)
+    private static final int DIRTY_ZOOM = 16;
+    // période ouverte d'un côté
+    private static final long OPEN = Long.MIN_VALUE;
+    // estimation de la clé (record, deux LocalDateTime, Long), de l'entrée, du nœud de table et de l'en-tête du tableau
+    private static final long ENTRY_OVERHEAD = 256;
+
+    public record TileKey(TileLayer layer, int z, int x, int y, LocalDateTime from, LocalDateTime to, Long userId) {
+    }
+
+    // dates modifiées, en secondes epoch
+    private record TimeRange(long min, long max) {
+        TimeRange union(TimeRange other) {
+            return new TimeRange(Math.min(min, other.min), Math.max(max, other.max));
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] tile;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private Entry(byte[] tile) {
+            this.tile = tile;
+        }
+
+        private long weight() {
+            return tile.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private final Map<TileLayer, ConcurrentHashMap<Long, TimeRange>> pending = new EnumMap<>(TileLayer.class);
+    private final ConcurrentHashMap<TileKey, Entry> tiles = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    // un seul retrait des moins récemment lues à la fois ; les autres écritures ne l'attendent pas
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final long maxBytes;
+    private final int maxEntries;
+    // incrémenté à chaque invalidation effective : une tuile générée pendant une invalidation n'est pas mise en cache
+    private volatile long epoch;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    public VectorTileCache(MeterRegistry meterRegistry,
+                           @Value("${fleetman.tiles.cache.max-bytes:67108864}") long maxBytes,
+                           @Value("${fleetman.tiles.cache.max-entries:100000}") int maxEntries) {
+        this.maxBytes = maxBytes;
+        this.maxEntries = Math.max(1, maxEntries);
+        for (TileLayer layer : TileLayer.values()) {
+            pending.put(layer, new ConcurrentHashMap<>());
+        }
+
+        Gauge.builder("fleetman.tiles.cache.bytes", bytes, AtomicLong::get)
+                .description("Octets de tuiles en cache")
+                .register(meterRegistry);
+        this.hits = Counter.builder("fleetman.tiles.cache.requests").tag("result", "hit")
+                .description("Tuiles demandées au cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("fleetman.tiles.cache.requests").tag("result", "miss")
+                .description("Tuiles demandées au cache")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("fleetman.tiles.cache.evictions")
+                .description("Tuiles retirées pour respecter la taille maximale")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("fleetman.tiles.cache.invalidations")
+                .description("Tuiles retirées suite à une modification des données")
+                .register(meterRegistry);
+    }
+
+    public byte[] get(TileKey key) {
+        Entry entry = tiles.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.lastAccessNanos = System.nanoTime();
+        return entry.tile;
+    }
+
+    /**
+     * Époque à relever avant de générer une tuile, à rendre à put
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Met la tuile en cache, sauf si une invalidation a eu lieu depuis le début de sa génération
+     * (elle a pu être lue avant la modification) ou si elle dépasse le quart du cache
+     */
+    public void put(TileKey key, byte[] tile, long generationEpoch) {
+        Entry entry = new Entry(tile);
+        if (entry.weight() > maxBytes / 4 || epoch != generationEpoch) {
+            return;
+        }
+        Entry previous = tiles.put(key, entry);
+        bytes.addAndGet(entry.weight() - (previous != null ? previous.weight() : 0));
+        // invalidation commencée entre-temps (l'époque est incrémentée avant son parcours) : elle a pu passer
+        // avant cette entrée, qui est retirée ici
+        if (epoch != generationEpoch) {
+            remove(key, entry);
+            return;
+        }
+        if (bytes.get() > maxBytes || tiles.size() > maxEntries) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Signale une position écrite ; dans une transaction, le signalement a lieu après le commit
+     */
+    public void positionWritten(double longitude, double latitude, LocalDateTime dateTime) {
+        long tile = Tiles.key(DIRTY_ZOOM, Tiles.tileX(longitude, DIRTY_ZOOM), Tiles.tileY(latitude, DIRTY_ZOOM));
+        long second = dateTime.toEpochSecond(ZoneOffset.UTC);
+        afterCommit(() -> mark(TileLayer.POSITIONS, tile, new TimeRange(second, second)));
+    }
+
+    /**
+     * Signale des données modifiées dans l'emprise (null : partout) sur [from, to] (null : période ouverte) ;
+     * dans une transaction, le signalement a lieu après le commit
+     */
+    public void dataChanged(TileLayer layer, Envelope envelope, LocalDateTime from, LocalDateTime to) {
+        TimeRange range = new TimeRange(
+                from != null ? from.toEpochSecond(ZoneOffset.UTC) : OPEN,
+                to != null ? to.toEpochSecond(ZoneOffset.UTC) : Long.MAX_VALUE);
+        // emprise inconnue : la tuile 0/0/0, ancêtre de toutes les autres
+        boolean world = envelope == null || envelope.isNull();
+        int z = world ? 0 : Tiles.coveringZoom(envelope, DIRTY_ZOOM);
+        int minX = world ? 0 : Tiles.tileX(envelope.getMinX(), z);
+        int maxX = world ? 0 : Tiles.tileX(envelope.getMaxX(), z);
+        int minY = world ? 0 : Tiles.tileY(envelope.getMaxY(), z);
+        int maxY = world ? 0 : Tiles.tileY(envelope.getMinY(), z);
+        afterCommit(() -> {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    mark(layer, Tiles.key(z, x, y), range);
+                }
+            }
+        });
+    }
+
+    /**
+     * Vide le cache (suppression en cascade dont l'emprise n'est pas connue, ex. un véhicule)
+     */
+    public void clear() {
+        afterCommit(() -> {
+            epoch++;
+            tiles.forEach((key, entry) -> {
+                if (remove(key, entry)) {
+                    invalidations.increment();
+                }
+            });
+        });
+    }
+
+    private void mark(TileLayer layer, long tile, TimeRange range) {
+        pending.get(layer).merge(tile, range, TimeRange::union);
+    }
+
+    /**
+     * Applique les modifications signalées : un seul parcours du cache, une recherche par ancêtre de chaque tuile
+     */
+    @Scheduled(fixedDelayString = "${fleetman.tiles.cache.invalidation-interval-ms:1000}")
+    public void invalidate() {
+        Map<TileLayer, Map<Long, TimeRange>> dirty = new EnumMap<>(TileLayer.class);
+        Map<TileLayer, Map<Long, TimeRange>> affected = new EnumMap<>(TileLayer.class);
+        for (TileLayer layer : TileLayer.values()) {
+            ConcurrentHashMap<Long, TimeRange> changes = pending.get(layer);
+            if (changes.isEmpty()) {
+                continue;
+            }
+            Map<Long, TimeRange> layerDirty = new HashMap<>();
+            Map<Long, TimeRange> layerAffected = new HashMap<>();
+            for (Long tile : changes.keySet()) {
+                TimeRange range = changes.remove(tile);
+                if (range == null) {
+                    continue;
+                }
+                layerDirty.merge(tile, range, TimeRange::union);
+                // la tuile modifiée et tous ses ancêtres recouvrent la modification
+                int z = (int) (tile >>> 58);
+                int x = (int) ((tile >>> 29) & 0x1FFF_FFFF);
+                int y = (int) (tile & 0x1FFF_FFFF);
+                for (int level = z; level >= 0; level--) {
+                    layerAffected.merge(Tiles.key(level, x >> (z - level), y >> (z - level)), range, TimeRange::union);
+                }
+            }
+            dirty.put(layer, layerDirty);
+            affected.put(layer, layerAffected);
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        // parcours faiblement cohérent de la table : les lectures continuent pendant l'invalidation
+        epoch++;
+        tiles.forEach((key, entry) -> {
+            if (dirty.containsKey(key.layer()) && overlaps(key, dirty.get(key.layer()), affected.get(key.layer()))
+                    && remove(key, entry)) {
+                invalidations.increment();
+            }
+        });
+    }
+
+    // la tuile recouvre une modification : elle-même ou un descendant est modifié (affected), ou un ancêtre (dirty)
+    private static boolean overlaps(TileKey key, Map<Long, TimeRange> dirty, Map<Long, TimeRange> affected) {
+        if (intersects(key, affected.get(Tiles.key(key.z(), key.x(), key.y())))) {
+            return true;
+        }
+        for (int level = key.z() - 1; level >= 0; level--) {
+            int shift = key.z() - level;
+            if (intersects(key, dirty.get(Tiles.key(level, key.x() >> shift, key.y() >> shift)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // période de la tuile [from, to[ contre dates modifiées [min, max]
+    private static boolean intersects(TileKey key, TimeRange range) {
+        if (range == null) {
+            return false;
+        }
+        return (key.from() == null || range.max() >= key.from().toEpochSecond(ZoneOffset.UTC))
+                && (key.to() == null || range.min() < key.to().toEpochSecond(ZoneOffset.UTC));
+    }
+
+    private boolean remove(TileKey key, Entry entry) {
+        if (tiles.remove(key, entry)) {
+            bytes.addAndGet(-entry.weight());
+            return true;
+        }
+        return false;
+    }
+
+    private record Candidate(TileKey key, Entry entry, long lastAccessNanos) {
+    }
+
+    // retire les tuiles les moins récemment lues jusqu'à redescendre à 90 % des deux bornes
+    private void evictLeastRecentlyUsed() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long targetBytes = maxBytes - maxBytes / 10;
+            int targetEntries = maxEntries - maxEntries / 10;
+            // date de lecture relevée une fois : elle peut changer pendant le tri
+            List<Candidate> eldest = new ArrayList<>(tiles.size());
+            tiles.forEach((key, entry) -> eldest.add(new Candidate(key, entry, entry.lastAccessNanos)));
+            eldest.sort(Comparator.comparingLong(Candidate::lastAccessNanos));
+            for (Candidate candidate : eldest) {
+                if (bytes.get() <= targetBytes && tiles.size() <= targetEntries) {
+                    break;
+                }
+                if (remove(candidate.key(), candidate.entry())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
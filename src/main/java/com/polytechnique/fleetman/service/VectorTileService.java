@@ -0,0 +1,49 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.geometry.tile.TileLayer;
+import com.polytechnique.fleetman.repository.VectorTileReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tuiles vectorielles des positions, historiques, recharges et maintenances, servies depuis le cache
+ * ou générées par PostGIS puis mises en cache
+ */
+@Service
+public class VectorTileService {
+
+    private static final byte[] EMPTY_TILE = new byte[0];
+
+    private final VectorTileReader vectorTileReader;
+    private final VectorTileCache vectorTileCache;
+    // en deçà, une tuile de positions brutes en contiendrait des millions : tuile vide
+    private final int positionsMinZoom;
+
+    public VectorTileService(VectorTileReader vectorTileReader,
+                             VectorTileCache vectorTileCache,
+                             @Value("${fleetman.tiles.positions.min-zoom:10}") int positionsMinZoom) {
+        this.vectorTileReader = vectorTileReader;
+        this.vectorTileCache = vectorTileCache;
+        this.positionsMinZoom = positionsMinZoom;
+    }
+
+    public byte[] getTile(TileLayer layer, int z, int x, int y,
+                          LocalDateTime from, LocalDateTime to, Long userId) {
+        if (layer == TileLayer.POSITIONS && z < positionsMinZoom) {
+            return EMPTY_TILE;
+        }
+
+        VectorTileCache.TileKey key = new VectorTileCache.TileKey(layer, z, x, y, from, to, userId);
+        byte[] tile = vectorTileCache.get(key);
+        if (tile != null) {
+            return tile;
+        }
+
+        long epoch = vectorTileCache.epoch();
+        tile = vectorTileReader.readTile(layer, z, x, y, from, to, userId);
+        vectorTileCache.put(key, tile, epoch);
+        return tile;
+    }
+}
@@ -1,5 +1,7 @@
 package com.polytechnique.fleetman.service;
 
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import com.polytechnique.fleetman.dto.vehicle.NearbyVehicleDTO;
 import com.polytechnique.fleetman.dto.vehicle.VehicleCreateDTO;
 import com.polytechnique.fleetman.dto.vehicle.VehicleDTO;
 import com.polytechnique.fleetman.dto.vehicle.VehicleUpdateDTO;
@@ -13,15 +15,30 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class VehicleService {
 
+    // rayon initial de la recherche des plus proches véhicules disponibles, doublé tant qu'il en manque
+    private static final double NEAREST_INITIAL_RADIUS_METERS = 1_000;
+    // nombre maximal d'IDs par requête de disponibilité
+    private static final int AVAILABILITY_CHUNK_SIZE = 1_000;
+
     private final VehicleRepository vehicleRepository;
     private final UserRepository userRepository;
+    private final PositionTailCache positionTailCache;
+    private final LatestPositionStore latestPositionStore;
+    private final VehicleSpatialIndex vehicleSpatialIndex;
+    private final GeofenceEngine geofenceEngine;
+    private final VectorTileCache vectorTileCache;
 
     @Transactional
     public VehicleDTO createVehicle(VehicleCreateDTO vehicleCreateDTO) {
@@ -99,6 +116,8 @@ public class VehicleService {
         }
         if (vehicleUpdateDTO.getVehicleName() != null) {
             vehicle.setVehicleName(vehicleUpdateDTO.getVehicleName());
+            // le nom du véhicule figure dans les tuiles vectorielles
+            vectorTileCache.clear();
         }
         if (vehicleUpdateDTO.getVehicleType() != null) {
             vehicle.setVehicleType(vehicleUpdateDTO.getVehicleType());
@@ -123,6 +142,8 @@ public class VehicleService {
         }
 
         VehicleEntity updatedVehicle = vehicleRepository.save(vehicle);
+        positionTailCache.invalidate(vehicleId);
+        latestPositionStore.invalidate(vehicleId);
         return convertToDTO(updatedVehicle);
     }
 
@@ -132,6 +153,79 @@ public class VehicleService {
             throw new ResourceNotFoundException("Véhicule non trouvé");
         }
         vehicleRepository.deleteById(vehicleId);
+        positionTailCache.invalidate(vehicleId);
+        latestPositionStore.invalidate(vehicleId);
+        geofenceEngine.forget(vehicleId);
+        // suppression en cascade de toutes les données du véhicule, emprise inconnue
+        vectorTileCache.clear();
+    }
+
+    /**
+     * Véhicules dont la position courante est à moins de radiusMeters du point, du plus proche au plus éloigné
+     * (servi par l'index spatial en mémoire, sans requête)
+     */
+    public List<NearbyVehicleDTO> getVehiclesNear(double lon, double lat, double radiusMeters, int limit) {
+        return vehicleSpatialIndex.near(lon, lat, radiusMeters, limit).stream()
+                .map(this::convertToNearbyDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Les count véhicules disponibles (sans trajet en cours, carburant au moins minFuel) les plus proches du point.
+     * Les candidats viennent de l'index spatial par cercles de rayon croissant ; seuls les candidats nouveaux
+     * sont soumis à la base. Dès que count véhicules disponibles sont dans le cercle courant, ce sont les plus proches :
+     * tout véhicule non examiné est plus loin.
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyVehicleDTO> getNearestAvailableVehicles(double lon, double lat, int count,
+                                                              BigDecimal minFuel, double maxRadiusMeters) {
+        Set<Long> examined = new HashSet<>();
+        List<VehicleSpatialIndex.Nearby> available = new ArrayList<>();
+        double radius = Math.min(NEAREST_INITIAL_RADIUS_METERS, maxRadiusMeters);
+
+        while (true) {
+            List<VehicleSpatialIndex.Nearby> candidates = new ArrayList<>();
+            for (VehicleSpatialIndex.Nearby nearby : vehicleSpatialIndex.near(lon, lat, radius, Integer.MAX_VALUE)) {
+                if (examined.add(nearby.position().getVehicleId())) {
+                    candidates.add(nearby);
+                }
+            }
+            for (int from = 0; from < candidates.size(); from += AVAILABILITY_CHUNK_SIZE) {
+                List<VehicleSpatialIndex.Nearby> chunk =
+                        candidates.subList(from, Math.min(from + AVAILABILITY_CHUNK_SIZE, candidates.size()));
+                Set<Long> ids = new HashSet<>(vehicleRepository.findAvailableVehicleIds(
+                        chunk.stream().map(nearby -> nearby.position().getVehicleId()).toList(), minFuel));
+                chunk.stream()
+                        .filter(nearby -> ids.contains(nearby.position().getVehicleId()))
+                        .forEach(available::add);
+            }
+            if (available.size() >= count || radius >= maxRadiusMeters) {
+                break;
+            }
+            radius = Math.min(radius * 2, maxRadiusMeters);
+        }
+
+        return available.stream()
+                .sorted(Comparator.comparingDouble(VehicleSpatialIndex.Nearby::distanceMeters))
+                .limit(count)
+                .map(this::convertToNearbyDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Véhicules dont la position courante est dans l'emprise minLongitude,minLatitude,maxLongitude,maxLatitude
+     */
+    public List<LatestPositionDTO> getVehiclesWithin(List<Double> bbox) {
+        return vehicleSpatialIndex.within(VehicleSpatialIndex.envelope(bbox));
+    }
+
+    private NearbyVehicleDTO convertToNearbyDTO(VehicleSpatialIndex.Nearby nearby) {
+        return new NearbyVehicleDTO(
+                nearby.position().getVehicleId(),
+                nearby.position().getVehicleName(),
+                nearby.position().getCoordinate(),
+                nearby.position().getPositionDateTime(),
+                nearby.distanceMeters());
     }
 
     private VehicleDTO convertToDTO(VehicleEntity vehicle) {
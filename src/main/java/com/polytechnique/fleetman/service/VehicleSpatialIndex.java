@@ -0,0 +1,169 @@
+package com.polytechnique.fleetman.service;
+
+import com.polytechnique.fleetman.dto.position.LatestPositionDTO;
+import com.polytechnique.fleetman.exception.BadRequestException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.locationtech.jts.geom.Envelope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index spatial des positions courantes des véhicules : grille régulière en degrés,
+ * chaque cellule contenant les véhicules qui s'y trouvent.
+ * Une nouvelle position coûte O(1) (au plus un retrait et un ajout de cellule) ; une recherche
+ * ne parcourt que les cellules couvrant la zone demandée. Alimenté par {@link LatestPositionStore}.
+ */
+@Component
+public class VehicleSpatialIndex {
+
+    private static final double METRES_PAR_DEGRE = 111_320.0;
+
+    private record Entry(LatestPositionDTO position, long cell) {
+    }
+
+    /**
+     * Véhicule trouvé par une recherche de proximité
+     */
+    public record Nearby(LatestPositionDTO position, double distanceMeters) {
+    }
+
+    private final double cellDegrees;
+    private final Map<Long, Entry> vehicles = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+    public VehicleSpatialIndex(MeterRegistry meterRegistry,
+                               @Value("${fleetman.vehicle.spatial-index.cell-degrees:0.01}") double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+
+        Gauge.builder("fleetman.vehicle.spatial-index.cells", cells, Map::size)
+                .description("Cellules occupées de l'index spatial des véhicules")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Emprise minLongitude,minLatitude,maxLongitude,maxLatitude d'un paramètre bbox
+     */
+    public static Envelope envelope(List<Double> bbox) {
+        if (bbox.size() != 4 || bbox.get(0) > bbox.get(2) || bbox.get(1) > bbox.get(3)) {
+            throw new BadRequestException("bbox doit être de la forme minLongitude,minLatitude,maxLongitude,maxLatitude");
+        }
+        return new Envelope(bbox.get(0), bbox.get(2), bbox.get(1), bbox.get(3));
+    }
+
+    /**
+     * Place le véhicule à sa nouvelle position (appelé sous le verrou du véhicule dans l'état courant)
+     */
+    void update(LatestPositionDTO position) {
+        Long vehicleId = position.getVehicleId();
+        long cell = cell(position.getCoordinate().getX(), position.getCoordinate().getY());
+        Entry previous = vehicles.put(vehicleId, new Entry(position, cell));
+        if (previous != null && previous.cell() == cell) {
+            return;
+        }
+        // ajout et retrait atomiques par cellule : une cellule vidée disparaît sans perdre un ajout concurrent
+        cells.compute(cell, (key, members) -> {
+            Set<Long> set = members != null ? members : ConcurrentHashMap.newKeySet();
+            set.add(vehicleId);
+            return set;
+        });
+        if (previous != null) {
+            leave(previous.cell(), vehicleId);
+        }
+    }
+
+    void remove(Long vehicleId) {
+        Entry previous = vehicles.remove(vehicleId);
+        if (previous != null) {
+            leave(previous.cell(), vehicleId);
+        }
+    }
+
+    /**
+     * Véhicules à moins de radiusMeters du point, du plus proche au plus éloigné
+     */
+    public List<Nearby> near(double lon, double lat, double radiusMeters, int limit) {
+        double dLat = radiusMeters / METRES_PAR_DEGRE;
+        double dLon = radiusMeters / (METRES_PAR_DEGRE * Math.max(Math.cos(Math.toRadians(lat)), 1e-6));
+        Envelope zone = new Envelope(lon - dLon, lon + dLon, lat - dLat, lat + dLat);
+
+        List<Nearby> result = new ArrayList<>();
+        for (LatestPositionDTO position : candidates(zone)) {
+            double distance = LatestPositionStore.distanceMetres(lon, lat,
+                    position.getCoordinate().getX(), position.getCoordinate().getY());
+            if (distance <= radiusMeters) {
+                result.add(new Nearby(position, distance));
+            }
+        }
+        result.sort(Comparator.comparingDouble(Nearby::distanceMeters));
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /**
+     * Véhicules dont la position courante est dans l'emprise
+     */
+    public List<LatestPositionDTO> within(Envelope bbox) {
+        return candidates(bbox);
+    }
+
+    private List<LatestPositionDTO> candidates(Envelope zone) {
+        List<LatestPositionDTO> result = new ArrayList<>();
+        long minX = (long) Math.floor(zone.getMinX() / cellDegrees);
+        long maxX = (long) Math.floor(zone.getMaxX() / cellDegrees);
+        long minY = (long) Math.floor(zone.getMinY() / cellDegrees);
+        long maxY = (long) Math.floor(zone.getMaxY() / cellDegrees);
+
+        // grande emprise (vue pays) : moins coûteux de parcourir les véhicules que les cellules
+        if ((maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+            for (Entry entry : vehicles.values()) {
+                addIfInside(entry.position(), zone, result);
+            }
+            return result;
+        }
+
+        for (long x = minX; x <= maxX; x++) {
+            for (long y = minY; y <= maxY; y++) {
+                Set<Long> members = cells.get(key(x, y));
+                if (members == null) {
+                    continue;
+                }
+                for (Long vehicleId : members) {
+                    Entry entry = vehicles.get(vehicleId);
+                    // le véhicule a pu changer de cellule depuis la lecture de celle-ci
+                    if (entry != null && entry.cell() == key(x, y)) {
+                        addIfInside(entry.position(), zone, result);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void addIfInside(LatestPositionDTO position, Envelope zone, List<LatestPositionDTO> result) {
+        if (zone.contains(position.getCoordinate().getX(), position.getCoordinate().getY())) {
+            result.add(position);
+        }
+    }
+
+    private void leave(long cell, Long vehicleId) {
+        cells.computeIfPresent(cell, (key, members) -> {
+            members.remove(vehicleId);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private long cell(double lon, double lat) {
+        return key((long) Math.floor(lon / cellDegrees), (long) Math.floor(lat / cellDegrees));
+    }
+
+    private static long key(long x, long y) {
+        return (x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
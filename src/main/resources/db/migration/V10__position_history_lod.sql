@@ -0,0 +1,45 @@
+-- Niveaux de détail des historiques de position (voir PositionHistoryLodReader) : simplifications de Visvalingam-Whyatt
+-- précalculées à l'écriture, pour servir les cartes dézoomées sans transférer la ligne complète.
+-- Niveau n : tolérance de 2 * 4^(n-1) mètres (2 m, 8 m, ... 8 192 m) ; le niveau 0 est la ligne d'origine.
+CREATE TABLE position_history_lod (
+    position_history_id BIGINT NOT NULL,
+    lod_level SMALLINT NOT NULL CHECK (lod_level BETWEEN 1 AND 7),
+    summary_coordinate GEOMETRY(LineString, 4326) NOT NULL,
+    PRIMARY KEY (position_history_id, lod_level),
+    CONSTRAINT fk_position_history_lod_history FOREIGN KEY (position_history_id)
+        REFERENCES position_history(position_history_id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_position_history_lod_linestring ON position_history_lod USING GIST(summary_coordinate);
+
+-- ST_SimplifyVW prend une aire : carré de la tolérance convertie en degrés (1 degré ~ 111 320 m)
+CREATE OR REPLACE FUNCTION refresh_position_history_lod()
+RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM position_history_lod WHERE position_history_id = NEW.position_history_id;
+    INSERT INTO position_history_lod (position_history_id, lod_level, summary_coordinate)
+    SELECT NEW.position_history_id, lod_level, simplified
+    FROM (
+        SELECT lod_level,
+               ST_SimplifyVW(NEW.summary_coordinate, power(2 * power(4, lod_level - 1) / 111320.0, 2)) AS simplified
+        FROM generate_series(1, 7) AS lod_level
+    ) levels
+    WHERE GeometryType(simplified) = 'LINESTRING' AND ST_NPoints(simplified) >= 2;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- calculé à l'écriture, quel que soit l'auteur (API ou compaction PositionRollupJob)
+CREATE TRIGGER refresh_position_history_lod AFTER INSERT OR UPDATE OF summary_coordinate ON position_history
+    FOR EACH ROW EXECUTE FUNCTION refresh_position_history_lod();
+
+-- historiques existants
+INSERT INTO position_history_lod (position_history_id, lod_level, summary_coordinate)
+SELECT position_history_id, lod_level, simplified
+FROM (
+    SELECT h.position_history_id, lod_level,
+           ST_SimplifyVW(h.summary_coordinate, power(2 * power(4, lod_level - 1) / 111320.0, 2)) AS simplified
+    FROM position_history h
+    CROSS JOIN generate_series(1, 7) AS lod_level
+) levels
+WHERE GeometryType(simplified) = 'LINESTRING' AND ST_NPoints(simplified) >= 2;
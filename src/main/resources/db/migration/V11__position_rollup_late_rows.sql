@@ -0,0 +1,37 @@
+-- Positions arrivées dans des tranches déjà compactées (import d'historique, rejeu tardif du journal) :
+-- elles sont signalées par heure et la tranche est recompactée avant toute purge (voir PositionRollupJob).
+
+-- Tranche de compaction d'origine des historiques produits par le job (NULL : historique saisi, ou antérieur à V11)
+ALTER TABLE position_history ADD COLUMN rollup_bucket TIMESTAMP;
+CREATE INDEX IF NOT EXISTS idx_position_history_rollup_bucket ON position_history(rollup_bucket)
+    WHERE rollup_bucket IS NOT NULL;
+
+-- En deçà, les positions non signalées ont été purgées : une tranche signalée n'est plus recompactée,
+-- seules les positions des heures signalées sont résumées (puis supprimées)
+ALTER TABLE position_rollup_checkpoint ADD COLUMN append_only_until TIMESTAMP;
+UPDATE position_rollup_checkpoint SET append_only_until = rolled_up_until WHERE checkpoint_id = 1;
+
+-- Heures ayant reçu des positions depuis leur dernière compaction
+CREATE TABLE position_rollup_dirty (
+    hour_start TIMESTAMP PRIMARY KEY
+);
+
+-- Trigger par instruction (COPY compris) : une ligne par heure touchée, et non par position.
+-- La marque est validée avec les positions : une compaction qui ne les voit pas encore laisse la marque en place.
+CREATE OR REPLACE FUNCTION mark_position_rollup_dirty()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO position_rollup_dirty (hour_start)
+    SELECT DISTINCT date_trunc('hour', position_date_time) FROM new_positions
+    ON CONFLICT DO NOTHING;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_position_rollup_dirty
+    AFTER INSERT ON position
+    REFERENCING NEW TABLE AS new_positions
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION mark_position_rollup_dirty();
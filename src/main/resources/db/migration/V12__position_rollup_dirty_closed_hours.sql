@@ -0,0 +1,19 @@
+-- Le trigger de V11 insérait une marque à chaque ingestion. Seules les heures qu'une compaction a pu déjà lire
+-- sont maintenant signalées : celles antérieures au point de reprise (import d'historique, rejeu tardif du journal),
+-- et les heures closes, qu'une compaction en cours peut résumer sans voir les positions pas encore validées.
+-- Les positions de l'heure courante, c'est-à-dire l'ingestion en direct, n'écrivent plus rien.
+-- GREATEST ignore un point de reprise NULL (aucune compaction encore).
+CREATE OR REPLACE FUNCTION mark_position_rollup_dirty()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    INSERT INTO position_rollup_dirty (hour_start)
+    SELECT DISTINCT date_trunc('hour', n.position_date_time)
+    FROM new_positions n
+    JOIN position_rollup_checkpoint c ON c.checkpoint_id = 1
+    WHERE n.position_date_time < GREATEST(c.rolled_up_until, date_trunc('hour', clock_timestamp()::timestamp))
+    ON CONFLICT DO NOTHING;
+    RETURN NULL;
+END;
+$$;
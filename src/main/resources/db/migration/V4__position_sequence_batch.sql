@@ -0,0 +1,3 @@
+-- Pré-allocation des identifiants de position par blocs de 50 (allocationSize de PositionEntity)
+-- pour permettre l'insertion par lots via Hibernate
+ALTER SEQUENCE position_position_id_seq INCREMENT BY 50;
@@ -0,0 +1,93 @@
+-- Partitionnement mensuel de la table position sur position_date_time.
+-- Les requêtes bornées dans le temps ne lisent que les partitions concernées,
+-- et la rétention se fait en détachant / supprimant des partitions entières (voir PositionPartitionManager).
+
+-- Création (idempotente) de la partition mensuelle contenant p_month.
+-- Les lignes déjà tombées dans la partition par défaut pour ce mois y sont déplacées.
+CREATE OR REPLACE FUNCTION create_position_partition(p_month DATE)
+RETURNS TEXT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::DATE;
+    v_end   DATE := (date_trunc('month', p_month) + INTERVAL '1 month')::DATE;
+    v_name  TEXT := 'position_p' || to_char(v_start, 'YYYYMM');
+    v_orphans BOOLEAN;
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN v_name;
+    END IF;
+
+    SELECT EXISTS (
+        SELECT 1 FROM position_default
+        WHERE position_date_time >= v_start AND position_date_time < v_end
+    ) INTO v_orphans;
+
+    IF v_orphans THEN
+        ALTER TABLE position DETACH PARTITION position_default;
+        EXECUTE format('CREATE TABLE %I PARTITION OF position FOR VALUES FROM (%L) TO (%L)', v_name, v_start, v_end);
+        INSERT INTO position
+            SELECT * FROM position_default
+            WHERE position_date_time >= v_start AND position_date_time < v_end;
+        DELETE FROM position_default
+            WHERE position_date_time >= v_start AND position_date_time < v_end;
+        ALTER TABLE position ATTACH PARTITION position_default DEFAULT;
+    ELSE
+        EXECUTE format('CREATE TABLE %I PARTITION OF position FOR VALUES FROM (%L) TO (%L)', v_name, v_start, v_end);
+    END IF;
+
+    RETURN v_name;
+END;
+$$;
+
+-- Mise de côté de l'ancienne table (la séquence des identifiants est conservée)
+ALTER TABLE position RENAME TO position_legacy;
+ALTER TABLE position_legacy RENAME CONSTRAINT position_pkey TO position_legacy_pkey;
+ALTER SEQUENCE position_position_id_seq OWNED BY NONE;
+
+-- La clé primaire d'une table partitionnée doit inclure la clé de partitionnement
+CREATE TABLE position (
+    position_id BIGINT NOT NULL DEFAULT nextval('position_position_id_seq'),
+    coordinate GEOMETRY(Point, 4326) NOT NULL,
+    position_date_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    vehicle_id BIGINT NOT NULL,
+    CONSTRAINT position_pkey PRIMARY KEY (position_id, position_date_time),
+    CONSTRAINT fk_position_vehicle FOREIGN KEY (vehicle_id)
+        REFERENCES vehicle(vehicle_id) ON DELETE CASCADE
+) PARTITION BY RANGE (position_date_time);
+
+ALTER SEQUENCE position_position_id_seq OWNED BY position.position_id;
+
+-- Partition par défaut : reçoit les positions hors des mois déjà créés
+CREATE TABLE position_default PARTITION OF position DEFAULT;
+
+-- Partitions couvrant les données existantes et les 3 prochains mois
+DO $$
+DECLARE
+    v_month DATE;
+    v_last  DATE;
+BEGIN
+    SELECT date_trunc('month', COALESCE(MIN(position_date_time), CURRENT_TIMESTAMP))::DATE,
+           GREATEST(date_trunc('month', COALESCE(MAX(position_date_time), CURRENT_TIMESTAMP)),
+                    date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months')::DATE
+    INTO v_month, v_last
+    FROM position_legacy;
+
+    WHILE v_month <= v_last LOOP
+        PERFORM create_position_partition(v_month);
+        v_month := (v_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+INSERT INTO position (position_id, coordinate, position_date_time, vehicle_id)
+SELECT position_id, coordinate, position_date_time, vehicle_id
+FROM position_legacy;
+
+DROP TABLE position_legacy;
+
+-- Index créés sur la table partitionnée, donc propagés à chaque partition
+CREATE INDEX IF NOT EXISTS idx_position_coordinate ON position USING GIST(coordinate);
+CREATE INDEX IF NOT EXISTS idx_position_time ON position(position_date_time);
+-- dernières positions d'un véhicule : parcours ordonné des partitions, arrêté dès la limite atteinte
+CREATE INDEX IF NOT EXISTS idx_position_vehicle_time ON position(vehicle_id, position_date_time DESC);
@@ -0,0 +1,13 @@
+-- Point de reprise du job de compaction des positions brutes en position_history (voir PositionRollupJob).
+-- Toutes les positions antérieures à rolled_up_until ont été résumées ; elles peuvent être supprimées
+-- une fois l'horizon de rétention dépassé.
+CREATE TABLE position_rollup_checkpoint (
+    checkpoint_id SMALLINT PRIMARY KEY CHECK (checkpoint_id = 1),
+    rolled_up_until TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO position_rollup_checkpoint (checkpoint_id, rolled_up_until) VALUES (1, NULL);
+
+-- Résumés d'un véhicule dans l'ordre chronologique
+CREATE INDEX IF NOT EXISTS idx_position_history_vehicle_date ON position_history(vehicle_id, position_date_time);
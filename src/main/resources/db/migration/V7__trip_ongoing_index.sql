@@ -0,0 +1,3 @@
+-- Trajets en cours par véhicule (arrivée non renseignée) : disponibilité des véhicules pour la recherche
+-- des plus proches véhicules disponibles (voir VehicleService.getNearestAvailableVehicles)
+CREATE INDEX IF NOT EXISTS idx_trip_ongoing_vehicle ON trip(vehicle_id) WHERE arrival_date_time IS NULL;
@@ -0,0 +1,33 @@
+-- Zones géographiques (geofences) d'un utilisateur et règles d'alerte associées (voir GeofenceEngine)
+CREATE TABLE geofence (
+    geofence_id BIGSERIAL PRIMARY KEY,
+    geofence_name VARCHAR(100) NOT NULL,
+    geofence_area GEOMETRY(Polygon, 4326) NOT NULL,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_geofence_user FOREIGN KEY (user_id)
+        REFERENCES "user"(user_id) ON DELETE CASCADE
+);
+
+-- Règle : un véhicule, un type de véhicule, ou (les deux absents) tous les véhicules du propriétaire de la zone
+CREATE TABLE geofence_rule (
+    geofence_rule_id BIGSERIAL PRIMARY KEY,
+    geofence_id BIGINT NOT NULL,
+    vehicle_id BIGINT,
+    vehicle_type VARCHAR(50),
+    on_enter BOOLEAN NOT NULL DEFAULT TRUE,
+    on_exit BOOLEAN NOT NULL DEFAULT TRUE,
+    dwell_minutes INTEGER CHECK (dwell_minutes > 0),
+    CONSTRAINT fk_geofence_rule_geofence FOREIGN KEY (geofence_id)
+        REFERENCES geofence(geofence_id) ON DELETE CASCADE,
+    CONSTRAINT fk_geofence_rule_vehicle FOREIGN KEY (vehicle_id)
+        REFERENCES vehicle(vehicle_id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_geofence_area ON geofence USING GIST(geofence_area);
+CREATE INDEX IF NOT EXISTS idx_geofence_user ON geofence(user_id);
+CREATE INDEX IF NOT EXISTS idx_geofence_rule_geofence ON geofence_rule(geofence_id);
+
+CREATE TRIGGER update_geofence_updated_at BEFORE UPDATE ON geofence
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
@@ -0,0 +1,8 @@
+-- Pagination par clé (keyset) des positions : (vehicle_id, position_date_time, position_id) pour l'historique
+-- d'un véhicule, (position_date_time, position_id) pour une fenêtre de temps tous véhicules confondus.
+-- Les index existants en sont des préfixes (un index B-tree se parcourt aussi en ordre décroissant) : remplacés.
+CREATE INDEX IF NOT EXISTS idx_position_vehicle_time_id ON position(vehicle_id, position_date_time, position_id);
+CREATE INDEX IF NOT EXISTS idx_position_time_id ON position(position_date_time, position_id);
+
+DROP INDEX IF EXISTS idx_position_vehicle_time;
+DROP INDEX IF EXISTS idx_position_time;
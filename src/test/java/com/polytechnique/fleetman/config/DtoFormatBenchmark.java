@@ -0,0 +1,106 @@
+package com.polytechnique.fleetman.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.polytechnique.fleetman.dto.position.PositionDTO;
+import com.polytechnique.fleetman.dto.positionhistory.PositionHistoryDTO;
+import com.polytechnique.fleetman.dto.trip.TripDTO;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banc JMH des formats d'échange (JSON + GeoJSON, CBOR + WKB, Smile + WKB) sur les DTO de position,
+ * de trajet et d'historique (LineString de 500 sommets) : débit d'écriture et de lecture,
+ * taille des messages affichée à l'initialisation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DtoFormatBenchmark {
+
+    private static final int HISTORY_VERTICES = 500;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public String format;
+
+    @Param({"POSITION", "TRIP", "HISTORY"})
+    public String dto;
+
+    private ObjectMapper mapper;
+    private Object value;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = switch (format) {
+            case "JSON" -> new JacksonConfig().objectMapper(7);
+            case "CBOR" -> JacksonConfig.binaryMapper(new CBORMapper());
+            default -> JacksonConfig.binaryMapper(new SmileMapper());
+        };
+
+        GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+        LocalDateTime now = LocalDateTime.of(2025, 10, 28, 8, 30);
+        value = switch (dto) {
+            case "POSITION" -> new PositionDTO(123456789L,
+                    geometryFactory.createPoint(new Coordinate(11.5021853, 3.8480325)), now, 12L, "Renault Trafic");
+            case "TRIP" -> new TripDTO(5L,
+                    geometryFactory.createPoint(new Coordinate(11.5021853, 3.8480325)),
+                    geometryFactory.createPoint(new Coordinate(11.5468921, 3.8712044)),
+                    now, now.plusHours(5), 1L, "Jean Dupont", 12L, "Camion Renault - 4X4");
+            default -> {
+                Random random = new Random(7);
+                Coordinate[] coordinates = new Coordinate[HISTORY_VERTICES];
+                double x = 11.5;
+                double y = 3.85;
+                for (int i = 0; i < HISTORY_VERTICES; i++) {
+                    x += (random.nextDouble() - 0.5) * 1e-3;
+                    y += (random.nextDouble() - 0.5) * 1e-3;
+                    coordinates[i] = new Coordinate(x, y);
+                }
+                yield new PositionHistoryDTO(42L, geometryFactory.createLineString(coordinates), now, 12L, "Renault Trafic");
+            }
+        };
+        payload = mapper.writeValueAsBytes(value);
+        System.out.printf("%n%s %s : %d octets%n", format, dto, payload.length);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object read() throws IOException {
+        return mapper.readValue(payload, value.getClass());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DtoFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
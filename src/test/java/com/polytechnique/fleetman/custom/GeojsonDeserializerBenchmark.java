@@ -0,0 +1,99 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banc JMH de la désérialisation GeoJSON : ancien chemin (arbre JsonNode, chaîne, analyse ugeojson)
+ * contre la lecture directe des jetons, sur le point d'une position reçue et une LineString de 10 000 sommets.
+ * Lancement : exécuter main depuis le classpath de test, avec -prof gc pour comparer les allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeojsonDeserializerBenchmark {
+
+    private static final int VERTICES = 10_000;
+
+    private ObjectMapper legacy;
+    private ObjectMapper streaming;
+    private byte[] point;
+    private byte[] lineString;
+
+    @Setup
+    public void setUp() {
+        legacy = mapper(new CustomUGeojsonDeserializer<>(), new CustomUGeojsonDeserializer<>());
+        streaming = mapper(new GeojsonStreamingDeserializer<>(Point.class),
+                new GeojsonStreamingDeserializer<>(LineString.class));
+
+        point = "{\"type\":\"Point\",\"coordinates\":[11.5021853,3.8480325]}".getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(5);
+        StringBuilder json = new StringBuilder("{\"type\":\"LineString\",\"coordinates\":[");
+        double x = 11.5;
+        double y = 3.85;
+        for (int i = 0; i < VERTICES; i++) {
+            x += (random.nextDouble() - 0.5) * 1e-3;
+            y += (random.nextDouble() - 0.5) * 1e-3;
+            json.append(i == 0 ? "" : ",").append('[').append(x).append(',').append(y).append(']');
+        }
+        lineString = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Point pointLegacy() throws IOException {
+        return legacy.readValue(point, Point.class);
+    }
+
+    @Benchmark
+    public Point pointStreaming() throws IOException {
+        return streaming.readValue(point, Point.class);
+    }
+
+    @Benchmark
+    public LineString lineStringLegacy() throws IOException {
+        return legacy.readValue(lineString, LineString.class);
+    }
+
+    @Benchmark
+    public LineString lineStringStreaming() throws IOException {
+        return streaming.readValue(lineString, LineString.class);
+    }
+
+    private static ObjectMapper mapper(JsonDeserializer<Point> pointDeserializer,
+                                       JsonDeserializer<LineString> lineStringDeserializer) {
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(Point.class, pointDeserializer);
+        module.addDeserializer(LineString.class, lineStringDeserializer);
+        return new ObjectMapper().registerModule(module);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeojsonDeserializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
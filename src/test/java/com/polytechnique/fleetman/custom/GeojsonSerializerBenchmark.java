@@ -0,0 +1,107 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Banc JMH de la sérialisation GeoJSON : ancien chemin (GeometryDto ugeojson puis chaîne complète)
+ * contre l'écriture directe dans le JsonGenerator, sur un point et une LineString de 10 000 sommets.
+ * Lancement : exécuter main depuis le classpath de test, avec -prof gc pour comparer les allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeojsonSerializerBenchmark {
+
+    private static final int VERTICES = 10_000;
+
+    private ObjectMapper legacy;
+    private ObjectMapper streaming;
+    private Point point;
+    private LineString lineString;
+    // sortie qui ne retient rien : seul le coût de la sérialisation est mesuré
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    @Setup
+    public void setUp() {
+        legacy = mapper(new CustomUGeojsonSerializer());
+        streaming = mapper(new GeojsonStreamingSerializer());
+
+        GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+        Random random = new Random(3);
+        point = geometryFactory.createPoint(new Coordinate(11.5021853, 3.8480325));
+        Coordinate[] coordinates = new Coordinate[VERTICES];
+        double x = 11.5;
+        double y = 3.85;
+        for (int i = 0; i < VERTICES; i++) {
+            x += (random.nextDouble() - 0.5) * 1e-3;
+            y += (random.nextDouble() - 0.5) * 1e-3;
+            coordinates[i] = new Coordinate(x, y);
+        }
+        lineString = geometryFactory.createLineString(coordinates);
+    }
+
+    @Benchmark
+    public void pointLegacy() throws IOException {
+        legacy.writeValue(sink, point);
+    }
+
+    @Benchmark
+    public void pointStreaming() throws IOException {
+        streaming.writeValue(sink, point);
+    }
+
+    @Benchmark
+    public void lineStringLegacy() throws IOException {
+        legacy.writeValue(sink, lineString);
+    }
+
+    @Benchmark
+    public void lineStringStreaming() throws IOException {
+        streaming.writeValue(sink, lineString);
+    }
+
+    private static ObjectMapper mapper(JsonSerializer<Geometry> serializer) {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(Geometry.class, serializer);
+        ObjectMapper mapper = new ObjectMapper().registerModule(module);
+        // la sortie nulle est réutilisée : elle ne doit pas être fermée après chaque écriture
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return mapper;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeojsonSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,115 @@
+package com.polytechnique.fleetman.custom;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Désérialisation GeoJSON par les jetons : géométries valides en SRID 4326,
+ * et rejet en erreur de mapping (400) de chaque forme d'entrée invalide.
+ */
+class GeojsonStreamingDeserializerTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper().registerModule(new SimpleModule()
+            .addDeserializer(Point.class, new GeojsonStreamingDeserializer<>(Point.class))
+            .addDeserializer(LineString.class, new GeojsonStreamingDeserializer<>(LineString.class))
+            .addDeserializer(Polygon.class, new GeojsonStreamingDeserializer<>(Polygon.class))
+            .addDeserializer(Geometry.class, new GeojsonStreamingDeserializer<>(Geometry.class)));
+
+    @Test
+    void readsPointInWgs84() throws IOException {
+        Point point = mapper.readValue("{\"type\":\"Point\",\"coordinates\":[11.5021853,3.8480325]}", Point.class);
+
+        assertEquals(11.5021853, point.getX());
+        assertEquals(3.8480325, point.getY());
+        assertEquals(4326, point.getSRID());
+    }
+
+    @Test
+    void readsTypeAfterCoordinatesAndAltitude() throws IOException {
+        LineString line = mapper.readValue(
+                "{\"coordinates\":[[11.5,3.8,720],[11.6,3.9,730]],\"bbox\":[11.5,3.8,11.6,3.9],\"type\":\"LineString\"}",
+                LineString.class);
+
+        assertEquals(2, line.getNumPoints());
+        assertEquals(730.0, line.getCoordinateN(1).getZ());
+        assertEquals(4326, line.getSRID());
+    }
+
+    @Test
+    void readsPolygonWithHoleAsGeometry() throws IOException {
+        Geometry geometry = mapper.readValue("{\"type\":\"Polygon\",\"coordinates\":["
+                + "[[0,0],[10,0],[10,10],[0,10],[0,0]],"
+                + "[[2,2],[4,2],[4,4],[2,4],[2,2]]]}", Geometry.class);
+
+        assertTrue(geometry instanceof Polygon);
+        assertEquals(1, ((Polygon) geometry).getNumInteriorRing());
+        assertEquals(4326, geometry.getSRID());
+    }
+
+    @Test
+    void rejectsUnknownType() {
+        assertRejected("{\"type\":\"Circle\",\"coordinates\":[11.5,3.8]}", Geometry.class);
+    }
+
+    @Test
+    void rejectsTypeMismatch() {
+        assertRejected("{\"type\":\"LineString\",\"coordinates\":[[11.5,3.8],[11.6,3.9]]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[11.5,3.8]}", Polygon.class);
+    }
+
+    @Test
+    void rejectsMissingFields() {
+        assertRejected("{\"type\":\"Point\"}", Point.class);
+        assertRejected("{\"coordinates\":[11.5,3.8]}", Point.class);
+        assertRejected("[11.5,3.8]", Point.class);
+    }
+
+    @Test
+    void rejectsNonNumericCoordinates() {
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[\"11.5\",3.8]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[11.5,\"3.8\"]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[11.5,null]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":\"11.5,3.8\"}", Point.class);
+    }
+
+    @Test
+    void rejectsPositionsWithOneOrFourNumbers() {
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[11.5]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[11.5,3.8,720,1]}", Point.class);
+        assertRejected("{\"type\":\"LineString\",\"coordinates\":[[11.5,3.8],[11.6]]}", LineString.class);
+    }
+
+    @Test
+    void rejectsOutOfRangeCoordinates() {
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[180.5,3.8]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[-181,3.8]}", Point.class);
+        assertRejected("{\"type\":\"Point\",\"coordinates\":[11.5,90.1]}", Point.class);
+        assertRejected("{\"type\":\"LineString\",\"coordinates\":[[11.5,3.8],[11.6,-95]]}", LineString.class);
+    }
+
+    @Test
+    void rejectsUnclosedRing() {
+        assertRejected("{\"type\":\"Polygon\",\"coordinates\":[[[0,0],[10,0],[10,10],[0,10]]]}", Polygon.class);
+    }
+
+    @Test
+    void rejectsOnePointLineString() {
+        assertRejected("{\"type\":\"LineString\",\"coordinates\":[[11.5,3.8]]}", LineString.class);
+    }
+
+    private static void assertRejected(String json, Class<? extends Geometry> type) {
+        assertThrows(JsonMappingException.class, () -> mapper.readValue(json, type));
+    }
+}
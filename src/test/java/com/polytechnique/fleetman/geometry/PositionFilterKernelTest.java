@@ -0,0 +1,104 @@
+package com.polytechnique.fleetman.geometry;
+
+import com.polytechnique.fleetman.service.PositionService;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test de propriété : le noyau primitif rend les mêmes décisions que l'implémentation JTS
+ * de PositionService sur des entrées aléatoires.
+ */
+class PositionFilterKernelTest {
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+    private static final double R = PositionFilterKernel.INCERTITUDE;
+    private static final int ITERATIONS = 20_000;
+
+    // Les zones JTS sont des polygones inscrits dans le cercle (8 segments par quart de cercle) :
+    // au bord du couloir, JTS peut différer d'au plus 2R * (1 - cos(PI / 32)) ≈ 0,5 % de la largeur.
+    private static final double TOLERANCE_BORD = 2.0 * R * 0.01;
+
+    @Test
+    void existeDroiteMatchesJtsImplementation() {
+        Random random = new Random(42);
+        int compared = 0;
+        int aligned = 0;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            double ax = 11.5 + random.nextDouble() * 0.1;
+            double ay = 3.8 + random.nextDouble() * 0.1;
+            double angle = random.nextDouble() * 2.0 * Math.PI;
+            double length = random.nextDouble() * 20.0 * R;
+            double bx = ax + Math.cos(angle) * length;
+            double by = ay + Math.sin(angle) * length;
+
+            // C autour du segment, de part et d'autre du bord du couloir
+            double t = -0.5 + random.nextDouble() * 2.0;
+            double offset = (random.nextDouble() * 2.0 - 1.0) * 5.0 * R;
+            double cx = ax + (bx - ax) * t - Math.sin(angle) * offset;
+            double cy = ay + (by - ay) * t + Math.cos(angle) * offset;
+
+            double distance = Math.sqrt(PositionFilterKernel.distanceSegmentCarre(ax, ay, bx, by, cx, cy));
+            if (Math.abs(distance - 2.0 * R) <= TOLERANCE_BORD) {
+                continue;
+            }
+
+            boolean expected = PositionService.existeDroite(point(ax, ay), point(bx, by), point(cx, cy));
+            boolean actual = PositionFilterKernel.existeDroite(ax, ay, bx, by, cx, cy);
+            assertEquals(expected, actual,
+                    "A=(" + ax + ", " + ay + ") B=(" + bx + ", " + by + ") C=(" + cx + ", " + cy + ")");
+
+            compared++;
+            if (actual) {
+                aligned++;
+            }
+        }
+
+        // les deux issues doivent être réellement exercées
+        assertTrue(compared > ITERATIONS * 0.9);
+        assertTrue(aligned > compared / 10 && aligned < compared * 9 / 10);
+    }
+
+    @Test
+    void sontProchesMatchesJtsImplementation() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            double ax = 11.5 + random.nextDouble() * 0.1;
+            double ay = 3.8 + random.nextDouble() * 0.1;
+            double angle = random.nextDouble() * 2.0 * Math.PI;
+            double length = random.nextDouble() * 3.0 * PositionFilterKernel.DISTANCE_THRESHOLD;
+            double bx = ax + Math.cos(angle) * length;
+            double by = ay + Math.sin(angle) * length;
+
+            if (Math.abs(length - PositionFilterKernel.DISTANCE_THRESHOLD) <= 1e-12) {
+                continue;
+            }
+
+            assertEquals(
+                    PositionService.sontProchesAvecDistanceOp(point(ax, ay), point(bx, by)),
+                    PositionFilterKernel.sontProches(ax, ay, bx, by)
+            );
+        }
+    }
+
+    @Test
+    void existeDroiteHandlesIdenticalAnchors() {
+        assertTrue(PositionFilterKernel.existeDroite(11.5, 3.8, 11.5, 3.8, 11.5 + R, 3.8));
+        assertEquals(
+                PositionService.existeDroite(point(11.5, 3.8), point(11.5, 3.8), point(11.5 + 4 * R, 3.8)),
+                PositionFilterKernel.existeDroite(11.5, 3.8, 11.5, 3.8, 11.5 + 4 * R, 3.8)
+        );
+    }
+
+    private static Point point(double x, double y) {
+        return geometryFactory.createPoint(new Coordinate(x, y));
+    }
+}
@@ -0,0 +1,174 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Banc d'essai des compresseurs de trajectoire : taux de compression et erreur maximale
+ * (distance d'une position reçue au segment enregistré qui l'encadre).
+ *
+ * Les traces sont synthétiques (seed fixe : virages lents, arrêts, bruit GPS) ; des traces enregistrées
+ * peuvent être fournies au format d'import CSV (vehicle_id,longitude,latitude,position_date_time)
+ * via -Dfleetman.benchmark.tracks=chemin/vers/traces.csv
+ * Hors de la suite de tests : lancement en exécutant main depuis le classpath de test
+ * (les garanties de compression sont vérifiées par TrajectoryCompressorTest).
+ */
+public class TrajectoryCompressorBenchmark {
+
+    static final double MAX_ERROR_METERS = 10.0;
+    private static final double METRES_PAR_DEGRE = 111_320.0;
+
+    public static void main(String[] args) throws IOException {
+        List<List<TrackPoint>> tracks = loadTracks();
+
+        Map<String, TrajectoryCompressor> compressors = new LinkedHashMap<>();
+        compressors.put("ALIGNEMENT", new AlignmentCompressor());
+        compressors.put("OPENING_WINDOW", new OpeningWindowCompressor(MAX_ERROR_METERS, 200));
+        compressors.put("DEAD_RECKONING", new DeadReckoningCompressor(MAX_ERROR_METERS));
+
+        System.out.printf("%-16s %10s %10s %8s %14s %14s%n",
+                "stratégie", "reçues", "gardées", "ratio", "err. max (m)", "err. moy (m)");
+        for (Map.Entry<String, TrajectoryCompressor> entry : compressors.entrySet()) {
+            long received = 0;
+            long kept = 0;
+            long measured = 0;
+            double maxError = 0.0;
+            double sumError = 0.0;
+
+            for (List<TrackPoint> track : tracks) {
+                List<Integer> keptIndexes = compress(entry.getValue(), track);
+                received += track.size();
+                kept += keptIndexes.size();
+                double[] errors = errors(track, keptIndexes);
+                measured += errors.length;
+                for (double error : errors) {
+                    maxError = Math.max(maxError, error);
+                    sumError += error;
+                }
+            }
+
+            System.out.printf("%-16s %10d %10d %8.2f %14.2f %14.2f%n",
+                    entry.getKey(), received, kept, (double) received / kept, maxError, sumError / measured);
+        }
+    }
+
+    // rejoue la boucle d'ingestion de PositionService : retourne les indices des positions enregistrées
+    static List<Integer> compress(TrajectoryCompressor compressor, List<TrackPoint> track) {
+        List<Integer> kept = new ArrayList<>();
+        List<TrackPoint> skipped = new ArrayList<>();
+        List<Integer> skippedIndexes = new ArrayList<>();
+
+        for (int i = 0; i < track.size(); i++) {
+            TrackPoint current = track.get(i);
+            TrackPoint[] stored = kept.isEmpty()
+                    ? new TrackPoint[0]
+                    : kept.size() == 1
+                    ? new TrackPoint[]{track.get(kept.get(0))}
+                    : new TrackPoint[]{track.get(kept.get(kept.size() - 1)), track.get(kept.get(kept.size() - 2))};
+
+            CompressionDecision decision = stored.length == 0
+                    ? CompressionDecision.KEEP
+                    : compressor.decide(stored, List.copyOf(skipped), current);
+            if (decision == CompressionDecision.SKIP) {
+                if (skipped.size() < compressor.windowSize()) {
+                    skipped.add(current);
+                }
+                skippedIndexes.add(i);
+                continue;
+            }
+            if (decision == CompressionDecision.KEEP_WITH_PREVIOUS) {
+                kept.add(skippedIndexes.get(skippedIndexes.size() - 1));
+            }
+            kept.add(i);
+            skipped.clear();
+            skippedIndexes.clear();
+        }
+        return kept;
+    }
+
+    // erreur de chaque position : distance au segment [gardée précédente, gardée suivante] qui l'encadre
+    // (les positions après la dernière gardée sont encore en attente dans la fenêtre et ne sont pas comptées)
+    static double[] errors(List<TrackPoint> track, List<Integer> kept) {
+        int last = kept.get(kept.size() - 1);
+        double[] errors = new double[last + 1];
+        int segment = 0;
+        for (int i = 0; i <= last; i++) {
+            while (segment + 1 < kept.size() && kept.get(segment + 1) <= i) {
+                segment++;
+            }
+            TrackPoint a = track.get(kept.get(segment));
+            TrackPoint b = segment + 1 < kept.size() ? track.get(kept.get(segment + 1)) : a;
+            TrackPoint p = track.get(i);
+            errors[i] = Math.sqrt(Meters.distanceSegmentCarre(a.x(), a.y(), b.x(), b.y(), p.x(), p.y()));
+        }
+        return errors;
+    }
+
+    private static List<List<TrackPoint>> loadTracks() throws IOException {
+        String recorded = System.getProperty("fleetman.benchmark.tracks");
+        if (recorded != null) {
+            return readCsv(Path.of(recorded));
+        }
+
+        Random random = new Random(7);
+        List<List<TrackPoint>> tracks = new ArrayList<>();
+        for (int t = 0; t < 20; t++) {
+            tracks.add(syntheticTrack(random, 3_600));
+        }
+        return tracks;
+    }
+
+    // une position par seconde : vitesse et cap variant lentement, arrêts, bruit GPS gaussien (σ = 3 m)
+    static List<TrackPoint> syntheticTrack(Random random, int seconds) {
+        List<TrackPoint> track = new ArrayList<>(seconds);
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 8, 0);
+        double lat = 3.8 + random.nextDouble() * 0.1;
+        double lon = 11.5 + random.nextDouble() * 0.1;
+        double heading = random.nextDouble() * 2.0 * Math.PI;
+        double speed = 12.0;
+        double turnRate = 0.0;
+        int stopRemaining = 0;
+
+        for (int s = 0; s < seconds; s++) {
+            if (stopRemaining > 0) {
+                stopRemaining--;
+            } else {
+                if (random.nextDouble() < 0.002) {
+                    stopRemaining = 30 + random.nextInt(120);
+                }
+                turnRate = Math.max(-0.08, Math.min(0.08, turnRate + random.nextGaussian() * 0.005));
+                heading += turnRate;
+                speed = Math.max(2.0, Math.min(25.0, speed + random.nextGaussian() * 0.3));
+                lat += Math.cos(heading) * speed / METRES_PAR_DEGRE;
+                lon += Math.sin(heading) * speed / (METRES_PAR_DEGRE * Math.cos(Math.toRadians(lat)));
+            }
+
+            double noiseLat = random.nextGaussian() * 3.0 / METRES_PAR_DEGRE;
+            double noiseLon = random.nextGaussian() * 3.0 / (METRES_PAR_DEGRE * Math.cos(Math.toRadians(lat)));
+            track.add(new TrackPoint(lon + noiseLon, lat + noiseLat, time.plusSeconds(s)));
+        }
+        return track;
+    }
+
+    private static List<List<TrackPoint>> readCsv(Path file) throws IOException {
+        Map<String, List<TrackPoint>> byVehicle = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            String[] fields = line.split(",");
+            if (fields.length < 4 || !Character.isDigit(fields[0].trim().charAt(0))) {
+                continue;
+            }
+            byVehicle.computeIfAbsent(fields[0].trim(), id -> new ArrayList<>()).add(new TrackPoint(
+                    Double.parseDouble(fields[1].trim()),
+                    Double.parseDouble(fields[2].trim()),
+                    LocalDateTime.parse(fields[3].trim().replace(' ', 'T'))));
+        }
+        return new ArrayList<>(byVehicle.values());
+    }
+}
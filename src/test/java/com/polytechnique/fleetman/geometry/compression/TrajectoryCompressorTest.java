@@ -0,0 +1,69 @@
+package com.polytechnique.fleetman.geometry.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Garanties des compresseurs de trajectoire sur des traces synthétiques (seed fixe) :
+ * chaque stratégie écarte des positions, et la fenêtre glissante reste dans sa tolérance.
+ * Les mesures complètes sont produites par TrajectoryCompressorBenchmark.
+ */
+class TrajectoryCompressorTest {
+
+    private static final double MAX_ERROR_METERS = TrajectoryCompressorBenchmark.MAX_ERROR_METERS;
+
+    private final List<List<TrackPoint>> tracks = tracks();
+
+    @Test
+    void openingWindowCompressesWithinTolerance() {
+        OpeningWindowCompressor compressor = new OpeningWindowCompressor(MAX_ERROR_METERS, 200);
+
+        long received = 0;
+        long kept = 0;
+        double maxError = 0.0;
+        for (List<TrackPoint> track : tracks) {
+            List<Integer> keptIndexes = TrajectoryCompressorBenchmark.compress(compressor, track);
+            received += track.size();
+            kept += keptIndexes.size();
+            for (double error : TrajectoryCompressorBenchmark.errors(track, keptIndexes)) {
+                maxError = Math.max(maxError, error);
+            }
+        }
+
+        // chaque position écartée reste dans la tolérance
+        assertTrue(maxError <= MAX_ERROR_METERS * 1.001, "erreur maximale " + maxError);
+        assertTrue(received >= 2 * kept, received + " positions reçues, " + kept + " gardées");
+    }
+
+    @Test
+    void everyStrategyDropsPositions() {
+        List<TrajectoryCompressor> compressors = List.of(
+                new AlignmentCompressor(),
+                new OpeningWindowCompressor(MAX_ERROR_METERS, 200),
+                new DeadReckoningCompressor(MAX_ERROR_METERS));
+
+        for (TrajectoryCompressor compressor : compressors) {
+            long received = 0;
+            long kept = 0;
+            for (List<TrackPoint> track : tracks) {
+                received += track.size();
+                kept += TrajectoryCompressorBenchmark.compress(compressor, track).size();
+            }
+            assertTrue(kept < received, compressor.getClass().getSimpleName() + " : " + kept + " gardées sur " + received);
+        }
+    }
+
+    private static List<List<TrackPoint>> tracks() {
+        Random random = new Random(7);
+        List<List<TrackPoint>> tracks = new ArrayList<>();
+        for (int t = 0; t < 5; t++) {
+            tracks.add(TrajectoryCompressorBenchmark.syntheticTrack(random, 1_800));
+        }
+        return tracks;
+    }
+}
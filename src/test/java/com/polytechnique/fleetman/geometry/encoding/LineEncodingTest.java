@@ -0,0 +1,78 @@
+package com.polytechnique.fleetman.geometry.encoding;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Encodages compacts des lignes : exemple de référence de l'algorithme polyline de Google,
+ * et aller-retour de l'encodage par écarts sur des traces aléatoires.
+ */
+class LineEncodingTest {
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory();
+
+    @Test
+    void polylineMatchesGoogleReferenceExample() {
+        CoordinateSequence sequence = geometryFactory.createLineString(new Coordinate[]{
+                new Coordinate(-120.2, 38.5),
+                new Coordinate(-120.95, 40.7),
+                new Coordinate(-126.453, 43.252)
+        }).getCoordinateSequence();
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", PolylineEncoder.encode(sequence, 5));
+    }
+
+    @Test
+    void deltaRoundTripsRandomTracks() {
+        Random random = new Random(17);
+        for (int track = 0; track < 100; track++) {
+            int size = 2 + random.nextInt(500);
+            Coordinate[] coordinates = new Coordinate[size];
+            double x = -180 + random.nextDouble() * 360;
+            double y = -90 + random.nextDouble() * 180;
+            for (int i = 0; i < size; i++) {
+                // quelques sauts importants, surtout des petits déplacements
+                double step = random.nextInt(20) == 0 ? 10 : 1e-3;
+                x = Math.max(-180, Math.min(180, x + (random.nextDouble() - 0.5) * step));
+                y = Math.max(-90, Math.min(90, y + (random.nextDouble() - 0.5) * step));
+                coordinates[i] = new Coordinate(x, y);
+            }
+            CoordinateSequence sequence = geometryFactory.createLineString(coordinates).getCoordinateSequence();
+
+            long[] decoded = decode(Base64.getDecoder().decode(DeltaEncoder.encode(sequence, 7)), size * 2);
+            for (int i = 0; i < size; i++) {
+                assertEquals(Math.round(coordinates[i].x * 1e7), decoded[2 * i]);
+                assertEquals(Math.round(coordinates[i].y * 1e7), decoded[2 * i + 1]);
+            }
+        }
+    }
+
+    // décodeur de référence : varint zig-zag, puis somme des écarts par composante (x, y)
+    private static long[] decode(byte[] bytes, int values) {
+        long[] decoded = new long[values];
+        long[] previous = new long[2];
+        int offset = 0;
+        for (int i = 0; i < values; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            long delta = (value >>> 1) ^ -(value & 1);
+            previous[i % 2] += delta;
+            decoded[i] = previous[i % 2];
+        }
+        assertEquals(bytes.length, offset);
+        return decoded;
+    }
+}
@@ -0,0 +1,102 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Banc d'essai de l'évaluation des zones : débit de positions évaluées contre 10 000 zones
+ * (polygones de 32 sommets, rayon 200 m à 2 km, réparties sur ~ 100 km × 100 km).
+ * Les véhicules se déplacent en ligne droite à 15 m/s avec une position par seconde.
+ * Hors de la suite de tests : lancement en exécutant main depuis le classpath de test.
+ */
+public class GeofenceEvaluationBenchmark {
+
+    private static final int FENCES = 10_000;
+    private static final int VEHICLES = 5_000;
+    private static final int FIXES = 1_000_000;
+    private static final double METRES_PAR_DEGRE = 111_320.0;
+
+    public static void main(String[] args) {
+        Random random = new Random(11);
+        GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+
+        List<Geofence> geofences = new ArrayList<>(FENCES);
+        List<GeofenceRule> rules = List.of(new GeofenceRule(null, null, true, true, 600));
+        for (int i = 0; i < FENCES; i++) {
+            double radius = (200 + random.nextDouble() * 1_800) / METRES_PAR_DEGRE;
+            Coordinate center = new Coordinate(11.0 + random.nextDouble(), 3.5 + random.nextDouble());
+            geofences.add(new Geofence(i + 1, "zone " + i, 1L,
+                    geometryFactory.createPoint(center).buffer(radius, 8), rules));
+        }
+        GeofenceIndex index = new GeofenceIndex(geofences);
+
+        double[] x = new double[VEHICLES];
+        double[] y = new double[VEHICLES];
+        double[] dx = new double[VEHICLES];
+        double[] dy = new double[VEHICLES];
+        for (int v = 0; v < VEHICLES; v++) {
+            x[v] = 11.0 + random.nextDouble();
+            y[v] = 3.5 + random.nextDouble();
+            double heading = random.nextDouble() * 2.0 * Math.PI;
+            dx[v] = Math.sin(heading) * 15.0 / METRES_PAR_DEGRE;
+            dy[v] = Math.cos(heading) * 15.0 / METRES_PAR_DEGRE;
+        }
+
+        GeofenceTracker tracker = new GeofenceTracker();
+        Map<GeofenceTransition, long[]> counts = new EnumMap<>(GeofenceTransition.class);
+        for (GeofenceTransition transition : GeofenceTransition.values()) {
+            counts.put(transition, new long[1]);
+        }
+        GeofenceTracker.Listener<Map<GeofenceTransition, long[]>> listener =
+                (geofence, transition, context, dateTime) -> context.get(transition)[0]++;
+
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 8, 0);
+        // échauffement du JIT, puis mesure
+        run(tracker, index, x, y, dx, dy, start, FIXES / 5, counts, listener);
+        long began = System.nanoTime();
+        run(tracker, index, x, y, dx, dy, start.plusHours(1), FIXES, counts, listener);
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        double throughput = FIXES / seconds;
+        System.out.printf("%d zones, %d véhicules : %d positions en %.2f s, %.0f positions/s%n",
+                FENCES, VEHICLES, FIXES, seconds, throughput);
+        System.out.printf("transitions : entrées %d, sorties %d, stationnements %d%n",
+                counts.get(GeofenceTransition.ENTER)[0],
+                counts.get(GeofenceTransition.EXIT)[0],
+                counts.get(GeofenceTransition.DWELL)[0]);
+
+        // les déplacements traversent des zones : entrées et sorties doivent être détectées
+        if (counts.get(GeofenceTransition.ENTER)[0] == 0 || counts.get(GeofenceTransition.EXIT)[0] == 0) {
+            throw new IllegalStateException("aucune entrée ou sortie détectée");
+        }
+    }
+
+    private static void run(GeofenceTracker tracker, GeofenceIndex index,
+                            double[] x, double[] y, double[] dx, double[] dy,
+                            LocalDateTime start, int fixes,
+                            Map<GeofenceTransition, long[]> counts,
+                            GeofenceTracker.Listener<Map<GeofenceTransition, long[]>> listener) {
+        for (int i = 0; i < fixes; i++) {
+            int v = i % VEHICLES;
+            x[v] += dx[v];
+            y[v] += dy[v];
+            // demi-tour en bord de zone d'étude
+            if (x[v] < 11.0 || x[v] > 12.0) {
+                dx[v] = -dx[v];
+            }
+            if (y[v] < 3.5 || y[v] > 4.5) {
+                dy[v] = -dy[v];
+            }
+            tracker.evaluate(index, v + 1, 1L, "Camion", x[v], y[v],
+                    start.plusSeconds(i / VEHICLES), counts, listener);
+        }
+    }
+}
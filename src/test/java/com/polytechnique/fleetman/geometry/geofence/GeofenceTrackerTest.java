@@ -0,0 +1,170 @@
+package com.polytechnique.fleetman.geometry.geofence;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Détection des transitions par le suivi de présence : initialisation sur la première position,
+ * entrée, sortie, stationnement, portée des règles et brouillons de transaction.
+ * La zone de référence est le carré [0, 1] × [0, 1] du propriétaire 1.
+ */
+class GeofenceTrackerTest {
+
+    private static final GeometryFactory geometryFactory = new GeometryFactory(new PrecisionModel(), 4326);
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 8, 0);
+    private static final long VEHICULE = 7L;
+    private static final long PROPRIETAIRE = 1L;
+
+    private record Event(long geofenceId, GeofenceTransition transition) {
+    }
+
+    private final GeofenceTracker tracker = new GeofenceTracker();
+    private final List<Event> events = new ArrayList<>();
+    private final GeofenceTracker.Listener<List<Event>> listener =
+            (geofence, transition, context, dateTime) -> context.add(new Event(geofence.getGeofenceId(), transition));
+
+    @Test
+    void firstFixSeedsPresenceWithoutSignaling() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE, new GeofenceRule(null, null, true, true, 0)));
+
+        evaluate(index, 0.5, 0.5, T0);
+        assertEquals(List.of(), events);
+
+        // déjà dans la zone : la position suivante ne signale pas d'entrée
+        evaluate(index, 0.6, 0.6, T0.plusSeconds(10));
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void signalsEnterThenExit() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE, new GeofenceRule(null, null, true, true, 0)));
+
+        evaluate(index, 2.0, 2.0, T0);
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(10));
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER)), events);
+
+        evaluate(index, 0.7, 0.5, T0.plusSeconds(20));
+        evaluate(index, 2.0, 0.5, T0.plusSeconds(30));
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER), new Event(1, GeofenceTransition.EXIT)), events);
+    }
+
+    @Test
+    void signalsDwellOncePerVisit() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE, new GeofenceRule(null, null, false, false, 600)));
+
+        evaluate(index, 2.0, 2.0, T0);
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(60));
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(659));
+        assertEquals(List.of(), events);
+
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(660));
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(1_800));
+        assertEquals(List.of(new Event(1, GeofenceTransition.DWELL)), events);
+
+        // nouvelle visite : le délai repart de l'entrée
+        evaluate(index, 2.0, 2.0, T0.plusSeconds(1_900));
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(2_000));
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(2_600));
+        assertEquals(List.of(new Event(1, GeofenceTransition.DWELL), new Event(1, GeofenceTransition.DWELL)), events);
+    }
+
+    @Test
+    void signalsOnlyTransitionsEnabledByRule() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE, new GeofenceRule(null, null, true, false, 0)));
+
+        evaluate(index, 2.0, 2.0, T0);
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(10));
+        evaluate(index, 2.0, 2.0, T0.plusSeconds(20));
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER)), events);
+    }
+
+    @Test
+    void rulesAreScopedToVehicleAndVehicleType() {
+        GeofenceIndex index = index(
+                zone(1, PROPRIETAIRE, new GeofenceRule(VEHICULE, null, true, true, 0)),
+                zone(2, PROPRIETAIRE, new GeofenceRule(VEHICULE + 1, null, true, true, 0)),
+                zone(3, PROPRIETAIRE, new GeofenceRule(null, "camion", true, true, 0)),
+                zone(4, PROPRIETAIRE, new GeofenceRule(null, "Moto", true, true, 0)));
+
+        evaluate(index, 2.0, 2.0, T0);
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(10));
+        // règle du véhicule, et type comparé sans tenir compte de la casse (ordre des zones non garanti)
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER), new Event(3, GeofenceTransition.ENTER)),
+                events.stream().sorted(Comparator.comparingLong(Event::geofenceId)).toList());
+    }
+
+    @Test
+    void ignoresGeofencesOfOtherOwners() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE + 1, new GeofenceRule(null, null, true, true, 0)));
+
+        evaluate(index, 2.0, 2.0, T0);
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(10));
+        evaluate(index, 2.0, 2.0, T0.plusSeconds(20));
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void draftIsOnlyAppliedOnCommit() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE, new GeofenceRule(null, null, true, true, 0)));
+        evaluate(index, 2.0, 2.0, T0);
+
+        // transaction annulée : le brouillon est abandonné, l'entrée est signalée à nouveau ensuite
+        GeofenceTracker.Draft rolledBack = tracker.draft(VEHICULE);
+        tracker.evaluate(index, rolledBack, PROPRIETAIRE, "Camion", 0.5, 0.5, T0.plusSeconds(10), events, listener);
+        tracker.discard(rolledBack);
+        GeofenceTracker.Draft committed = tracker.draft(VEHICULE);
+        tracker.evaluate(index, committed, PROPRIETAIRE, "Camion", 0.5, 0.5, T0.plusSeconds(20), events, listener);
+        tracker.commit(committed);
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER), new Event(1, GeofenceTransition.ENTER)), events);
+
+        // le brouillon suivant (ancienne présence validée) repart de la présence installée
+        GeofenceTracker.Draft exit = tracker.draft(VEHICULE);
+        tracker.evaluate(index, exit, PROPRIETAIRE, "Camion", 2.0, 2.0, T0.plusSeconds(30), events, listener);
+        tracker.discard(exit);
+
+        // transaction validée : la présence est retenue, la sortie est signalée
+        evaluate(index, 2.0, 2.0, T0.plusSeconds(40));
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER), new Event(1, GeofenceTransition.ENTER),
+                new Event(1, GeofenceTransition.EXIT), new Event(1, GeofenceTransition.EXIT)), events);
+    }
+
+    @Test
+    void concurrentDraftsOfSameVehicleAreIndependent() {
+        GeofenceIndex index = index(zone(1, PROPRIETAIRE, new GeofenceRule(null, null, true, true, 0)));
+        evaluate(index, 2.0, 2.0, T0);
+
+        GeofenceTracker.Draft first = tracker.draft(VEHICULE);
+        GeofenceTracker.Draft second = tracker.draft(VEHICULE);
+        tracker.evaluate(index, second, PROPRIETAIRE, "Camion", 0.5, 0.5, T0.plusSeconds(10), events, listener);
+        tracker.commit(second);
+        // le premier brouillon n'a pas vu l'entrée du second, et n'est pas touché par son commit
+        tracker.evaluate(index, first, PROPRIETAIRE, "Camion", 2.0, 2.0, T0.plusSeconds(20), events, listener);
+        tracker.discard(first);
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER)), events);
+
+        evaluate(index, 0.5, 0.5, T0.plusSeconds(30));
+        assertEquals(List.of(new Event(1, GeofenceTransition.ENTER)), events);
+    }
+
+    private void evaluate(GeofenceIndex index, double x, double y, LocalDateTime dateTime) {
+        tracker.evaluate(index, VEHICULE, PROPRIETAIRE, "Camion", x, y, dateTime, events, listener);
+    }
+
+    private static GeofenceIndex index(Geofence... geofences) {
+        return new GeofenceIndex(List.of(geofences));
+    }
+
+    private static Geofence zone(long geofenceId, long userId, GeofenceRule rule) {
+        return new Geofence(geofenceId, "zone " + geofenceId, userId,
+                geometryFactory.toGeometry(new Envelope(0, 1, 0, 1)), List.of(rule));
+    }
+}